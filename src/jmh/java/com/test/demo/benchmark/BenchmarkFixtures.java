@@ -0,0 +1,264 @@
+package com.test.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic inputs for the benchmarks, shaped like real-world files of the given size.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * A pom.xml with a parent, the usual coordinates and metadata up front, followed by the given number of
+     * dependencies, managed dependencies, plugins and profiles, as in large aggregator or BOM-importing POMs.
+     */
+    static byte[] pom(int dependencies) {
+        StringBuilder pom = new StringBuilder(512 + dependencies * 600);
+        pom.append("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd">
+                    <modelVersion>4.0.0</modelVersion>
+                    <parent>
+                        <groupId>org.springframework.boot</groupId>
+                        <artifactId>spring-boot-starter-parent</artifactId>
+                        <version>3.3.11</version>
+                        <relativePath/>
+                    </parent>
+                    <groupId>com.example</groupId>
+                    <artifactId>service</artifactId>
+                    <version>4.2.0-SNAPSHOT</version>
+                    <name>Service</name>
+                    <description>Benchmark fixture</description>
+                    <properties>
+                        <java.version>17</java.version>
+                    </properties>
+                """);
+        pom.append("    <dependencyManagement>\n        <dependencies>\n");
+        for (int i = 0; i < dependencies; i++) {
+            appendDependency(pom, "managed", i, "            ");
+        }
+        pom.append("        </dependencies>\n    </dependencyManagement>\n    <dependencies>\n");
+        for (int i = 0; i < dependencies; i++) {
+            appendDependency(pom, "lib", i, "        ");
+        }
+        pom.append("    </dependencies>\n    <build>\n        <plugins>\n");
+        for (int i = 0; i < Math.max(1, dependencies / 10); i++) {
+            pom.append("            <plugin><groupId>org.example.plugins</groupId><artifactId>plugin-").append(i)
+               .append("</artifactId><version>1.").append(i).append(".0</version><configuration><skip>false</skip>")
+               .append("</configuration></plugin>\n");
+        }
+        pom.append("        </plugins>\n    </build>\n    <profiles>\n");
+        for (int i = 0; i < Math.max(1, dependencies / 20); i++) {
+            pom.append("        <profile><id>profile-").append(i).append("</id><properties><flag>").append(i)
+               .append("</flag></properties></profile>\n");
+        }
+        pom.append("    </profiles>\n</project>\n");
+        return pom.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An OpenAPI spec with the given number of paths, each with a couple of operations and inline schemas, as in
+     * resolved (dereferenced) swagger.yml files. {@code infoLast} moves the {@code info} block after {@code paths}
+     * and {@code components}, the worst case for a scan that stops at {@code info.version}.
+     */
+    static byte[] spec(int paths, boolean json, boolean infoLast) {
+        Map<String, Object> pathItems = new LinkedHashMap<>();
+        Map<String, Object> schemas = new LinkedHashMap<>();
+        for (int i = 0; i < paths; i++) {
+            Map<String, Object> schema = Map.of(
+                    "type", "object",
+                    "required", List.of("id", "name"),
+                    "properties", Map.of(
+                            "id", Map.of("type", "integer", "format", "int64"),
+                            "name", Map.of("type", "string", "maxLength", 255),
+                            "tags", Map.of("type", "array", "items", Map.of("type", "string"))));
+            schemas.put("Resource" + i, schema);
+            Map<String, Object> ok = Map.of("description", "OK",
+                    "content", Map.of("application/json", Map.of("schema", schema)));
+            pathItems.put("/resources-" + i + "/{id}", Map.of(
+                    "get", Map.of("operationId", "getResource" + i, "summary", "Fetch resource " + i,
+                            "parameters", List.of(Map.of("name", "id", "in", "path", "required", true,
+                                    "schema", Map.of("type", "integer"))),
+                            "responses", Map.of("200", ok, "404", Map.of("description", "Not found"))),
+                    "put", Map.of("operationId", "putResource" + i,
+                            "requestBody", Map.of("content", Map.of("application/json", Map.of("schema", schema))),
+                            "responses", Map.of("200", ok))));
+        }
+        Map<String, Object> info = Map.of("title", "Benchmark API", "description", "Benchmark fixture",
+                "version", "2.7.1");
+
+        Map<String, Object> spec = new LinkedHashMap<>();
+        spec.put("openapi", "3.0.3");
+        if (!infoLast) {
+            spec.put("info", info);
+        }
+        spec.put("servers", List.of(Map.of("url", "https://api.example.com/v2")));
+        spec.put("paths", pathItems);
+        spec.put("components", Map.of("schemas", schemas));
+        if (infoLast) {
+            spec.put("info", info);
+        }
+        try {
+            ObjectMapper mapper = json ? new ObjectMapper() : new ObjectMapper(new YAMLFactory());
+            return mapper.writeValueAsBytes(spec);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to build spec fixture", e);
+        }
+    }
+
+    /**
+     * Spec path patterns for a monorepo with the given number of services: a mix of per-service globs,
+     * per-service literal paths and a few repository-wide globs.
+     */
+    static List<String> specPatterns(int count) {
+        List<String> patterns = new ArrayList<>(count);
+        patterns.add("services/*/APISPEC/**/swagger.yml");
+        patterns.add("**/openapi.json");
+        for (int i = 0; patterns.size() < count; i++) {
+            switch (i % 3) {
+                case 0 -> patterns.add("services/svc-" + i + "/APISPEC/**/swagger-*.yml");
+                case 1 -> patterns.add("services/svc-" + i + "/api/v?/spec.yaml");
+                default -> patterns.add("services/svc-" + i + "/APISPEC/resolved/swagger.yml");
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Changed file paths of a large merge request across the given number of services; about one in fifty is a spec.
+     */
+    static List<String> changedPaths(int count, int services) {
+        Random random = new Random(42);
+        List<String> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String service = "services/svc-" + random.nextInt(services);
+            paths.add(switch (i % 50) {
+                case 0 -> service + "/APISPEC/resolved/swagger.yml";
+                case 1 -> service + "/api/v" + random.nextInt(3) + "/spec.yaml";
+                default -> service + "/src/main/java/com/example/pkg" + random.nextInt(40) + "/Class" + i + ".java";
+            });
+        }
+        return paths;
+    }
+
+    /**
+     * Webhook settings as shipped in application.yml.
+     */
+    static WebhookProperties webhookProperties() {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setTargetBranches("main,develop");
+        properties.setApiSpecFiles(List.of("APISPEC/resolved/swagger.yml", "APISPEC/unresolved/swagger.yml"));
+        return properties;
+    }
+
+    /**
+     * Changes of a merge request touching the given number of files, as listed by the diffs API; the two default
+     * spec files are among them, towards the end.
+     */
+    static List<Change> changes(int count) {
+        List<Change> changes = new ArrayList<>(count);
+        for (String path : changedPaths(count, Math.max(count / 200, 1))) {
+            changes.add(new Change(path, path, false, false, false));
+        }
+        changes.set(count * 3 / 4, new Change(null, "APISPEC/resolved/swagger.yml", true, false, false));
+        changes.set(count - 1, new Change("APISPEC/unresolved/swagger.yml", "APISPEC/unresolved/swagger.yml", false, false, false));
+        return changes;
+    }
+
+    /**
+     * A merge request webhook payload as GitLab sends it: user, project, repository and a full
+     * {@code object_attributes} block, of which only a handful of fields are bound, plus the given number of
+     * labels and a description of the given length.
+     */
+    static byte[] mergeRequestEvent(int labels, int descriptionChars) {
+        Map<String, Object> user = Map.of("id", 1, "name", "Jane Doe", "username", "jdoe",
+                "avatar_url", "https://gitlab.example.com/uploads/user/avatar/1/avatar.png", "email", "[REDACTED]");
+        Map<String, Object> project = new LinkedHashMap<>();
+        project.put("id", 200);
+        project.put("name", "service");
+        project.put("description", "Benchmark fixture");
+        project.put("web_url", "https://gitlab.example.com/group/service");
+        project.put("git_ssh_url", "git@gitlab.example.com:group/service.git");
+        project.put("git_http_url", "https://gitlab.example.com/group/service.git");
+        project.put("namespace", "group");
+        project.put("visibility_level", 0);
+        project.put("path_with_namespace", "group/service");
+        project.put("default_branch", "main");
+
+        List<Map<String, Object>> labelList = new ArrayList<>(labels);
+        for (int i = 0; i < labels; i++) {
+            labelList.add(Map.of("id", i, "title", "label-" + i, "color", "#428BCA", "project_id", 200,
+                    "created_at", "2024-01-01 00:00:00 UTC", "updated_at", "2024-01-01 00:00:00 UTC",
+                    "template", false, "description", "Label " + i, "type", "ProjectLabel", "group_id", 41));
+        }
+        Map<String, Object> lastCommit = Map.of("id", "da1560886d4f094c3e6c9ef40349f7d38b5d27d7",
+                "message", "Merge branch 'feature' into 'main'", "timestamp", "2024-01-01T00:00:00+00:00",
+                "url", "https://gitlab.example.com/group/service/-/commit/da1560886d4f094c3e6c9ef40349f7d38b5d27d7",
+                "author", Map.of("name", "Jane Doe", "email", "[REDACTED]"));
+
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("id", 99);
+        attributes.put("iid", 1);
+        attributes.put("target_branch", "main");
+        attributes.put("source_branch", "feature");
+        attributes.put("source_project_id", 200);
+        attributes.put("author_id", 1);
+        attributes.put("assignee_ids", List.of(1, 2));
+        attributes.put("title", "Add resource endpoints");
+        attributes.put("created_at", "2024-01-01 00:00:00 UTC");
+        attributes.put("updated_at", "2024-01-01 00:00:00 UTC");
+        attributes.put("description", "x".repeat(descriptionChars));
+        attributes.put("target_project_id", 200);
+        attributes.put("state", "merged");
+        attributes.put("merge_status", "can_be_merged");
+        attributes.put("detailed_merge_status", "mergeable");
+        attributes.put("source", project);
+        attributes.put("target", project);
+        attributes.put("last_commit", lastCommit);
+        attributes.put("work_in_progress", false);
+        attributes.put("url", "https://gitlab.example.com/group/service/-/merge_requests/1");
+        attributes.put("action", "merge");
+        attributes.put("labels", labelList);
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("object_kind", "merge_request");
+        event.put("event_type", "merge_request");
+        event.put("user", user);
+        event.put("project", project);
+        event.put("object_attributes", attributes);
+        event.put("labels", labelList);
+        event.put("changes", Map.of("state_id", Map.of("previous", 4, "current", 3),
+                "updated_at", Map.of("previous", "2024-01-01 00:00:00 UTC", "current", "2024-01-01 00:00:01 UTC")));
+        event.put("repository", Map.of("name", "service", "url", "git@gitlab.example.com:group/service.git",
+                "description", "Benchmark fixture", "homepage", "https://gitlab.example.com/group/service"));
+        try {
+            return new ObjectMapper().writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to build merge request event fixture", e);
+        }
+    }
+
+    private static void appendDependency(StringBuilder pom, String prefix, int i, String indent) {
+        pom.append(indent).append("<dependency>\n")
+           .append(indent).append("    <groupId>org.example.").append(prefix).append("</groupId>\n")
+           .append(indent).append("    <artifactId>").append(prefix).append('-').append(i).append("</artifactId>\n")
+           .append(indent).append("    <version>").append(i % 7).append('.').append(i % 13).append(".0</version>\n")
+           .append(indent).append("    <exclusions><exclusion><groupId>commons-logging</groupId>")
+           .append("<artifactId>commons-logging</artifactId></exclusion></exclusions>\n")
+           .append(indent).append("</dependency>\n");
+    }
+}
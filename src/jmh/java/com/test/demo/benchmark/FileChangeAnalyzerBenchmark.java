@@ -0,0 +1,78 @@
+package com.test.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.client.GitLabApiClient;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestSummary;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.FileChangeAnalyzer;
+import com.test.demo.webhook.gitlab.processor.GlobPathMatcher;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering a merge request's change list down to the changed API spec files, with the diffs already in memory,
+ * so only the analyzer's own cost is measured: literal spec paths, which stop the listing once all are seen, and
+ * globs, which have to look at every change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileChangeAnalyzerBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int changedFiles;
+
+    @Param({"literal", "glob"})
+    public String patterns;
+
+    private FileChangeAnalyzer analyzer;
+    private MergeRequestEvent event;
+    private ProjectRoute route;
+
+    @Setup
+    public void setUp() {
+        List<Change> changes = BenchmarkFixtures.changes(changedFiles);
+        GitLabApiClient client = new GitLabApiClient() {
+            @Override
+            public Flux<Change> getMergeRequestDiffs(Long projectId, Long mergeRequestIid) {
+                return Flux.fromIterable(changes);
+            }
+
+            @Override
+            public Flux<MergeRequestSummary> getMergedMergeRequests(Long projectId, Instant updatedAfter) {
+                return Flux.empty();
+            }
+
+            @Override
+            public Mono<byte[]> getRawFile(Long projectId, String filePath, String ref) {
+                return Mono.empty();
+            }
+        };
+        WebhookProperties properties = BenchmarkFixtures.webhookProperties();
+        analyzer = new FileChangeAnalyzer(new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory())), client);
+        route = new ProjectRoute(Set.of("main"), GlobPathMatcher.compile("literal".equals(patterns)
+                ? properties.getApiSpecFiles()
+                : List.of("APISPEC/**/swagger.yml", "services/*/api/v?/spec.yaml")));
+        event = new MergeRequestEvent("merge_request", "merge_request", new MergeRequestEvent.Attributes(
+                "merged", "merge", "main", new MergeRequestEvent.Commit("da1560886d4f"), 1L, 200L, 200L, "url"));
+    }
+
+    @Benchmark
+    public List<String> findChangedApiSpecFiles() {
+        return analyzer.findChangedApiSpecFiles(event, route).block();
+    }
+}
@@ -0,0 +1,68 @@
+package com.test.demo.benchmark;
+
+import com.test.demo.webhook.gitlab.processor.GlobPathMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spec path detection for a 50k-file merge request: the compiled trie against one glob matcher per pattern.
+ * Scores are per path; the per-pattern baseline only runs over a slice of the merge request to stay tractable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobPathMatcherBenchmark {
+
+    private static final int CHANGED_FILES = 50_000;
+    private static final int BASELINE_FILES = 200;
+
+    @Param({"100", "10000"})
+    public int patterns;
+
+    private List<String> paths;
+    private GlobPathMatcher trie;
+    private List<PathMatcher> perPattern;
+
+    @Setup
+    public void setUp() {
+        List<String> specPatterns = BenchmarkFixtures.specPatterns(patterns);
+        paths = BenchmarkFixtures.changedPaths(CHANGED_FILES, Math.max(patterns / 2, 10));
+        trie = GlobPathMatcher.compile(specPatterns);
+        perPattern = specPatterns.stream()
+                .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern))
+                .toList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHANGED_FILES)
+    public void trie(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(trie.matches(path));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BASELINE_FILES)
+    public void perPatternGlob(Blackhole blackhole) {
+        for (int i = 0; i < BASELINE_FILES; i++) {
+            Path path = Path.of(paths.get(i));
+            boolean matched = false;
+            for (PathMatcher matcher : perPattern) {
+                if (matcher.matches(path)) {
+                    matched = true;
+                    break;
+                }
+            }
+            blackhole.consume(matched);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.test.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding a webhook body to {@link MergeRequestEvent}, with a JSON mapper and with the YAML-backed application
+ * {@code ObjectMapper} that WebFlux currently decodes request bodies with. Only a few fields are bound, so the
+ * score is mostly the cost of skipping the rest of the payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeRequestEventDecodingBenchmark {
+
+    // Labels on the merge request; the description grows along, to about 1 MB at 1000
+    @Param({"0", "20", "1000"})
+    public int labels;
+
+    @Param({"json", "yaml"})
+    public String mapper;
+
+    private byte[] payload;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        payload = BenchmarkFixtures.mergeRequestEvent(labels, labels * 1000);
+        objectMapper = "json".equals(mapper)
+                ? Jackson2ObjectMapperBuilder.json().build()
+                : Jackson2ObjectMapperBuilder.json().factory(new YAMLFactory()).build();
+    }
+
+    @Benchmark
+    public MergeRequestEvent decode() throws Exception {
+        return objectMapper.readValue(payload, MergeRequestEvent.class);
+    }
+}
@@ -0,0 +1,49 @@
+package com.test.demo.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.MergeRequestValidator;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of every received event, including the routing lookup, for an event that is processed and for the
+ * common case of one that is skipped (not a merge, or a merge into another branch).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeRequestValidatorBenchmark {
+
+    @Param({"merge", "update", "otherBranch"})
+    public String event;
+
+    private MergeRequestValidator validator;
+    private MergeRequestEvent mergeRequestEvent;
+
+    @Setup
+    public void setUp() {
+        // Without Spring Boot's logging setup Logback logs everything at DEBUG; use the application's INFO level,
+        // at which skipped events are still logged
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        validator = new MergeRequestValidator(new ProjectRoutes(BenchmarkFixtures.webhookProperties(), new ObjectMapper(new YAMLFactory())));
+        String action = "update".equals(event) ? "update" : "merge";
+        String targetBranch = "otherBranch".equals(event) ? "feature/x" : "main";
+        mergeRequestEvent = new MergeRequestEvent("merge_request", "merge_request", new MergeRequestEvent.Attributes(
+                "merged", action, targetBranch, new MergeRequestEvent.Commit("da1560886d4f"), 1L, 200L, 200L, "url"));
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return validator.validate(mergeRequestEvent);
+    }
+}
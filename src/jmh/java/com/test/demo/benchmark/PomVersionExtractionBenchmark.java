@@ -0,0 +1,52 @@
+package com.test.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.webhook.gitlab.processor.VersionExtractor;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming pom.xml version extraction against the full Maven {@code Model} parse it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PomVersionExtractionBenchmark {
+
+    // Number of dependencies; 0 is a bare POM, 20 a typical service POM, 5000 a multi-megabyte BOM-style POM
+    @Param({"0", "20", "500", "5000"})
+    public int dependencies;
+
+    private byte[] pom;
+    private VersionExtractor versionExtractor;
+    private MavenXpp3Reader mavenReader;
+
+    @Setup
+    public void setUp() {
+        pom = BenchmarkFixtures.pom(dependencies);
+        versionExtractor = new VersionExtractor(new ObjectMapper(new YAMLFactory()));
+        mavenReader = new MavenXpp3Reader();
+    }
+
+    @Benchmark
+    public String streaming() throws Exception {
+        return versionExtractor.extractPomVersion(pom);
+    }
+
+    @Benchmark
+    public String mavenModel() throws Exception {
+        Model model = mavenReader.read(new ByteArrayInputStream(pom));
+        if (model.getVersion() != null) {
+            return model.getVersion();
+        }
+        return model.getParent() != null ? model.getParent().getVersion() : "unknown";
+    }
+}
@@ -0,0 +1,61 @@
+package com.test.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.webhook.gitlab.processor.VersionExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.yaml.snakeyaml.LoaderOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-streaming OpenAPI version extraction against the full {@code readTree} parse it replaced.
+ * The GC profiler reports the bytes allocated per parse ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecVersionExtractionBenchmark {
+
+    // Number of API paths; 2000 gives a resolved spec of several megabytes
+    @Param({"10", "2000"})
+    public int paths;
+
+    @Param({"yaml", "json"})
+    public String format;
+
+    // Whether 'info' follows 'paths' and 'components', so that the streaming scan has to skip them
+    @Param({"false", "true"})
+    public boolean infoLast;
+
+    private byte[] spec;
+    private VersionExtractor versionExtractor;
+    private ObjectMapper treeMapper;
+
+    @Setup
+    public void setUp() {
+        boolean json = "json".equals(format);
+        spec = BenchmarkFixtures.spec(paths, json, infoLast);
+        // Same code point limit as the application's YAML mapper, so multi-megabyte specs are accepted
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+        ObjectMapper yamlMapper = new ObjectMapper(YAMLFactory.builder().loaderOptions(loaderOptions).build());
+        versionExtractor = new VersionExtractor(yamlMapper);
+        treeMapper = json ? new ObjectMapper() : yamlMapper;
+    }
+
+    @Benchmark
+    public String streaming() throws Exception {
+        return versionExtractor.extractApiSpecVersion(spec, "swagger.yml");
+    }
+
+    @Benchmark
+    public String readTree() throws Exception {
+        JsonNode root = treeMapper.readTree(spec);
+        return root.path("info").path("version").asText();
+    }
+}
@@ -0,0 +1,81 @@
+package com.test.demo.benchmark;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.history.VersionHistoryStore;
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookups in a version history of many merge requests across projects, decoded from the mapped segments, and
+ * appending one more record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionHistoryStoreBenchmark {
+
+    private static final int PROJECTS = 100;
+
+    @Param({"10000", "1000000"})
+    public int records;
+
+    private Path dir;
+    private VersionHistoryStore store;
+    private long nextIid;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("version-history-benchmark");
+        WebhookProperties properties = new WebhookProperties();
+        properties.getHistory().setDir(dir);
+        store = new VersionHistoryStore(properties);
+        for (int i = 0; i < records; i++) {
+            store.append(record(i));
+        }
+        nextIid = records;
+    }
+
+    // Each project gets a new minor version every ten merge requests
+    private static VersionRecord record(long iid) {
+        String sha = "%040x".formatted(iid);
+        long projectId = iid % PROJECTS;
+        String version = "1." + iid / PROJECTS / 10 + ".0";
+        return new VersionRecord(projectId, iid, sha, "main", version + "-" + sha.substring(0, 8),
+            "APISPEC/resolved/swagger.yml", "2." + iid / PROJECTS / 10 + ".0", Instant.ofEpochSecond(iid));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.destroy();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<VersionRecord> findByCodeVersion() {
+        return store.findByCodeVersion(42L, "1.5.0");
+    }
+
+    @Benchmark
+    public List<VersionRecord> findByApiSpecVersion() {
+        return store.findByApiSpecVersion(42L, "2.5.0");
+    }
+
+    @Benchmark
+    public void append() {
+        store.append(record(nextIid++));
+    }
+}
@@ -2,9 +2,17 @@ package com.test.demo.config;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.time.Duration;
 
 // Remove @Configuration here
 @ConfigurationProperties(prefix = "gitlab.api")
@@ -18,4 +26,212 @@ public class GitLabApiProperties {
     @NotBlank(message = "GitLab API private token must be configured")
     private String privateToken;
 
+    // Largest response body buffered in memory, e.g. a raw multi-megabyte swagger.yml
+    @NotNull
+    private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+
+    @Valid
+    private Cache cache = new Cache();
+
+    @Valid
+    private Http http = new Http();
+
+    @Valid
+    private RateLimit rateLimit = new RateLimit();
+
+    @Valid
+    private Resilience resilience = new Resilience();
+
+    @Valid
+    private GraphQl graphql = new GraphQl();
+
+    /**
+     * Settings for the in-memory cache of file contents fetched at immutable commit SHAs.
+     */
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        // Upper bound on the total decoded size of cached files
+        @PositiveOrZero
+        private long maxWeightBytes = 64L * 1024 * 1024;
+    }
+
+    /**
+     * Connection pool and transport settings of the GitLab WebClient.
+     */
+    @Data
+    public static class Http {
+
+        // Upper bound on open connections to GitLab; further requests wait for a free connection
+        @Positive
+        private int maxConnections = 50;
+
+        // Requests allowed to wait for a connection; beyond that they fail immediately
+        @Positive
+        private int pendingAcquireMaxCount = 500;
+
+        // How long a request may wait for a connection before failing
+        @NotNull
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+
+        // Idle connections are closed after this long, before GitLab or a load balancer drops them
+        @NotNull
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        @NotNull
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        // Interval of the background sweep evicting idle and expired connections
+        @NotNull
+        private Duration evictInBackground = Duration.ofSeconds(30);
+
+        @NotNull
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        // Maximum time between request sent and response received, per request
+        @NotNull
+        private Duration responseTimeout = Duration.ofSeconds(30);
+
+        // Negotiate HTTP/2 with an https base URL, falling back to HTTP/1.1
+        private boolean http2 = false;
+
+        // Ask for gzip-compressed responses
+        private boolean compression = true;
+
+        // Publish connection pool metrics (reactor.netty.connection.provider.*)
+        private boolean metrics = true;
+    }
+
+    /**
+     * Client-side pacing of GitLab API calls; see {@code GitLabRateLimitFilter}.
+     */
+    @Data
+    public static class RateLimit {
+
+        private boolean enabled = true;
+
+        // Pace used until GitLab has reported its quota in RateLimit-* headers
+        @Positive
+        private double initialRequestsPerSecond = 10;
+
+        // Calls that may be sent back to back after an idle period
+        @Positive
+        private int burst = 20;
+
+        // Fraction of GitLab's quota deliberately left unused
+        @DecimalMin("0.0")
+        @DecimalMax("0.5")
+        private double safetyMargin = 0.05;
+
+        // GitLab's throttle period, over which the quota is spread after a reset
+        @NotNull
+        private Duration window = Duration.ofMinutes(1);
+
+        @Positive
+        private int initialConcurrency = 8;
+
+        @Positive
+        private int minConcurrency = 1;
+
+        @Positive
+        private int maxConcurrency = 64;
+
+        // Factor applied to the concurrency limit on 429, 5xx or slow responses
+        @DecimalMin("0.1")
+        @DecimalMax("0.95")
+        private double backoffRatio = 0.5;
+
+        // A response slower than this multiple of the recent average counts as congestion
+        @DecimalMin("1.0")
+        private double latencyTolerance = 2.0;
+
+        // Minimum time between two backoffs, so one burst of failures counts once
+        @NotNull
+        private Duration backoffCooldown = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Retries, hedged requests and per-endpoint circuit breakers for idempotent GitLab API calls;
+     * see {@code GitLabResilienceFilter}.
+     */
+    @Data
+    public static class Resilience {
+
+        private boolean enabled = true;
+
+        // Retries after the first attempt, on I/O errors, 429 and 5xx
+        @PositiveOrZero
+        private int maxRetries = 3;
+
+        @NotNull
+        private Duration initialBackoff = Duration.ofMillis(200);
+
+        @NotNull
+        private Duration maxBackoff = Duration.ofSeconds(5);
+
+        // Fraction of each backoff that is randomised, so retrying callers spread out
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double jitter = 0.5;
+
+        // Send a second request when the first has not answered within the hedge percentile of recent latencies
+        private boolean hedgingEnabled = true;
+
+        @DecimalMin("0.5")
+        @DecimalMax("0.999")
+        private double hedgePercentile = 0.95;
+
+        // Lower bound on the hedge delay, so fast endpoints are not hedged on noise
+        @NotNull
+        private Duration minHedgeDelay = Duration.ofMillis(100);
+
+        // Latencies per endpoint kept for the percentile, and needed before hedging starts
+        @Positive
+        private int latencySamples = 128;
+
+        @Positive
+        private int minLatencySamples = 20;
+
+        // Circuit opens when this fraction of the last window of calls failed with an I/O error or 5xx
+        @DecimalMin("0.1")
+        @DecimalMax("1.0")
+        private double failureRateThreshold = 0.5;
+
+        @Positive
+        private int slidingWindowSize = 20;
+
+        @Positive
+        private int minimumCalls = 10;
+
+        // How long an open circuit fails fast before letting trial calls through
+        @NotNull
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        // Trial calls that must all succeed to close the circuit again
+        @Positive
+        private int halfOpenCalls = 3;
+    }
+
+    /**
+     * Fetching the pom.xml and spec files of a commit in one GraphQL query instead of one REST call per file;
+     * see {@code GitLabGraphQlClient}.
+     */
+    @Data
+    public static class GraphQl {
+
+        private boolean enabled = false;
+
+        // GraphQL endpoint; derived from the base URL when unset, e.g. https://gitlab.example.com/api/graphql
+        private String url;
+
+        // Paths per query, kept below GitLab's query complexity limit
+        @Positive
+        private int maxPathsPerQuery = 50;
+
+        // After GitLab rejects the endpoint or the query, files are fetched over REST for this long
+        @NotNull
+        private Duration unavailableBackoff = Duration.ofMinutes(5);
+    }
 }
@@ -0,0 +1,86 @@
+package com.test.demo.config;
+
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+/**
+ * Kafka wiring for {@code gitlab.webhook.ingestion.mode=kafka}: the webhook publishes raw events keyed by
+ * target project id, and a batch listener processes them and commits offsets once processing has finished.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "gitlab.webhook.ingestion.mode", havingValue = "kafka")
+public class KafkaIngestionConfig {
+
+    private final KafkaProperties kafkaProperties;
+    private final WebhookProperties webhookProperties;
+
+    @Bean
+    public NewTopic mergeRequestEventTopic() {
+        WebhookProperties.Kafka kafka = webhookProperties.getIngestion().getKafka();
+        return TopicBuilder.name(kafka.getTopic())
+                .partitions(kafka.getPartitions())
+                .replicas(kafka.getReplicationFactor())
+                .build();
+    }
+
+    @Bean
+    public KafkaTemplate<String, MergeRequestEvent> mergeRequestEventKafkaTemplate() {
+        Map<String, Object> config = kafkaProperties.buildProducerProperties(null);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        // Acknowledge the webhook only once the event is durably stored
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+        JsonSerializer<MergeRequestEvent> valueSerializer = new JsonSerializer<>();
+        valueSerializer.setAddTypeInfo(false); // Consumers bind to MergeRequestEvent directly
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(config, new StringSerializer(), valueSerializer));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, MergeRequestEvent> mergeRequestEventListenerFactory() {
+        WebhookProperties.Kafka kafka = webhookProperties.getIngestion().getKafka();
+
+        Map<String, Object> config = kafkaProperties.buildConsumerProperties(null);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, kafka.getConsumerGroup());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, kafka.getMaxPollRecords());
+        config.putIfAbsent(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        // Undecodable records surface as null values instead of failing the whole batch forever
+        ErrorHandlingDeserializer<MergeRequestEvent> valueDeserializer = new ErrorHandlingDeserializer<>(
+                new JsonDeserializer<>(MergeRequestEvent.class, false));
+
+        ConcurrentKafkaListenerContainerFactory<String, MergeRequestEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), valueDeserializer));
+        factory.setBatchListener(true);
+        factory.setConcurrency(kafka.getConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        log.info("Consuming webhook events from Kafka topic '{}' with group '{}' and concurrency {}",
+                kafka.getTopic(), kafka.getConsumerGroup(), kafka.getConcurrency());
+        return factory;
+    }
+}
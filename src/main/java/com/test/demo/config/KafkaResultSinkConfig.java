@@ -0,0 +1,80 @@
+package com.test.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+/**
+ * Kafka wiring for {@code gitlab.webhook.results.kafka.enabled}: a producer of the extracted versions tuned for
+ * throughput rather than latency, batching records for {@code linger} and compressing each batch. It is
+ * idempotent, so retries after a lost acknowledgement do not duplicate records within a partition.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "gitlab.webhook.results.kafka.enabled", havingValue = "true")
+public class KafkaResultSinkConfig {
+
+    private final KafkaProperties kafkaProperties;
+    private final WebhookProperties webhookProperties;
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+    private final MeterRegistry meterRegistry;
+
+    @Bean
+    public NewTopic versionResultTopic() {
+        WebhookProperties.ResultsKafka kafka = webhookProperties.getResults().getKafka();
+        return TopicBuilder.name(kafka.getTopic())
+                .partitions(kafka.getPartitions())
+                .replicas(kafka.getReplicationFactor())
+                .build();
+    }
+
+    @Bean
+    public KafkaTemplate<String, VersionRecord> versionResultKafkaTemplate() {
+        WebhookProperties.ResultsKafka kafka = webhookProperties.getResults().getKafka();
+
+        Map<String, Object> config = kafkaProperties.buildProducerProperties(null);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, (int) kafka.getLinger().toMillis());
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, (int) kafka.getBatchSize().toBytes());
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafka.getCompression());
+        config.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, (int) kafka.getDeliveryTimeout().toMillis());
+        // Idempotence needs all in-sync replicas to acknowledge and at most 5 batches in flight per connection
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+
+        // ISO-8601 timestamps whatever spring.jackson.* says, as they are part of the topic's contract
+        ObjectMapper jsonMapper = objectMapperBuilder.build();
+        jsonMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        JsonSerializer<VersionRecord> valueSerializer = new JsonSerializer<>(jsonMapper);
+        valueSerializer.setAddTypeInfo(false); // Read by release tooling, not by another Spring consumer
+        DefaultKafkaProducerFactory<String, VersionRecord> producerFactory =
+                new DefaultKafkaProducerFactory<>(config, new StringSerializer(), valueSerializer);
+        // Closing the producer sends what it still holds, for at most the shutdown timeout
+        producerFactory.setPhysicalCloseTimeout((int) kafka.getShutdownTimeout().toSeconds());
+        // kafka.producer.* meters, e.g. batch-size-avg, compression-rate-avg and record-error-rate
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+
+        log.info("Publishing extracted versions to Kafka topic '{}' with linger {}, batch size {} and {} compression",
+                kafka.getTopic(), kafka.getLinger(), kafka.getBatchSize(), kafka.getCompression());
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
@@ -1,15 +1,27 @@
 package com.test.demo.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.demo.webhook.gitlab.client.GitLabRateLimitFilter;
+import com.test.demo.webhook.gitlab.client.GitLabResilienceFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 @Slf4j
@@ -19,8 +31,28 @@ public class WebClientConfig {
 
     private final GitLabApiProperties properties;
 
+    /**
+     * Dedicated connection pool for GitLab, so its limits and metrics are not shared with other clients.
+     * With metrics enabled, Reactor Netty publishes the pool's active, idle and pending connections and the
+     * connection acquire time as {@code reactor.netty.connection.provider.*} meters tagged {@code name=gitlab}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider gitlabConnectionProvider() {
+        GitLabApiProperties.Http http = properties.getHttp();
+        return ConnectionProvider.builder("gitlab")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictInBackground())
+                .metrics(http.isMetrics())
+                .build();
+    }
+
     @Bean(name = "gitlabWebClient")
-    public WebClient gitlabWebClient(WebClient.Builder webClientBuilder) {
+    public WebClient gitlabWebClient(WebClient.Builder webClientBuilder, Jackson2ObjectMapperBuilder objectMapperBuilder,
+                                     ConnectionProvider gitlabConnectionProvider, MeterRegistry meterRegistry) {
         if (!StringUtils.hasText(properties.getBaseUrl()) ||
             !StringUtils.hasText(properties.getPrivateToken())) {
             log.error("GitLab API URL or Token is not configured.");
@@ -29,10 +61,42 @@ public class WebClientConfig {
 
         log.info("Configuring WebClient for GitLab API: {}", properties.getBaseUrl());
 
+        // GitLab responses are JSON; the application-wide ObjectMapper is the YAML one, whose parser
+        // is far slower and cannot skip unbound fields such as the diff bodies without reading them
+        ObjectMapper jsonMapper = objectMapperBuilder.build();
+        Jackson2JsonDecoder jsonDecoder = new Jackson2JsonDecoder(jsonMapper);
+        jsonDecoder.setMaxInMemorySize((int) properties.getMaxInMemorySize().toBytes());
+
+        GitLabApiProperties.Http http = properties.getHttp();
+        HttpClient httpClient = HttpClient.create(gitlabConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .responseTimeout(http.getResponseTimeout())
+                .compress(http.isCompression())
+                .protocol(http.isHttp2()
+                        ? new HttpProtocol[] {HttpProtocol.H2, HttpProtocol.HTTP11}
+                        : new HttpProtocol[] {HttpProtocol.HTTP11});
+        log.info("GitLab connection pool: maxConnections={}, pendingAcquireMaxCount={}, pendingAcquireTimeout={}, http2={}",
+                http.getMaxConnections(), http.getPendingAcquireMaxCount(), http.getPendingAcquireTimeout(), http.isHttp2());
+
+        if (properties.getResilience().isEnabled()) {
+            // Registered first so it wraps the rate limit filter: retries and hedges are paced as well
+            webClientBuilder.filter(new GitLabResilienceFilter(properties.getResilience(), meterRegistry));
+        }
+        if (properties.getRateLimit().isEnabled()) {
+            // Paces every call made through this client, whichever GitLabApiClient method issues it
+            webClientBuilder.filter(new GitLabRateLimitFilter(properties.getRateLimit(), meterRegistry));
+        }
+
         return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl(properties.getBaseUrl())
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                 .defaultHeader("PRIVATE-TOKEN", properties.getPrivateToken())
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().maxInMemorySize((int) properties.getMaxInMemorySize().toBytes());
+                    codecs.defaultCodecs().jackson2JsonDecoder(jsonDecoder);
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(jsonMapper)); // GraphQL request bodies
+                })
                 // Removed debug logging filters
                 .build();
     }
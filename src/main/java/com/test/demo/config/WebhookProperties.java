@@ -2,8 +2,18 @@ package com.test.demo.config;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -17,9 +27,35 @@ public class WebhookProperties {
     @NotEmpty(message = "Target branches must be configured")
     private String targetBranches; // Comma-separated string
 
+    // Literal paths or glob patterns ('*', '?' and '**'), e.g. services/*/APISPEC/**/swagger.yml
     @NotEmpty(message = "API spec files must be configured")
     private List<String> apiSpecFiles;
 
+    // Maximum number of changed spec files fetched and parsed concurrently for one merge request
+    @Positive
+    private int specFetchConcurrency = 4;
+
+    @Valid
+    private Ingestion ingestion = new Ingestion();
+
+    @Valid
+    private Parsing parsing = new Parsing();
+
+    @Valid
+    private Routing routing = new Routing();
+
+    @Valid
+    private Dedup dedup = new Dedup();
+
+    @Valid
+    private Backfill backfill = new Backfill();
+
+    @Valid
+    private History history = new History();
+
+    @Valid
+    private Results results = new Results();
+
     /**
      * Returns the target branches as a Set of strings.
      * @return Set of target branch names.
@@ -38,7 +74,7 @@ public class WebhookProperties {
      /**
      * Returns the API spec files as a Set of strings.
      * Ensures uniqueness and handles potential null list.
-     * @return Set of API spec file paths.
+     * @return Set of API spec file paths or patterns.
      */
     public Set<String> getApiSpecFilesSet() {
         if (apiSpecFiles == null) {
@@ -46,4 +82,241 @@ public class WebhookProperties {
         }
         return Set.copyOf(apiSpecFiles); // Creates an unmodifiable set
     }
+
+    /**
+     * Per-project overrides of the target branches and API spec files; projects not listed use the
+     * global settings above.
+     */
+    @Data
+    public static class Routing {
+
+        // Optional YAML file with the per-project routes, see ProjectRoutes for the format
+        private Path file;
+
+        // Reload the file when it changes, without a restart
+        private boolean watch = true;
+    }
+
+    /**
+     * Suppression of redelivered events: an event whose (target project, iid, last commit) was processed within
+     * the window is acknowledged and dropped after validation.
+     */
+    @Data
+    public static class Dedup {
+
+        private boolean enabled = true;
+
+        // How long a processed event is remembered
+        @NotNull
+        private Duration window = Duration.ofHours(1);
+
+        // Upper bound on remembered events; beyond it Caffeine evicts by its own frequency-based policy (W-TinyLFU),
+        // not by age, while every event is forgotten once its window has passed
+        @Positive
+        private long maxKeys = 100_000;
+
+        // Optional append-only file the remembered events are spilled to, so the window survives restarts;
+        // rewritten with just the remembered events every max-keys appended lines
+        private Path spillFile;
+    }
+
+    /**
+     * The scheduler the pom.xml and spec files are parsed on, off the Netty event loops that receive GitLab's
+     * responses.
+     */
+    @Data
+    public static class Parsing {
+
+        // Parser threads; 0 means one per available processor
+        @PositiveOrZero
+        private int threads = 0;
+
+        // Files waiting for a parser thread; beyond this the event fails, so GitLab redelivers it
+        @Positive
+        private int queueCapacity = 1000;
+    }
+
+    /**
+     * Historical backfill of already merged merge requests, see {@code POST /backfill/projects/{projectId}}.
+     */
+    @Data
+    public static class Backfill {
+
+        // Merge requests analysed and processed at the same time
+        @Positive
+        private int parallelism = 4;
+
+        // Directory of the per project and date range checkpoints an interrupted backfill resumes from
+        @NotNull
+        private Path checkpointDir = Path.of("backfill-checkpoints");
+
+        // Completed merge requests between two checkpoints; one is also written when the run ends or is cancelled
+        @Positive
+        private int checkpointEvery = 50;
+
+        // How often throughput and ETA are reported
+        @NotNull
+        private Duration progressInterval = Duration.ofSeconds(10);
+    }
+
+    /**
+     * The embedded store of extracted versions, queried via {@code GET /history/projects/{projectId}/versions}.
+     */
+    @Data
+    public static class History {
+
+        private boolean enabled = true;
+
+        // Directory of the segment files, created with the first record
+        @NotNull
+        private Path dir = Path.of("version-history");
+
+        // Size of one segment file; the active segment is mapped at this size and filled up
+        @NotNull
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+        // Older segments in which at least this fraction of the bytes belongs to superseded records are rewritten
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double compactionThreshold = 0.5;
+
+        // Force every appended record to disk before returning; otherwise the OS writes it back when it sees fit
+        private boolean sync = false;
+    }
+
+    /**
+     * Where extracted versions are published besides the version history.
+     */
+    @Data
+    public static class Results {
+
+        @Valid
+        private ResultsKafka kafka = new ResultsKafka();
+    }
+
+    /**
+     * What publishing a result does while the buffer in front of the producer is full.
+     */
+    public enum OverflowPolicy {
+        DROP,  // Drop the result straight away and count it
+        BLOCK  // Wait up to block-timeout for room, then drop it
+    }
+
+    /**
+     * Kafka topic of the extracted versions, one JSON {@code VersionRecord} per spec file keyed by target project
+     * id; the broker connection itself comes from the standard {@code spring.kafka.*} properties.
+     */
+    @Data
+    public static class ResultsKafka {
+
+        private boolean enabled = false;
+
+        @NotEmpty
+        private String topic = "gitlab-version-results";
+
+        @Positive
+        private int partitions = 6;
+
+        @Positive
+        private short replicationFactor = 1;
+
+        // How long the producer waits for more records to fill a batch before sending it
+        @NotNull
+        private Duration linger = Duration.ofMillis(50);
+
+        // Upper bound on one batch of records per partition, before compression
+        @NotNull
+        private DataSize batchSize = DataSize.ofKilobytes(256);
+
+        @NotEmpty
+        @Pattern(regexp = "none|gzip|snappy|lz4|zstd")
+        private String compression = "zstd";
+
+        // Results waiting for the producer; beyond this the overflow policy applies
+        @Positive
+        private int bufferCapacity = 10_000;
+
+        @NotNull
+        private OverflowPolicy overflow = OverflowPolicy.DROP;
+
+        // Longest a publish waits for room in the buffer with the BLOCK policy
+        @NotNull
+        private Duration blockTimeout = Duration.ofMillis(50);
+
+        // Upper bound on the producer retrying a batch before the results in it count as failed
+        @NotNull
+        private Duration deliveryTimeout = Duration.ofMinutes(2);
+
+        // How long shutdown waits for buffered results to be sent
+        @NotNull
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * How received webhook events are handed over to the processor.
+     */
+    public enum IngestionMode {
+        INLINE, // Process within the request; the response waits for processing to finish
+        QUEUE,  // Enqueue in a bounded in-process queue and acknowledge immediately
+        KAFKA   // Publish to a Kafka topic and acknowledge once the broker has the event
+    }
+
+    @Data
+    public static class Ingestion {
+
+        @NotNull
+        private IngestionMode mode = IngestionMode.INLINE;
+
+        @Positive
+        private int queueCapacity = 1000;
+
+        @Positive
+        private int workers = 4;
+
+        // Upper bound on processing a single event on a worker thread
+        @NotNull
+        private Duration processingTimeout = Duration.ofMinutes(2);
+
+        // How long shutdown waits for queued events to drain
+        @NotNull
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+        // Events of one bulk replay request dispatched at the same time
+        @Positive
+        private int bulkConcurrency = 8;
+
+        @Valid
+        private Kafka kafka = new Kafka();
+    }
+
+    /**
+     * Topic and consumer settings for the Kafka ingestion mode; the broker connection
+     * itself comes from the standard {@code spring.kafka.*} properties.
+     */
+    @Data
+    public static class Kafka {
+
+        @NotEmpty
+        private String topic = "gitlab-merge-request-events";
+
+        @Positive
+        private int partitions = 6;
+
+        @Positive
+        private short replicationFactor = 1;
+
+        @NotEmpty
+        private String consumerGroup = "gitlab-webhook-processor";
+
+        // Listener containers per instance, each consuming a share of the partitions
+        @Positive
+        private int concurrency = 3;
+
+        @Positive
+        private int maxPollRecords = 100;
+
+        // Events of one batch processed concurrently before the offsets are committed
+        @Positive
+        private int batchConcurrency = 8;
+    }
 }
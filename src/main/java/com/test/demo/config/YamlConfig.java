@@ -2,34 +2,37 @@ package com.test.demo.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.springframework.boot.context.properties.EnableConfigurationProperties; // Import
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
-import java.util.Set; // Import
+import org.yaml.snakeyaml.LoaderOptions;
 
 @Configuration
 @EnableConfigurationProperties(WebhookProperties.class) // Enable the new properties class
 public class YamlConfig {
     
     @Bean
-    public ObjectMapper yamlObjectMapper(Jackson2ObjectMapperBuilder builder) {
-        return builder.factory(new YAMLFactory()).build();
+    public ObjectMapper yamlObjectMapper(Jackson2ObjectMapperBuilder builder, GitLabApiProperties gitLabApiProperties) {
+        // SnakeYAML rejects documents over 3M code points by default; accept any spec the client will buffer
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit((int) Math.min(gitLabApiProperties.getMaxInMemorySize().toBytes(), Integer.MAX_VALUE));
+        return builder.factory(YAMLFactory.builder().loaderOptions(loaderOptions).build()).build();
     }
 
+    /**
+     * Keeps HTTP bodies JSON: without this, WebFlux and WebClient would encode and decode them with the
+     * YAML mapper above, the only ObjectMapper bean. Registered after Boot's own Jackson customizer.
+     */
     @Bean
-    public MavenXpp3Reader mavenXpp3Reader() {
-        return new MavenXpp3Reader();
-    }
-
-    @Bean
-    public Set<String> targetBranches(WebhookProperties webhookProperties) {
-        return webhookProperties.getTargetBranchesSet();
-    }
-
-    @Bean
-    public Set<String> apiSpecFiles(WebhookProperties webhookProperties) {
-        return webhookProperties.getApiSpecFilesSet();
+    public CodecCustomizer jsonCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper jsonMapper = builder.build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(jsonMapper));
+            configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(jsonMapper));
+        };
     }
 }
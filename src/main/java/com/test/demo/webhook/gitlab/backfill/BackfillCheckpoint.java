@@ -0,0 +1,27 @@
+package com.test.demo.webhook.gitlab.backfill;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Where a backfill of one project and merge date range got to.
+ * <p>
+ * Merge requests are listed by last update, oldest first. Every merge request updated before the
+ * {@code watermark} is done; of those updated at or after it, the ones in {@code completedIids} are done too.
+ * A resumed run lists from the watermark again and skips the completed ones.
+ *
+ * @param watermark     Last update of the longest completed prefix of the listing, or null if none is complete.
+ * @param completedIids Merge requests done although updated at or after the watermark.
+ * @param finished      Whether the whole listing was processed.
+ */
+public record BackfillCheckpoint(
+    Long projectId,
+    Instant from,
+    Instant to,
+    Instant watermark,
+    Set<Long> completedIids,
+    long processed,
+    long skipped,
+    long failed,
+    boolean finished
+) {}
@@ -0,0 +1,61 @@
+package com.test.demo.webhook.gitlab.backfill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.demo.config.WebhookProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+
+/**
+ * Stores one JSON {@link BackfillCheckpoint} file per project and date range in
+ * {@code gitlab.webhook.backfill.checkpoint-dir}.
+ * <p>
+ * A checkpoint is written to a temporary file first and then moved over the previous one, so a crash
+ * mid-write leaves the previous checkpoint intact.
+ */
+@Slf4j
+@Component
+public class BackfillCheckpoints {
+
+    private final ObjectMapper jsonMapper;
+    private final Path directory;
+
+    public BackfillCheckpoints(Jackson2ObjectMapperBuilder objectMapperBuilder, WebhookProperties webhookProperties) {
+        this.jsonMapper = objectMapperBuilder.build();
+        this.directory = webhookProperties.getBackfill().getCheckpointDir();
+    }
+
+    /**
+     * Returns the checkpoint of the backfill, or null if it never ran or its checkpoint cannot be read.
+     */
+    public BackfillCheckpoint load(Long projectId, Instant from, Instant to) {
+        Path file = fileFor(projectId, from, to);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return jsonMapper.readValue(file.toFile(), BackfillCheckpoint.class);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable backfill checkpoint {}, starting over: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    public void save(BackfillCheckpoint checkpoint) throws IOException {
+        Path file = fileFor(checkpoint.projectId(), checkpoint.from(), checkpoint.to());
+        Files.createDirectories(directory);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        jsonMapper.writeValue(temp.toFile(), checkpoint);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Path fileFor(Long projectId, Instant from, Instant to) {
+        return directory.resolve("project-" + projectId + "-" + from.getEpochSecond() + "-" + to.getEpochSecond() + ".json");
+    }
+}
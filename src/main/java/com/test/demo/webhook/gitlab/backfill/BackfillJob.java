@@ -0,0 +1,201 @@
+package com.test.demo.webhook.gitlab.backfill;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.client.GitLabApiClient;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestSummary;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.FileChangeAnalyzer;
+import com.test.demo.webhook.gitlab.processor.ProcessingOutcome;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import com.test.demo.webhook.gitlab.service.MergeRequestService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processes the merge requests of a project that were merged before the service saw them.
+ * <p>
+ * Pages through GitLab's listing of merged merge requests and runs each one merged within the date range into a
+ * target branch of the project through {@link FileChangeAnalyzer} and {@link MergeRequestService}, as if its merge
+ * event had just arrived, with up to {@code gitlab.webhook.backfill.parallelism} at a time. Listing pages are only
+ * fetched as processing catches up. Redelivery deduplication does not apply; the checkpoint keeps a resumed run
+ * from processing a merge request twice.
+ * <p>
+ * A checkpoint is written every {@code checkpoint-every} completed merge requests and whenever the run ends,
+ * including when it is cancelled. Running the same project and range again resumes from it. One backfill per
+ * project runs at a time.
+ */
+@Slf4j
+@Component
+public class BackfillJob {
+
+    private final GitLabApiClient gitLabApiClient;
+    private final FileChangeAnalyzer changeAnalyzer;
+    private final MergeRequestService mergeRequestService;
+    private final ProjectRoutes projectRoutes;
+    private final BackfillCheckpoints checkpoints;
+    private final WebhookProperties.Backfill properties;
+    private final Clock clock;
+    private final Set<Long> runningProjects = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public BackfillJob(GitLabApiClient gitLabApiClient, FileChangeAnalyzer changeAnalyzer,
+                       MergeRequestService mergeRequestService, ProjectRoutes projectRoutes,
+                       BackfillCheckpoints checkpoints, WebhookProperties webhookProperties) {
+        this(gitLabApiClient, changeAnalyzer, mergeRequestService, projectRoutes, checkpoints, webhookProperties,
+            Clock.systemUTC());
+    }
+
+    BackfillJob(GitLabApiClient gitLabApiClient, FileChangeAnalyzer changeAnalyzer,
+                MergeRequestService mergeRequestService, ProjectRoutes projectRoutes,
+                BackfillCheckpoints checkpoints, WebhookProperties webhookProperties, Clock clock) {
+        this.gitLabApiClient = gitLabApiClient;
+        this.changeAnalyzer = changeAnalyzer;
+        this.mergeRequestService = mergeRequestService;
+        this.projectRoutes = projectRoutes;
+        this.checkpoints = checkpoints;
+        this.properties = webhookProperties.getBackfill();
+        this.clock = clock;
+    }
+
+    /**
+     * Backfills the merge requests of the project merged at or after {@code from} and before {@code to}.
+     * Nothing happens until subscribed, and cancelling the subscription stops the run at a checkpoint.
+     *
+     * @return Progress every {@code progress-interval}, ending with a finished report; fails with
+     *         {@link BackfillAlreadyRunningException} if the project is already being backfilled, or with the
+     *         error of a listing page that could not be fetched.
+     */
+    public Flux<BackfillProgress> run(Long projectId, Instant from, Instant to) {
+        return Flux.defer(() -> {
+            if (!runningProjects.add(projectId)) {
+                return Flux.error(new BackfillAlreadyRunningException(projectId));
+            }
+            // Released only by the run that claimed the project, never by a rejected one
+            return Flux.defer(() -> start(projectId, from, to))
+                .doFinally(signal -> runningProjects.remove(projectId));
+        });
+    }
+
+    private Flux<BackfillProgress> start(Long projectId, Instant from, Instant to) {
+        BackfillCheckpoint checkpoint = checkpoints.load(projectId, from, to);
+        BackfillRun run = new BackfillRun(projectId, from, to, checkpoint, properties.getCheckpointEvery(), clock);
+        if (run.isFinished()) {
+            log.info("Backfill of project {} from {} to {} already finished", projectId, from, to);
+            return Flux.just(run.progress());
+        }
+        if (checkpoint != null) {
+            log.info("Resuming backfill of project {} from {} to {} at {}", projectId, from, to, run.listFrom());
+        } else {
+            log.info("Starting backfill of project {} from {} to {}", projectId, from, to);
+        }
+        return backfill(run, projectId);
+    }
+
+    private Flux<BackfillProgress> backfill(BackfillRun run, Long projectId) {
+        // One routing snapshot for the whole run
+        ProjectRoute route = projectRoutes.routeFor(projectId);
+        Mono<BackfillProgress> completion = gitLabApiClient.getMergedMergeRequests(projectId, run.listFrom())
+            .flatMap(mergeRequest -> {
+                Long position = run.listed(mergeRequest);
+                if (position == null) {
+                    return Mono.empty(); // Completed by an earlier run
+                }
+                if (!run.mergedInRange(mergeRequest)) {
+                    // Listed for a later update only; not part of the backfill and not counted
+                    run.completed(position, null);
+                    return Mono.empty();
+                }
+                return outcomeOf(mergeRequest, route)
+                    .doOnNext(outcome -> {
+                        if (run.completed(position, outcome)) {
+                            saveCheckpoint(run);
+                        }
+                    });
+            }, properties.getParallelism())
+            .then(Mono.fromSupplier(() -> {
+                run.finish();
+                saveCheckpoint(run);
+                return run.progress();
+            }))
+            .doFinally(signal -> {
+                if (!run.isFinished()) {
+                    saveCheckpoint(run); // Cancelled or failed, resume from here
+                }
+            })
+            .doOnNext(progress -> log.info("Backfill of project {} finished: {}", projectId, progress));
+
+        Flux<BackfillProgress> reports = Flux.interval(properties.getProgressInterval())
+            .map(tick -> run.progress())
+            .doOnNext(progress -> log.info("Backfill of project {}: {} processed, {} skipped, {} failed, {}/s, "
+                    + "{}% covered, ETA {}", projectId, progress.processed(), progress.skipped(), progress.failed(),
+                progress.mergeRequestsPerSecond(), progress.percentCovered(),
+                progress.etaSeconds() != null ? Duration.ofSeconds(progress.etaSeconds()) : "unknown"));
+
+        return Flux.merge(reports, completion)
+            .takeUntil(BackfillProgress::finished);
+    }
+
+    private Mono<ProcessingOutcome> outcomeOf(MergeRequestSummary mergeRequest, ProjectRoute route) {
+        if (!route.targetBranches().contains(mergeRequest.targetBranch()) || mergeRequest.sha() == null) {
+            return Mono.just(ProcessingOutcome.SKIPPED);
+        }
+        MergeRequestEvent event = toMergeEvent(mergeRequest);
+        return changeAnalyzer.findChangedApiSpecFiles(event, route)
+            .filter(changes -> !changes.isEmpty())
+            .flatMap(changes -> mergeRequestService.processMergeRequest(event, changes))
+            .defaultIfEmpty(ProcessingOutcome.SKIPPED)
+            .onErrorResume(e -> {
+                // Counted as failed and not retried on resume; the backfill goes on with the others
+                log.error("Backfill failed for MR !{} in project {}: {}", mergeRequest.iid(),
+                    mergeRequest.projectId(), e.getMessage(), e);
+                return Mono.just(ProcessingOutcome.ERROR);
+            });
+    }
+
+    // The merge event GitLab would have sent; the merge request's head is the last commit
+    private static MergeRequestEvent toMergeEvent(MergeRequestSummary mergeRequest) {
+        return new MergeRequestEvent("merge_request", "merge_request", new MergeRequestEvent.Attributes(
+            "merged",
+            "merge",
+            mergeRequest.targetBranch(),
+            new MergeRequestEvent.Commit(mergeRequest.sha()),
+            mergeRequest.iid(),
+            mergeRequest.sourceProjectId(),
+            mergeRequest.projectId(),
+            mergeRequest.webUrl()));
+    }
+
+    private void saveCheckpoint(BackfillRun run) {
+        // Checkpoints are written from whichever thread completes a merge request; holding the run's lock
+        // keeps an older checkpoint from overwriting a newer one
+        synchronized (run) {
+            BackfillCheckpoint checkpoint = run.checkpoint();
+            try {
+                checkpoints.save(checkpoint);
+            } catch (IOException e) {
+                log.error("Could not write backfill checkpoint for project {}: {}", checkpoint.projectId(),
+                    e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Signals that a backfill of the project is already running.
+     */
+    public static class BackfillAlreadyRunningException extends IllegalStateException {
+        public BackfillAlreadyRunningException(Long projectId) {
+            super("A backfill of project " + projectId + " is already running");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.test.demo.webhook.gitlab.backfill;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * One progress report of a running backfill, streamed as an NDJSON line.
+ * <p>
+ * Counts include merge requests completed by earlier, interrupted runs of the same backfill. The rate is that of
+ * the current run. Coverage is how far the listing got through the merge requests updated between {@code from}
+ * and the start of the run, and the ETA extrapolates the current run's pace over the rest.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BackfillProgress(
+    Long projectId,
+    long listed,
+    long processed,
+    long skipped,
+    long failed,
+    double mergeRequestsPerSecond,
+    Instant watermark,
+    double percentCovered,
+    Long etaSeconds,
+    boolean finished
+) {}
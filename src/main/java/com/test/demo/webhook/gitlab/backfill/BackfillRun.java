@@ -0,0 +1,195 @@
+package com.test.demo.webhook.gitlab.backfill;
+
+import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestSummary;
+import com.test.demo.webhook.gitlab.processor.ProcessingOutcome;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Bookkeeping of one backfill run: which listed merge requests are done, the resulting checkpoint and
+ * the progress figures. Merge requests complete out of listing order, so the watermark only advances
+ * over the completed prefix of the listing.
+ * <p>
+ * Thread-safe; merge requests are listed and completed on different threads.
+ */
+final class BackfillRun {
+
+    private static final class Listed {
+        private final Long iid;
+        private final Instant updatedAt;
+        private boolean done;
+
+        private Listed(Long iid, Instant updatedAt) {
+            this.iid = iid;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private final Long projectId;
+    private final Instant from;
+    private final Instant to;
+    private final int checkpointEvery;
+    private final Clock clock;
+    private final Instant startedAt;
+    private final Instant listFrom;
+
+    // Listed but not part of the completed prefix yet, by position in the listing
+    private final TreeMap<Long, Listed> pending = new TreeMap<>();
+    // Done in an earlier run and not listed again yet
+    private final Set<Long> completedBefore;
+    // Done with an update time equal to the watermark, which a resumed listing returns again
+    private final Set<Long> completedAtWatermark = new HashSet<>();
+    private Instant watermark;
+    private boolean finished;
+
+    private long nextPosition;
+    private long listed;
+    private long processed;
+    private long skipped;
+    private long failed;
+    private long completedThisRun;
+    private long sinceCheckpoint;
+
+    BackfillRun(Long projectId, Instant from, Instant to, BackfillCheckpoint checkpoint, int checkpointEvery, Clock clock) {
+        this.projectId = projectId;
+        this.from = from;
+        this.to = to;
+        this.checkpointEvery = checkpointEvery;
+        this.clock = clock;
+        this.startedAt = clock.instant();
+        if (checkpoint != null) {
+            this.watermark = checkpoint.watermark();
+            this.completedBefore = checkpoint.completedIids() != null ? new HashSet<>(checkpoint.completedIids()) : new HashSet<>();
+            this.processed = checkpoint.processed();
+            this.skipped = checkpoint.skipped();
+            this.failed = checkpoint.failed();
+            this.finished = checkpoint.finished();
+        } else {
+            this.completedBefore = new HashSet<>();
+        }
+        this.listFrom = watermark != null && watermark.isAfter(from) ? watermark : from;
+    }
+
+    /**
+     * The update time the listing starts from.
+     */
+    Instant listFrom() {
+        return listFrom;
+    }
+
+    /**
+     * Whether the merge request was merged within the date range; the listing is by update time, which is
+     * at or after the merge.
+     */
+    boolean mergedInRange(MergeRequestSummary mergeRequest) {
+        Instant mergedAt = mergeRequest.mergedAt();
+        return mergedAt != null && !mergedAt.isBefore(from) && mergedAt.isBefore(to);
+    }
+
+    /**
+     * Records a listed merge request.
+     *
+     * @return Its position in the listing, to complete it with, or null if an earlier run completed it already.
+     */
+    synchronized Long listed(MergeRequestSummary mergeRequest) {
+        listed++;
+        long position = nextPosition++;
+        pending.put(position, new Listed(mergeRequest.iid(), mergeRequest.updatedAt()));
+        if (completedBefore.remove(mergeRequest.iid())) {
+            completed(position, null);
+            return null;
+        }
+        return position;
+    }
+
+    /**
+     * Records a completed merge request; a null outcome is not counted.
+     *
+     * @return Whether a checkpoint is due.
+     */
+    synchronized boolean completed(long position, ProcessingOutcome outcome) {
+        Listed entry = pending.get(position);
+        if (entry == null) {
+            return false;
+        }
+        entry.done = true;
+        if (outcome != null) {
+            switch (outcome) {
+                case PROCESSED, UNKNOWN -> processed++;
+                case SKIPPED -> skipped++;
+                case ERROR -> failed++;
+            }
+            completedThisRun++;
+            sinceCheckpoint++;
+        }
+        while (!pending.isEmpty() && pending.firstEntry().getValue().done) {
+            Listed first = pending.pollFirstEntry().getValue();
+            if (first.updatedAt == null) {
+                continue;
+            }
+            if (!first.updatedAt.equals(watermark)) {
+                watermark = first.updatedAt;
+                completedAtWatermark.clear();
+            }
+            completedAtWatermark.add(first.iid);
+        }
+        if (sinceCheckpoint >= checkpointEvery) {
+            sinceCheckpoint = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that the whole listing was processed.
+     */
+    synchronized void finish() {
+        finished = true;
+        pending.clear();
+        completedBefore.clear();
+    }
+
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    synchronized BackfillCheckpoint checkpoint() {
+        Set<Long> completedIids = new TreeSet<>(completedBefore);
+        completedIids.addAll(completedAtWatermark);
+        pending.values().stream().filter(entry -> entry.done).forEach(entry -> completedIids.add(entry.iid));
+        return new BackfillCheckpoint(projectId, from, to, watermark, finished ? Set.of() : completedIids,
+            processed, skipped, failed, finished);
+    }
+
+    synchronized BackfillProgress progress() {
+        Duration elapsed = Duration.between(startedAt, clock.instant());
+        double elapsedSeconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+        double runFraction = fractionBetween(listFrom, startedAt);
+        Long etaSeconds = null;
+        if (!finished && runFraction > 0) {
+            etaSeconds = Math.round(elapsedSeconds * (1 - runFraction) / runFraction);
+        }
+        double covered = finished ? 100.0 : Math.round(fractionBetween(from, startedAt) * 1000) / 10.0;
+        double rate = Math.round(completedThisRun / elapsedSeconds * 10) / 10.0;
+        return new BackfillProgress(projectId, listed, processed, skipped, failed, rate, watermark, covered,
+            etaSeconds, finished);
+    }
+
+    // How far the watermark got from start towards end, between 0 and 1
+    private double fractionBetween(Instant start, Instant end) {
+        if (watermark == null || !watermark.isAfter(start)) {
+            return 0;
+        }
+        long total = Duration.between(start, end).toMillis();
+        if (total <= 0) {
+            return 1;
+        }
+        return Math.min(1, (double) Duration.between(start, watermark).toMillis() / total);
+    }
+}
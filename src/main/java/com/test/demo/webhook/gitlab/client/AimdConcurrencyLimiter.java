@@ -0,0 +1,151 @@
+package com.test.demo.webhook.gitlab.client;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrency limit with additive increase and multiplicative decrease (AIMD).
+ * <p>
+ * The limit grows by one per limit's worth of successful calls while it is actually being used, and is cut by
+ * the backoff ratio when GitLab throttles (429), fails (5xx or I/O error) or answers markedly slower than its
+ * recent average. Cuts are at most once per cooldown, so one burst of failures counts as one signal.
+ * <p>
+ * Callers over the limit wait in FIFO order instead of failing.
+ */
+final class AimdConcurrencyLimiter {
+
+    /**
+     * How a call that held a permit ended.
+     */
+    enum Outcome {
+        SUCCESS,  // Answered normally; its latency is a sample
+        DROPPED,  // Throttled or failed; the limit backs off
+        IGNORED   // Cancelled or otherwise not a signal about GitLab's capacity
+    }
+
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final Duration cooldown;
+    private final Clock clock;
+
+    private final Deque<MonoSink<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double averageLatencyMillis;
+    private long lastDecreaseMillis = Long.MIN_VALUE / 2;
+
+    AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                           double latencyTolerance, Duration cooldown, Clock clock) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.cooldown = cooldown;
+        this.clock = clock;
+    }
+
+    /**
+     * Emits a permit once a call may start; cancelling while waiting gives up the place in the queue.
+     */
+    Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            boolean granted;
+            synchronized (this) {
+                granted = inFlight < (int) limit;
+                if (granted) {
+                    inFlight++;
+                } else {
+                    waiters.add(sink);
+                }
+            }
+            if (granted) {
+                sink.success(new Permit());
+                return;
+            }
+            sink.onCancel(() -> {
+                boolean wasWaiting;
+                synchronized (this) {
+                    wasWaiting = waiters.remove(sink);
+                }
+                if (!wasWaiting) {
+                    // Granted concurrently with the cancellation; hand the permit on
+                    release(Outcome.IGNORED, 0);
+                }
+            });
+        });
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized int waiting() {
+        return waiters.size();
+    }
+
+    private void release(Outcome outcome, long latencyMillis) {
+        List<MonoSink<Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            adjustLimit(outcome, latencyMillis);
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                granted.add(waiters.poll());
+                inFlight++;
+            }
+        }
+        granted.forEach(sink -> sink.success(new Permit()));
+    }
+
+    private void adjustLimit(Outcome outcome, long latencyMillis) {
+        if (outcome == Outcome.IGNORED) {
+            return;
+        }
+        boolean slow = false;
+        if (outcome == Outcome.SUCCESS) {
+            slow = averageLatencyMillis > 0 && latencyMillis > averageLatencyMillis * latencyTolerance;
+            averageLatencyMillis = averageLatencyMillis == 0
+                    ? latencyMillis
+                    : averageLatencyMillis + LATENCY_SMOOTHING * (latencyMillis - averageLatencyMillis);
+        }
+        if (outcome == Outcome.DROPPED || slow) {
+            long now = clock.millis();
+            if (now - lastDecreaseMillis >= cooldown.toMillis()) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseMillis = now;
+            }
+        } else if (inFlight + 1 >= limit / 2) {
+            // Only grow while the current limit is being used, otherwise it drifts up while idle
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Permission to run one call; must be released exactly once when the call ends.
+     */
+    final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release(Outcome outcome, long latencyMillis) {
+            if (released.compareAndSet(false, true)) {
+                AimdConcurrencyLimiter.this.release(outcome, latencyMillis);
+            }
+        }
+    }
+}
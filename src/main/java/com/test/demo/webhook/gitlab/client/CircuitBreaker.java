@@ -0,0 +1,135 @@
+package com.test.demo.webhook.gitlab.client;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker for one GitLab endpoint.
+ * <p>
+ * Closed, it records the outcome of the last {@code windowSize} calls and opens once at least
+ * {@code minimumCalls} were recorded and the failure rate reaches the threshold. Open, it rejects calls for
+ * {@code openDuration}, then lets {@code halfOpenCalls} trial calls through: if all succeed it closes again,
+ * any failure re-opens it. All methods are synchronized.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    private final boolean[] window;  // true = failure, as a ring buffer
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration,
+                   int halfOpenCalls, Clock clock) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns whether a call may go ahead; every permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.millis() - openedAtMillis < openDuration.toMillis()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Releases a permitted call that says nothing about the endpoint's health, e.g. a cancelled one.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trialsStarted > 0) {
+            trialsStarted--;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMillis = clock.millis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    /**
+     * Signals a call rejected because the circuit of its endpoint is open.
+     */
+    static class OpenException extends RuntimeException {
+        OpenException(String endpoint) {
+            super("Circuit breaker open for GitLab endpoint " + endpoint);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.test.demo.config.GitLabApiProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded in-memory cache of raw file contents keyed by (project, path, commit SHA).
+ * File content at a full commit SHA never changes, so entries never need invalidation;
+ * mutable refs such as branch or tag names always bypass the cache.
+ * <p>
+ * Cached arrays are shared between callers and must not be modified.
+ */
+@Slf4j
+@Component
+public class FileContentCache {
+
+    // Full SHA-1 (40 hex chars) or SHA-256 (64 hex chars) object names
+    private static final Pattern FULL_COMMIT_SHA = Pattern.compile("[0-9a-fA-F]{40}|[0-9a-fA-F]{64}");
+
+    private record Key(long projectId, String filePath, String commitSha) {}
+
+    private final Cache<Key, byte[]> cache; // null when caching is disabled
+
+    public FileContentCache(GitLabApiProperties properties) {
+        GitLabApiProperties.Cache settings = properties.getCache();
+        if (!settings.isEnabled() || settings.getMaxWeightBytes() <= 0) {
+            log.info("GitLab file content cache is disabled");
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaxWeightBytes())
+                .weigher((Key key, byte[] content) -> content.length)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached content for the given file if present, otherwise subscribes to the loader
+     * and caches its value. Refs that are not full commit SHAs go straight to the loader.
+     *
+     * @param projectId The ID of the project.
+     * @param filePath  The path to the file within the repository.
+     * @param ref       The ref the file is fetched at.
+     * @param loader    Supplies the Mono fetching the content on a miss.
+     * @return A Mono emitting the file content, or empty if the loader completes empty.
+     */
+    public Mono<byte[]> getOrLoad(Long projectId, String filePath, String ref, Supplier<Mono<byte[]>> loader) {
+        if (cache == null || projectId == null || filePath == null || !isCacheableRef(ref)) {
+            return loader.get();
+        }
+        Key key = new Key(projectId, filePath, ref.toLowerCase());
+        return Mono.defer(() -> {
+            byte[] cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return loader.get().doOnNext(content -> cache.put(key, content));
+        });
+    }
+
+    /**
+     * Returns the cached content for the given file, or null on a miss or a ref that is not cacheable.
+     */
+    public byte[] getIfPresent(Long projectId, String filePath, String ref) {
+        if (cache == null || projectId == null || filePath == null || !isCacheableRef(ref)) {
+            return null;
+        }
+        return cache.getIfPresent(new Key(projectId, filePath, ref.toLowerCase()));
+    }
+
+    /**
+     * Caches content fetched outside {@link #getOrLoad}, e.g. several files in one batch.
+     * Refs that are not full commit SHAs are ignored.
+     */
+    public void put(Long projectId, String filePath, String ref, byte[] content) {
+        if (cache == null || projectId == null || filePath == null || content == null || !isCacheableRef(ref)) {
+            return;
+        }
+        cache.put(new Key(projectId, filePath, ref.toLowerCase()), content);
+    }
+
+    /**
+     * Hit, miss and eviction counters for the cache; all zero when caching is disabled.
+     */
+    public CacheStats stats() {
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    // Runs pending maintenance such as weight-based eviction
+    void cleanUp() {
+        if (cache != null) {
+            cache.cleanUp();
+        }
+    }
+
+    static boolean isCacheableRef(String ref) {
+        return ref != null && FULL_COMMIT_SHA.matcher(ref).matches();
+    }
+}
@@ -1,9 +1,15 @@
 package com.test.demo.webhook.gitlab.client; // Correct package
 
-import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestChanges; // Correct DTO import
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestSummary;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Client interface for interacting with the GitLab API.
@@ -11,13 +17,57 @@ import java.util.List;
 public interface GitLabApiClient {
 
     /**
-     * Fetches the changes for a given merge request.
+     * Lists the changed files of a merge request, page by page.
+     * <p>
+     * Pages are fetched lazily as the Flux is consumed, so cancelling it skips the remaining pages.
      *
      * @param projectId        The ID of the target project.
      * @param mergeRequestIid The IID of the merge request.
-     * @return A Mono emitting the merge request changes, or empty if not found or error.
+     * @return A Flux emitting the changes in listing order; ends early if a page is not found, and fails if a
+     *         page cannot be fetched otherwise.
      */
-    Mono<MergeRequestChanges> getMergeRequestChanges(Long projectId, Long mergeRequestIid); // Correct return type
+    Flux<Change> getMergeRequestDiffs(Long projectId, Long mergeRequestIid);
+
+    /**
+     * Lists the merged merge requests of a project updated at or after the given time, oldest update first,
+     * page by page. Pages are fetched lazily as the Flux is consumed, each from the last update time listed, so
+     * merge requests updated meanwhile do not shift later ones out of the listing. Each is emitted once.
+     *
+     * @param projectId    The ID of the project.
+     * @param updatedAfter Lower bound on the last update, inclusive; a merge request is updated when merged.
+     * @return A Flux emitting the merge requests in listing order; fails if a page cannot be fetched.
+     */
+    Flux<MergeRequestSummary> getMergedMergeRequests(Long projectId, Instant updatedAfter);
+
+    /**
+     * Fetches the raw bytes of a file from the repository at a specific ref (commit SHA, branch, tag),
+     * without the base64 JSON envelope of the files API.
+     *
+     * @param projectId The ID of the project.
+     * @param filePath  The path to the file within the repository.
+     * @param ref       The commit SHA, branch name, or tag name.
+     * @return A Mono emitting the file bytes, or empty if not found or error.
+     */
+    Mono<byte[]> getRawFile(Long projectId, String filePath, String ref);
+
+    /**
+     * Fetches the raw bytes of several files from the repository at the same ref.
+     * <p>
+     * By default each file is fetched with its own {@link #getRawFile} call; implementations may fetch them
+     * in fewer round trips.
+     *
+     * @param projectId   The ID of the project.
+     * @param filePaths   The paths of the files within the repository.
+     * @param ref         The commit SHA, branch name, or tag name.
+     * @param concurrency Upper bound on files fetched in parallel when they are fetched one by one.
+     * @return A Mono emitting the content of each file found, by path; files not found or failed are absent.
+     */
+    default Mono<Map<String, byte[]>> getRawFiles(Long projectId, List<String> filePaths, String ref, int concurrency) {
+        return Flux.fromIterable(filePaths)
+                .flatMap(filePath -> getRawFile(projectId, filePath, ref)
+                        .map(content -> Map.entry(filePath, content)), concurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
 
     /**
      * Fetches the raw content of a file from the repository at a specific ref (commit SHA, branch, tag).
@@ -27,6 +77,9 @@ public interface GitLabApiClient {
      * @param ref       The commit SHA, branch name, or tag name.
      * @return A Mono emitting the raw file content as a String, or empty if not found or error.
      */
-    Mono<String> getFileContent(Long projectId, String filePath, String ref);
+    default Mono<String> getFileContent(Long projectId, String filePath, String ref) {
+        return getRawFile(projectId, filePath, ref)
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
 
 }
@@ -1,19 +1,22 @@
 package com.test.demo.webhook.gitlab.client; // Correct package
 
-import com.test.demo.webhook.gitlab.dto.ApiResponses.FileContent; // Correct DTO import
-import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestChanges; // Correct DTO import
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
-import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
@@ -21,50 +24,139 @@ import java.util.Base64;
 public class GitLabApiClientImpl implements GitLabApiClient {
 
     // Constants for API paths
-    private static final String MERGE_REQUEST_CHANGES_URI = "/projects/%d/merge_requests/%d/changes";
-    private static final String REPOSITORY_FILES_URI = "/projects/%d/repository/files/%s?ref=%s";
+    private static final String MERGE_REQUEST_DIFFS_URI = "/projects/{projectId}/merge_requests/{iid}/diffs?page={page}&per_page={perPage}";
+    private static final String MERGED_MERGE_REQUESTS_URI = "/projects/{projectId}/merge_requests?state=merged"
+            + "&updated_after={updatedAfter}&order_by=updated_at&sort=asc&page={page}&per_page={perPage}";
+    private static final String REPOSITORY_RAW_FILE_URI = "/projects/{projectId}/repository/files/{filePath}/raw?ref={ref}";
+    private static final String NEXT_PAGE_HEADER = "X-Next-Page";
+    private static final int DIFFS_PER_PAGE = 100; // GitLab's maximum page size
+    private static final int MERGE_REQUESTS_PER_PAGE = 100;
 
     @Qualifier("gitlabWebClient") // Ensure correct WebClient bean is injected
     private final WebClient webClient;
+    private final FileContentCache fileContentCache;
+
+    // Identical concurrent calls share one upstream request
+    private final InFlightRequests<DiffPageKey, DiffPage> inFlightDiffPages = new InFlightRequests<>();
+    private final InFlightRequests<FileKey, byte[]> inFlightFiles = new InFlightRequests<>();
+
+    private record DiffPageKey(Long projectId, Long mergeRequestIid, int page) {}
+
+    private record DiffPage(List<Change> changes, Integer nextPage) {}
+
+    // Where a merged merge request listing page starts: the page of those updated at or after a time
+    private record ListingCursor(Instant updatedAfter, int page) {}
+
+    private record MergeRequestPage(List<MergeRequestSummary> mergeRequests, ListingCursor next) {}
+
+    private record FileKey(Long projectId, String filePath, String ref) {}
 
     @Override
-    public Mono<MergeRequestChanges> getMergeRequestChanges(Long projectId, Long mergeRequestIid) {
-        String uri = String.format(MERGE_REQUEST_CHANGES_URI, projectId, mergeRequestIid);
-        // Removed debug log
+    public Flux<Change> getMergeRequestDiffs(Long projectId, Long mergeRequestIid) {
+        // Each page is requested only once the previous one has been consumed, so a cancelled
+        // listing stops paging; pages still follow GitLab's X-Next-Page header
+        return getMergeRequestDiffPage(projectId, mergeRequestIid, 1)
+                .expand(page -> page.nextPage() == null
+                        ? Mono.empty()
+                        : getMergeRequestDiffPage(projectId, mergeRequestIid, page.nextPage()))
+                .concatMapIterable(DiffPage::changes);
+    }
+
+    private Mono<DiffPage> getMergeRequestDiffPage(Long projectId, Long mergeRequestIid, int page) {
+        return inFlightDiffPages.execute(new DiffPageKey(projectId, mergeRequestIid, page),
+                () -> fetchMergeRequestDiffPage(projectId, mergeRequestIid, page));
+    }
 
+    private Mono<DiffPage> fetchMergeRequestDiffPage(Long projectId, Long mergeRequestIid, int page) {
         return webClient.get()
-                .uri(uri)
+                .uri(MERGE_REQUEST_DIFFS_URI, projectId, mergeRequestIid, page, DIFFS_PER_PAGE)
                 .retrieve()
-                .bodyToMono(MergeRequestChanges.class) // Correct DTO type
-                .onErrorResume(WebClientResponseException.class, e -> {
-                    log.error("GitLab API error fetching changes for MR !{} in project {}: {} - {}",
-                            mergeRequestIid, projectId, e.getStatusCode(), e.getResponseBodyAsString(), e);
-                    return Mono.empty(); // Return empty on error
+                .toEntityList(Change.class)
+                .map(response -> new DiffPage(
+                        response.getBody() != null ? response.getBody() : List.of(),
+                        parseNextPage(response.getHeaders().getFirst(NEXT_PAGE_HEADER))))
+                // A merge request that no longer exists has no changes; any other failure is passed on, as a
+                // listing cut short would drop the spec files on later pages without anyone noticing
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.warn("Diffs page {} for MR !{} in project {} not found, ending the listing",
+                            page, mergeRequestIid, projectId);
+                    return Mono.empty();
                 })
-                .onErrorResume(Exception.class, e -> {
-                    log.error("Generic error fetching changes for MR !{} in project {}: {}",
-                            mergeRequestIid, projectId, e.getMessage(), e);
-                    return Mono.empty(); // Return empty on error
+                .doOnError(e -> log.error("Error fetching diffs page {} for MR !{} in project {}: {}",
+                        page, mergeRequestIid, projectId, e.getMessage()));
+    }
+
+    @Override
+    public Flux<MergeRequestSummary> getMergedMergeRequests(Long projectId, Instant updatedAfter) {
+        // Each page is listed again from the last update time seen rather than at X-Next-Page's offset: a listed
+        // merge request updated meanwhile moves to the end, shifting every later one back a slot, so the next
+        // offset page would skip one. Those at the boundary time come again and are dropped, as is one listed
+        // again after such an update. Pages are fetched one at a time, as the merge requests are consumed.
+        return Flux.defer(() -> {
+            Set<Long> listedIids = new HashSet<>();
+            return fetchMergedMergeRequestPage(projectId, new ListingCursor(updatedAfter, 1))
+                    .expand(page -> page.next() == null
+                            ? Mono.empty()
+                            : fetchMergedMergeRequestPage(projectId, page.next()))
+                    .concatMapIterable(MergeRequestPage::mergeRequests, 1)
+                    .filter(mergeRequest -> listedIids.add(mergeRequest.iid()));
+        });
+    }
+
+    private Mono<MergeRequestPage> fetchMergedMergeRequestPage(Long projectId, ListingCursor cursor) {
+        return webClient.get()
+                .uri(MERGED_MERGE_REQUESTS_URI, projectId, cursor.updatedAfter().toString(), cursor.page(),
+                        MERGE_REQUESTS_PER_PAGE)
+                .retrieve()
+                .toEntityList(MergeRequestSummary.class)
+                .map(response -> {
+                    List<MergeRequestSummary> mergeRequests = response.getBody() != null ? response.getBody() : List.of();
+                    boolean more = parseNextPage(response.getHeaders().getFirst(NEXT_PAGE_HEADER)) != null;
+                    return new MergeRequestPage(mergeRequests, more ? nextCursor(cursor, mergeRequests) : null);
                 })
-                .doOnSuccess(changes -> {
-                    // Removed debug log for successful fetch count
-                    if (changes == null) {
-                        log.warn("Received null changes response for MR !{} in project {}", mergeRequestIid, projectId);
-                    }
-                });
+                // Unlike a diff listing, a truncated one would look complete, so failures are not swallowed
+                .doOnError(e -> log.error("Error listing merged MRs page {} from {} in project {}: {}",
+                        cursor.page(), cursor.updatedAfter(), projectId, e.getMessage()));
+    }
+
+    // A page updated all at the cursor's time cannot move it on, so the next page of that time is listed instead
+    private static ListingCursor nextCursor(ListingCursor cursor, List<MergeRequestSummary> page) {
+        Instant lastUpdatedAt = page.isEmpty() ? null : page.get(page.size() - 1).updatedAt();
+        if (lastUpdatedAt == null || !lastUpdatedAt.isAfter(cursor.updatedAfter())) {
+            return new ListingCursor(cursor.updatedAfter(), cursor.page() + 1);
+        }
+        return new ListingCursor(lastUpdatedAt, 1);
+    }
+
+    // X-Next-Page is empty on the last page
+    private static Integer parseNextPage(String header) {
+        if (!StringUtils.hasText(header)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(header.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed {} header '{}'", NEXT_PAGE_HEADER, header);
+            return null;
+        }
     }
 
     @Override
-    public Mono<String> getFileContent(Long projectId, String filePath, String ref) {
-        // File paths in URLs need to be URL-encoded (e.g., '/' becomes '%2F')
-        String encodedFilePath = UriUtils.encode(filePath, StandardCharsets.UTF_8);
-        String uri = String.format(REPOSITORY_FILES_URI, projectId, encodedFilePath, ref);
-        String shortSha = ref != null && ref.length() >= 8 ? ref.substring(0, 8) : ref;
+    public Mono<byte[]> getRawFile(Long projectId, String filePath, String ref) {
+        // Content at a full commit SHA is immutable, so it is served from the cache when possible
+        // and concurrent misses for the same file are coalesced into a single request
+        return fileContentCache.getOrLoad(projectId, filePath, ref,
+                () -> inFlightFiles.execute(new FileKey(projectId, filePath, ref),
+                        () -> fetchRawFile(projectId, filePath, ref)));
+    }
 
-        // Removed debug log
+    private Mono<byte[]> fetchRawFile(Long projectId, String filePath, String ref) {
+        String shortSha = ref != null && ref.length() >= 8 ? ref.substring(0, 8) : ref;
 
+        // The /raw endpoint returns the file bytes as-is, avoiding the base64 JSON envelope.
+        // Template variables are fully encoded, so '/' in the file path becomes '%2F' as GitLab expects.
         return webClient.get()
-                .uri(uri)
+                .uri(REPOSITORY_RAW_FILE_URI, projectId, filePath, ref)
                 .retrieve()
                 .onStatus(status -> status.value() == HttpStatus.NOT_FOUND.value(),
                         clientResponse -> {
@@ -83,8 +175,7 @@ public class GitLabApiClientImpl implements GitLabApiClient {
                                     return Mono.error(new GitLabApiException(errorMessage, clientResponse.statusCode()));
                                 })
                 )
-                .bodyToMono(FileContent.class) // Use the imported ApiResponses.FileContent
-                .flatMap(fileContent -> decodeFileContent(fileContent, filePath))
+                .bodyToMono(byte[].class) // Buffers are joined straight into the returned array
                 .onErrorResume(GitLabApiException.class, e -> {
                     // Errors handled by onStatus are caught here, just return empty
                     return Mono.empty();
@@ -97,24 +188,6 @@ public class GitLabApiClientImpl implements GitLabApiClient {
                  });
     }
 
-    private Mono<String> decodeFileContent(FileContent fileContent, String filePath) { // Correct DTO type
-        if (fileContent == null || !"base64".equalsIgnoreCase(fileContent.encoding())) {
-            log.error("Invalid content received for file '{}': encoding is not base64 or content is null", filePath);
-            // Return an error signal instead of throwing exception directly in flatMap
-            return Mono.error(new IllegalArgumentException("Invalid file content encoding or null content from GitLab API for " + filePath));
-        }
-        try {
-            byte[] decodedBytes = Base64.getDecoder().decode(fileContent.content());
-            String content = new String(decodedBytes, StandardCharsets.UTF_8);
-            // Removed debug log for successful decoding
-            return Mono.just(content);
-        } catch (IllegalArgumentException e) {
-            log.error("Failed to decode Base64 content for file '{}': {}", filePath, e.getMessage());
-            // Return an error signal
-            return Mono.error(new IllegalArgumentException("Failed to decode Base64 content for " + filePath, e));
-        }
-    }
-
     // Custom exception class for GitLab API errors
     public static class GitLabApiException extends RuntimeException {
         private final org.springframework.http.HttpStatusCode statusCode; // Use HttpStatusCode
@@ -0,0 +1,302 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Blob;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.GraphQlBlobsResponse;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.GraphQlError;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.MergeRequestSummary;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.ProjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@link GitLabApiClient} fetching several files of a commit in one GraphQL {@code repository.blobs} query,
+ * instead of one REST call per file. Diffs and single files still go through {@link GitLabApiClientImpl}.
+ * <p>
+ * Files already cached at the commit are not requested again, and fetched files are added to the cache.
+ * Concurrent calls asking for the same file at the same commit share one query.
+ * GraphQL returns a file as text, which is encoded as UTF-8 again; a file that was not UTF-8, e.g. a pom.xml
+ * declaring ISO-8859-1, would then no longer match its bytes, so it is fetched over REST instead.
+ * Whenever the query fails the files are fetched over REST instead. When GitLab rejects the endpoint
+ * (404, 401, 403) or the query itself, e.g. an older GitLab without {@code blobs}, the GraphQL endpoint is
+ * skipped for {@code gitlab.api.graphql.unavailable-backoff}.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "gitlab.api.graphql.enabled", havingValue = "true")
+public class GitLabGraphQlClient implements GitLabApiClient {
+
+    private static final String BLOBS_QUERY = """
+            query($ids: [ID!], $ref: String!, $paths: [String!]!) {
+              projects(ids: $ids) {
+                nodes {
+                  repository {
+                    blobs(ref: $ref, paths: $paths) {
+                      nodes { path rawBlob }
+                    }
+                  }
+                }
+              }
+            }""";
+
+    // The encoding in an XML declaration, e.g. <?xml version="1.0" encoding="ISO-8859-1"?>
+    private static final Pattern XML_DECLARED_ENCODING =
+            Pattern.compile("^\\uFEFF?<\\?xml[^>]*?\\sencoding\\s*=\\s*[\"']([^\"']+)[\"']");
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private final GitLabApiClientImpl restClient;
+    private final WebClient webClient;
+    private final FileContentCache fileContentCache;
+    private final URI graphQlUrl;
+    private final int maxPathsPerQuery;
+    private final long unavailableBackoffNanos;
+    private final Counter queries;
+    private final Counter incompleteFallbacks;
+    private final Counter unavailableFallbacks;
+    private final Counter errorFallbacks;
+
+    // Concurrent calls for the same file at the same ref share one query
+    private final InFlightRequests<FileKey, byte[]> inFlightFiles = new InFlightRequests<>();
+
+    private volatile long unavailableUntilNanos;
+    private volatile boolean unavailable;
+
+    private record FileKey(Long projectId, String filePath, String ref) {}
+
+    public GitLabGraphQlClient(GitLabApiClientImpl restClient, @Qualifier("gitlabWebClient") WebClient webClient,
+                               FileContentCache fileContentCache, GitLabApiProperties properties,
+                               MeterRegistry meterRegistry) {
+        GitLabApiProperties.GraphQl graphQl = properties.getGraphql();
+        this.restClient = restClient;
+        this.webClient = webClient;
+        this.fileContentCache = fileContentCache;
+        this.graphQlUrl = StringUtils.hasText(graphQl.getUrl())
+                ? URI.create(graphQl.getUrl())
+                : graphQlUrlFor(properties.getBaseUrl());
+        this.maxPathsPerQuery = graphQl.getMaxPathsPerQuery();
+        this.unavailableBackoffNanos = graphQl.getUnavailableBackoff().toNanos();
+        this.queries = Counter.builder("gitlab.api.graphql.queries")
+                .description("GraphQL blobs queries sent to GitLab")
+                .register(meterRegistry);
+        this.incompleteFallbacks = fallbackCounter("incomplete", meterRegistry);
+        this.unavailableFallbacks = fallbackCounter("unavailable", meterRegistry);
+        this.errorFallbacks = fallbackCounter("error", meterRegistry);
+        log.info("Fetching files in batches via GitLab GraphQL at {}", graphQlUrl);
+    }
+
+    // https://gitlab.example.com/api/v4 -> https://gitlab.example.com/api/graphql
+    static URI graphQlUrlFor(String baseUrl) {
+        String base = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        return URI.create(base).resolve("../graphql");
+    }
+
+    @Override
+    public Flux<Change> getMergeRequestDiffs(Long projectId, Long mergeRequestIid) {
+        return restClient.getMergeRequestDiffs(projectId, mergeRequestIid);
+    }
+
+    @Override
+    public Flux<MergeRequestSummary> getMergedMergeRequests(Long projectId, Instant updatedAfter) {
+        return restClient.getMergedMergeRequests(projectId, updatedAfter);
+    }
+
+    @Override
+    public Mono<byte[]> getRawFile(Long projectId, String filePath, String ref) {
+        return restClient.getRawFile(projectId, filePath, ref);
+    }
+
+    @Override
+    public Mono<Map<String, byte[]>> getRawFiles(Long projectId, List<String> filePaths, String ref, int concurrency) {
+        if (projectId == null || !StringUtils.hasText(ref)) {
+            return restClient.getRawFiles(projectId, filePaths, ref, concurrency);
+        }
+        return Mono.defer(() -> {
+            Map<String, byte[]> cached = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String filePath : filePaths) {
+                byte[] content = fileContentCache.getIfPresent(projectId, filePath, ref);
+                if (content != null) {
+                    cached.put(filePath, content);
+                } else if (!missing.contains(filePath)) {
+                    missing.add(filePath);
+                }
+            }
+            if (missing.isEmpty()) {
+                return Mono.just(inRequestOrder(filePaths, cached));
+            }
+            List<FileKey> keys = missing.stream().map(filePath -> new FileKey(projectId, filePath, ref)).toList();
+            return inFlightFiles.executeAll(keys, started -> fetchFiles(projectId, started, ref, concurrency))
+                    .map(found -> {
+                        found.forEach((key, content) -> cached.put(key.filePath(), content));
+                        return inRequestOrder(filePaths, cached);
+                    });
+        });
+    }
+
+    private Mono<Map<FileKey, byte[]>> fetchFiles(Long projectId, List<FileKey> keys, String ref, int concurrency) {
+        List<String> filePaths = keys.stream().map(FileKey::filePath).toList();
+        return Flux.fromIterable(partition(filePaths))
+                .flatMap(chunk -> fetchChunk(projectId, chunk, ref, concurrency), concurrency)
+                .collect(() -> new HashMap<FileKey, byte[]>(), (found, chunk) -> chunk.forEach(
+                        (filePath, content) -> found.put(new FileKey(projectId, filePath, ref), content)));
+    }
+
+    private Mono<Map<String, byte[]>> fetchChunk(Long projectId, List<String> filePaths, String ref, int concurrency) {
+        if (unavailable && System.nanoTime() - unavailableUntilNanos < 0) {
+            return restClient.getRawFiles(projectId, filePaths, ref, concurrency);
+        }
+        return queryBlobs(projectId, filePaths, ref)
+                .flatMap(blobs -> {
+                    Map<String, byte[]> found = new HashMap<>();
+                    List<String> incomplete = new ArrayList<>();
+                    for (Blob blob : blobs) {
+                        if (blob.path() == null || !filePaths.contains(blob.path())) {
+                            continue;
+                        }
+                        // e.g. a blob too large to be returned inline, or one whose bytes the text does not keep
+                        if (blob.rawBlob() == null || !isUtf8Text(blob.rawBlob())) {
+                            incomplete.add(blob.path());
+                            continue;
+                        }
+                        byte[] content = blob.rawBlob().getBytes(StandardCharsets.UTF_8);
+                        fileContentCache.put(projectId, blob.path(), ref, content);
+                        found.put(blob.path(), content);
+                    }
+                    // Paths GitLab returned no blob for do not exist at the ref, as a 404 would say over REST
+                    if (incomplete.isEmpty()) {
+                        return Mono.just(found);
+                    }
+                    incompleteFallbacks.increment();
+                    return restClient.getRawFiles(projectId, incomplete, ref, concurrency)
+                            .map(rest -> {
+                                found.putAll(rest);
+                                return found;
+                            });
+                })
+                .onErrorResume(e -> {
+                    boolean rejected = markUnavailableIfRejected(e);
+                    String reason = rejected ? "unavailable" : "error";
+                    (rejected ? unavailableFallbacks : errorFallbacks).increment();
+                    log.warn("GraphQL blobs query failed for project {} ({}), fetching {} files over REST: {}",
+                            projectId, reason, filePaths.size(), e.getMessage());
+                    return restClient.getRawFiles(projectId, filePaths, ref, concurrency);
+                });
+    }
+
+    private Mono<List<Blob>> queryBlobs(Long projectId, List<String> filePaths, String ref) {
+        Map<String, Object> variables = Map.of(
+                "ids", List.of("gid://gitlab/Project/" + projectId),
+                "ref", ref,
+                "paths", filePaths);
+        return webClient.post()
+                .uri(graphQlUrl)
+                .bodyValue(Map.of("query", BLOBS_QUERY, "variables", variables))
+                .retrieve()
+                .bodyToMono(GraphQlBlobsResponse.class)
+                .doOnSubscribe(subscription -> queries.increment())
+                .flatMap(response -> {
+                    List<ProjectNode> projects = response.data() != null && response.data().projects() != null
+                            ? response.data().projects().nodes()
+                            : null;
+                    if (projects == null) {
+                        return Mono.error(new QueryRejectedException(response.errors()));
+                    }
+                    // No project means GraphQL cannot see it; REST decides whether it exists
+                    if (projects.isEmpty() || projects.get(0).repository() == null
+                            || projects.get(0).repository().blobs() == null) {
+                        return Mono.error(new IllegalStateException("No repository returned for project " + projectId));
+                    }
+                    List<Blob> blobs = projects.get(0).repository().blobs().nodes();
+                    return Mono.just(blobs != null ? blobs : List.of());
+                });
+    }
+
+    // Whether the text encodes back to the file's bytes as UTF-8: not if it declares another encoding, nor if
+    // GitLab had to replace bytes that were not valid UTF-8
+    static boolean isUtf8Text(String rawBlob) {
+        if (rawBlob.indexOf(REPLACEMENT_CHARACTER) >= 0) {
+            return false;
+        }
+        Matcher declaration = XML_DECLARED_ENCODING.matcher(rawBlob);
+        if (!declaration.find()) {
+            return true;
+        }
+        String encoding = declaration.group(1).trim();
+        return encoding.equalsIgnoreCase("UTF-8") || encoding.equalsIgnoreCase("UTF8");
+    }
+
+    // Rejections that will not go away on their own, so the endpoint is skipped for a while
+    private boolean markUnavailableIfRejected(Throwable e) {
+        boolean rejected = e instanceof QueryRejectedException
+                || e instanceof WebClientResponseException responseException
+                && (responseException.getStatusCode().value() == HttpStatus.NOT_FOUND.value()
+                    || responseException.getStatusCode().value() == HttpStatus.UNAUTHORIZED.value()
+                    || responseException.getStatusCode().value() == HttpStatus.FORBIDDEN.value());
+        if (rejected) {
+            unavailableUntilNanos = System.nanoTime() + unavailableBackoffNanos;
+            unavailable = true;
+        }
+        return rejected;
+    }
+
+    private static Counter fallbackCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("gitlab.api.graphql.fallbacks")
+                .description("GraphQL blobs queries whose files were fetched over REST instead")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private List<List<String>> partition(List<String> filePaths) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < filePaths.size(); from += maxPathsPerQuery) {
+            chunks.add(filePaths.subList(from, Math.min(from + maxPathsPerQuery, filePaths.size())));
+        }
+        return chunks;
+    }
+
+    private static Map<String, byte[]> inRequestOrder(List<String> filePaths, Map<String, byte[]> files) {
+        Map<String, byte[]> ordered = new LinkedHashMap<>();
+        for (String filePath : filePaths) {
+            byte[] content = files.get(filePath);
+            if (content != null) {
+                ordered.put(filePath, content);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Signals a GraphQL response without data, i.e. GitLab rejected the query.
+     */
+    static class QueryRejectedException extends RuntimeException {
+        QueryRejectedException(List<GraphQlError> errors) {
+            super("GraphQL query rejected: " + (errors == null ? "no data"
+                    : errors.stream().map(GraphQlError::message).collect(Collectors.joining("; "))));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Client-side rate limiting of every GitLab API call, aiming for the highest throughput GitLab sustains
+ * without throttling us.
+ * <p>
+ * A call first waits for a {@link TokenBucket} token, paced by the quota GitLab reports in its
+ * {@code RateLimit-Limit}, {@code RateLimit-Remaining} and {@code RateLimit-Reset} headers, then for an
+ * {@link AimdConcurrencyLimiter} permit, which backs off on 429, 5xx and growing latency. Waiting callers
+ * are queued rather than rejected. A call holds its permit, and its latency is measured, until the response
+ * body has been read or released. A 429 with {@code Retry-After} pauses the bucket for that long.
+ */
+@Slf4j
+public class GitLabRateLimitFilter implements ExchangeFilterFunction {
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    private final TokenBucket tokenBucket;
+    private final AimdConcurrencyLimiter concurrencyLimiter;
+    private final Clock clock;
+
+    private final Timer waitTimer;
+    private final Counter throttledCounter;
+
+    public GitLabRateLimitFilter(GitLabApiProperties.RateLimit rateLimit, MeterRegistry meterRegistry) {
+        this(rateLimit, meterRegistry, Clock.systemUTC());
+    }
+
+    GitLabRateLimitFilter(GitLabApiProperties.RateLimit rateLimit, MeterRegistry meterRegistry, Clock clock) {
+        this.clock = clock;
+        this.tokenBucket = new TokenBucket(rateLimit.getInitialRequestsPerSecond(), rateLimit.getBurst(),
+                rateLimit.getSafetyMargin(), rateLimit.getWindow(), clock);
+        this.concurrencyLimiter = new AimdConcurrencyLimiter(rateLimit.getInitialConcurrency(),
+                rateLimit.getMinConcurrency(), rateLimit.getMaxConcurrency(), rateLimit.getBackoffRatio(),
+                rateLimit.getLatencyTolerance(), rateLimit.getBackoffCooldown(), clock);
+
+        Gauge.builder("gitlab.api.ratelimit.concurrency.limit", concurrencyLimiter, AimdConcurrencyLimiter::limit)
+                .description("Current adaptive limit on concurrent GitLab API calls")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.api.ratelimit.in.flight", concurrencyLimiter, AimdConcurrencyLimiter::inFlight)
+                .description("GitLab API calls currently holding a concurrency permit")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.api.ratelimit.waiting", concurrencyLimiter, AimdConcurrencyLimiter::waiting)
+                .description("GitLab API calls waiting for a concurrency permit")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.api.ratelimit.rate", tokenBucket, TokenBucket::ratePerSecond)
+                .description("Current paced request rate per second towards GitLab")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("gitlab.api.ratelimit.wait")
+                .description("Time GitLab API calls waited for a token and a concurrency permit")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("gitlab.api.ratelimit.throttled")
+                .description("GitLab API calls answered with 429 Too Many Requests")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            long waitStart = clock.millis();
+            Duration tokenWait = tokenBucket.reserve();
+            Mono<Void> token = tokenWait.isZero() ? Mono.empty() : Mono.delay(tokenWait).then();
+
+            return token
+                    .then(concurrencyLimiter.acquire())
+                    .flatMap(permit -> {
+                        long start = clock.millis();
+                        waitTimer.record(Duration.ofMillis(start - waitStart));
+                        // Once a response is handed on, its body releases the permit; this is only for cancel and error
+                        AtomicBoolean handedOn = new AtomicBoolean();
+                        return next.exchange(request)
+                                .map(response -> {
+                                    handedOn.set(true);
+                                    return onResponse(request, response, permit, start);
+                                })
+                                .doOnError(e -> permit.release(AimdConcurrencyLimiter.Outcome.DROPPED, 0))
+                                .doFinally(signal -> {
+                                    if (!handedOn.get()) {
+                                        permit.release(AimdConcurrencyLimiter.Outcome.IGNORED, 0);
+                                    }
+                                });
+                    });
+        });
+    }
+
+    private ClientResponse onResponse(ClientRequest request, ClientResponse response,
+                                      AimdConcurrencyLimiter.Permit permit, long start) {
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        Long limit = parseLong(headers.getFirst(LIMIT_HEADER));
+        Long remaining = parseLong(headers.getFirst(REMAINING_HEADER));
+        Long reset = parseLong(headers.getFirst(RESET_HEADER));
+        if (limit != null && remaining != null && reset != null) {
+            tokenBucket.update(limit, remaining, reset);
+        }
+
+        HttpStatusCode status = response.statusCode();
+        if (status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            throttledCounter.increment();
+            Long retryAfter = parseLong(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            if (retryAfter != null) {
+                tokenBucket.pause(Duration.ofSeconds(retryAfter));
+            }
+            log.warn("GitLab throttled {} {}; retry after {}s, {} of {} requests remaining",
+                    request.method(), request.url().getPath(), retryAfter, remaining, limit);
+        }
+        AimdConcurrencyLimiter.Outcome outcome =
+                status.value() == HttpStatus.TOO_MANY_REQUESTS.value() || status.is5xxServerError()
+                        ? AimdConcurrencyLimiter.Outcome.DROPPED
+                        : AimdConcurrencyLimiter.Outcome.SUCCESS;
+        // The call lasts until its body is read or released, which every caller of WebClient must do
+        return response.mutate()
+                .body(body -> body.doFinally(signal -> permit.release(outcome, clock.millis() - start)))
+                .build();
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null; // e.g. an HTTP date in Retry-After
+        }
+    }
+
+    AimdConcurrencyLimiter concurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    TokenBucket tokenBucket() {
+        return tokenBucket;
+    }
+}
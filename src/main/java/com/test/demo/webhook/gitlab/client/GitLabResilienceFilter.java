@@ -0,0 +1,313 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retries, hedged requests and circuit breakers for idempotent GitLab API calls.
+ * <p>
+ * Endpoints are told apart by the URI template a call was made with, e.g.
+ * {@code /projects/{projectId}/repository/files/{filePath}/raw}. Per endpoint:
+ * <ul>
+ *   <li>I/O errors, 429 and 5xx are retried with jittered exponential backoff. When retries run out, the last
+ *       error response is passed on as is.</li>
+ *   <li>A call still unanswered after a percentile of the endpoint's recent latencies gets a second, hedged
+ *       request; whichever answers first is used and the other is cancelled.</li>
+ *   <li>A circuit breaker fails calls fast with {@link CircuitBreaker.OpenException} while too many recent
+ *       calls failed with an I/O error or 5xx.</li>
+ * </ul>
+ * Registered outside {@link GitLabRateLimitFilter}, so every attempt and hedge is paced like any other call.
+ */
+@Slf4j
+public class GitLabResilienceFilter implements ExchangeFilterFunction {
+
+    // Set by WebClient when a request is built from a URI template
+    static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD);
+    private static final String UNKNOWN_ENDPOINT = "other";
+    // Reactor Netty shades reactor-pool into an internal package that may move in any release, so its exceptions
+    // for a full pending-acquire queue and an acquire timeout are recognised by their class names
+    private static final Set<String> POOL_SATURATED_EXCEPTIONS =
+            Set.of("PoolAcquirePendingLimitException", "PoolAcquireTimeoutException");
+
+    /**
+     * How a call ended after retries, as counted in {@code gitlab.api.calls}.
+     */
+    enum Outcome {
+        SUCCESS,          // 1xx to 3xx
+        CLIENT_ERROR,     // 4xx other than 429, e.g. 404 for a missing file
+        FAILED,           // Retries exhausted, or an error that is not retried
+        SHORT_CIRCUITED   // Rejected by an open circuit breaker
+    }
+
+    private final GitLabApiProperties.Resilience resilience;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public GitLabResilienceFilter(GitLabApiProperties.Resilience resilience, MeterRegistry meterRegistry) {
+        this(resilience, meterRegistry, Clock.systemUTC());
+    }
+
+    GitLabResilienceFilter(GitLabApiProperties.Resilience resilience, MeterRegistry meterRegistry, Clock clock) {
+        this.resilience = resilience;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!IDEMPOTENT_METHODS.contains(request.method())) {
+            return next.exchange(request);
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(endpointOf(request), Endpoint::new);
+
+        return Mono.defer(() -> attempt(request, next, endpoint))
+                .retryWhen(Retry.backoff(resilience.getMaxRetries(), resilience.getInitialBackoff())
+                        .maxBackoff(resilience.getMaxBackoff())
+                        .jitter(resilience.getJitter())
+                        .filter(GitLabResilienceFilter::isRetryable)
+                        .doBeforeRetry(signal -> {
+                            endpoint.retries.increment();
+                            log.debug("Retrying GitLab {} {} (retry {}): {}", request.method(), request.url().getPath(),
+                                    signal.totalRetries() + 1, signal.failure().toString());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .onErrorResume(RetryableStatusException.class, e -> Mono.just(e.toResponse()))
+                .doOnNext(response -> endpoint.count(outcomeOf(response.statusCode())))
+                .doOnError(e -> endpoint.count(e instanceof CircuitBreaker.OpenException
+                        ? Outcome.SHORT_CIRCUITED
+                        : Outcome.FAILED));
+    }
+
+    /**
+     * One attempt, holding one circuit breaker permit, possibly hedged.
+     */
+    private Mono<ClientResponse> attempt(ClientRequest request, ExchangeFunction next, Endpoint endpoint) {
+        if (!endpoint.breaker.tryAcquire()) {
+            return Mono.error(new CircuitBreaker.OpenException(endpoint.name));
+        }
+        AtomicBoolean settled = new AtomicBoolean();
+        return hedged(request, next, endpoint)
+                .doOnNext(response -> {
+                    if (settled.compareAndSet(false, true)) {
+                        HttpStatusCode status = response.statusCode();
+                        if (status.is5xxServerError()) {
+                            endpoint.breaker.onFailure();
+                        } else if (status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                            endpoint.breaker.onIgnored(); // Throttled, not down; paced by the rate limit filter
+                        } else {
+                            endpoint.breaker.onSuccess();
+                        }
+                    }
+                })
+                .doOnError(e -> {
+                    if (settled.compareAndSet(false, true)) {
+                        if (isPoolSaturated(e)) {
+                            endpoint.breaker.onIgnored(); // Our own connection pool, not GitLab
+                        } else {
+                            endpoint.breaker.onFailure();
+                        }
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (settled.compareAndSet(false, true)) {
+                        endpoint.breaker.onIgnored();
+                    }
+                })
+                .flatMap(response -> isRetryableStatus(response.statusCode())
+                        ? RetryableStatusException.from(response).flatMap(Mono::error)
+                        : Mono.just(response));
+    }
+
+    private Mono<ClientResponse> hedged(ClientRequest request, ExchangeFunction next, Endpoint endpoint) {
+        Duration hedgeAfter = resilience.isHedgingEnabled()
+                ? endpoint.latencies.percentile(resilience.getHedgePercentile(), resilience.getMinLatencySamples())
+                : null;
+        if (hedgeAfter == null) {
+            return timed(request, next, endpoint);
+        }
+        if (hedgeAfter.compareTo(resilience.getMinHedgeDelay()) < 0) {
+            hedgeAfter = resilience.getMinHedgeDelay();
+        }
+
+        // A primary that fails before the hedge is sent is retried instead, not hedged
+        Sinks.One<Boolean> primaryFailed = Sinks.one();
+        Mono<Exchange> primary = timed(request, next, endpoint)
+                .map(response -> new Exchange(response, false))
+                .doOnError(e -> primaryFailed.tryEmitValue(true));
+        Mono<Exchange> hedge = Mono.delay(hedgeAfter)
+                .takeUntilOther(primaryFailed.asMono())
+                .flatMap(tick -> {
+                    endpoint.hedges.increment();
+                    return timed(request, next, endpoint).map(response -> new Exchange(response, true));
+                });
+
+        return Flux.mergeDelayError(2, primary, hedge)
+                .next()
+                .doOnNext(exchange -> {
+                    if (exchange.hedge()) {
+                        endpoint.hedgesWon.increment();
+                    }
+                })
+                .map(Exchange::response)
+                // A loser that answered anyway still holds its connection until the body is released
+                .doOnDiscard(Exchange.class, exchange -> exchange.response().releaseBody().subscribe());
+    }
+
+    private Mono<ClientResponse> timed(ClientRequest request, ExchangeFunction next, Endpoint endpoint) {
+        return Mono.defer(() -> {
+            long start = clock.millis();
+            return next.exchange(request)
+                    .doOnNext(response -> endpoint.latencies.record(clock.millis() - start));
+        });
+    }
+
+    private static String endpointOf(ClientRequest request) {
+        return request.attribute(URI_TEMPLATE_ATTRIBUTE)
+                .map(Object::toString)
+                .map(template -> {
+                    int query = template.indexOf('?');
+                    return query < 0 ? template : template.substring(0, query);
+                })
+                .orElse(UNKNOWN_ENDPOINT);
+    }
+
+    private static boolean isRetryableStatus(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value() || status.is5xxServerError();
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof RetryableStatusException) {
+            return true;
+        }
+        // An open circuit stays open for longer than any backoff, and a saturated pool is not helped by more calls
+        return !(e instanceof CircuitBreaker.OpenException) && !isPoolSaturated(e);
+    }
+
+    static boolean isPoolSaturated(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (POOL_SATURATED_EXCEPTIONS.contains(cause.getClass().getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Outcome outcomeOf(HttpStatusCode status) {
+        if (isRetryableStatus(status)) {
+            return Outcome.FAILED;
+        }
+        return status.is4xxClientError() ? Outcome.CLIENT_ERROR : Outcome.SUCCESS;
+    }
+
+    CircuitBreaker.State circuitState(String endpoint) {
+        Endpoint state = endpoints.get(endpoint);
+        return state == null ? CircuitBreaker.State.CLOSED : state.breaker.state();
+    }
+
+    private record Exchange(ClientResponse response, boolean hedge) {
+    }
+
+    /**
+     * Breaker, latencies and meters of one endpoint.
+     */
+    private final class Endpoint {
+        private final String name;
+        private final CircuitBreaker breaker;
+        private final LatencyWindow latencies;
+        private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+        private final Counter retries;
+        private final Counter hedges;
+        private final Counter hedgesWon;
+
+        Endpoint(String name) {
+            this.name = name;
+            this.breaker = new CircuitBreaker(resilience.getFailureRateThreshold(), resilience.getSlidingWindowSize(),
+                    resilience.getMinimumCalls(), resilience.getOpenDuration(), resilience.getHalfOpenCalls(), clock);
+            this.latencies = new LatencyWindow(resilience.getLatencySamples());
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, Counter.builder("gitlab.api.calls")
+                        .description("GitLab API calls by endpoint and outcome, after retries")
+                        .tag("endpoint", name)
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            this.retries = Counter.builder("gitlab.api.calls.retries")
+                    .description("Retried GitLab API call attempts")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+            this.hedges = Counter.builder("gitlab.api.calls.hedges")
+                    .description("Hedged requests sent for slow GitLab API calls")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+            this.hedgesWon = Counter.builder("gitlab.api.calls.hedges.won")
+                    .description("Hedged requests that answered before the original")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+            Gauge.builder("gitlab.api.circuit.open", breaker, b -> b.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                    .description("Whether the circuit breaker of a GitLab endpoint is open or half-open")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+        }
+
+        void count(Outcome outcome) {
+            outcomes.get(outcome).increment();
+        }
+    }
+
+    /**
+     * A retryable error response, with its body read so the connection is released before backing off.
+     */
+    private static final class RetryableStatusException extends RuntimeException {
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final String body;
+
+        private RetryableStatusException(HttpStatusCode status, HttpHeaders headers, String body) {
+            super("GitLab answered " + status.value(), null, false, false);
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        static Mono<RetryableStatusException> from(ClientResponse response) {
+            HttpHeaders headers = HttpHeaders.readOnlyHttpHeaders(response.headers().asHttpHeaders());
+            return response.bodyToMono(String.class)
+                    .defaultIfEmpty("")
+                    .map(body -> new RetryableStatusException(response.statusCode(), headers, body));
+        }
+
+        ClientResponse toResponse() {
+            return ClientResponse.create(status)
+                    .headers(h -> h.addAll(headers))
+                    .body(body)
+                    .build();
+        }
+    }
+}
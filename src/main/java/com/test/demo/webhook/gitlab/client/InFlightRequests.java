@@ -0,0 +1,121 @@
+package com.test.demo.webhook.gitlab.client;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of concurrent calls: callers asking for the same key while a call
+ * is in flight share one upstream subscription and all receive its value, completion or error.
+ * <p>
+ * The upstream call is only cancelled once every subscriber has cancelled, and the key is released
+ * as soon as the call terminates so later callers trigger a fresh call.
+ *
+ * @param <K> The key identifying identical calls.
+ * @param <V> The value emitted by the call.
+ */
+class InFlightRequests<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Joins the in-flight call for the key, or starts a new one using the supplier.
+     *
+     * @param key  The key identifying the call.
+     * @param call Supplies the upstream Mono; only invoked when no call for the key is in flight.
+     * @return A Mono sharing the result of the in-flight call.
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            Mono<V> existing = inFlight.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            Mono<V> created = share(key, call);
+            Mono<V> raced = inFlight.putIfAbsent(key, created);
+            if (raced != null) {
+                coalesced.increment();
+                return raced;
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Joins the in-flight calls for some of the keys, and starts one batched call for the others, which
+     * later callers for any of those keys join in turn.
+     *
+     * @param keys The keys identifying the calls.
+     * @param call Fetches the keys no call is in flight for; only invoked if there are any. Keys absent
+     *             from its map have no value.
+     * @return A Mono of the values found for the keys, in no particular order.
+     */
+    public Mono<Map<K, V>> executeAll(Collection<K> keys, Function<List<K>, Mono<Map<K, V>>> call) {
+        return Mono.defer(() -> {
+            List<K> started = new ArrayList<>();
+            // Shared by the started keys, and only called once all of them are claimed, even if a caller
+            // on another thread has joined one of them already; it runs to the end once started
+            Sinks.One<List<K>> claimed = Sinks.one();
+            Mono<Map<K, V>> batch = claimed.asMono().flatMap(call).cache();
+            List<Mono<Map.Entry<K, V>>> values = new ArrayList<>();
+            for (K key : new LinkedHashSet<>(keys)) {
+                Mono<V> existing = inFlight.get(key);
+                if (existing == null) {
+                    Mono<V> created = share(key, () -> batch.mapNotNull(found -> found.get(key)));
+                    existing = inFlight.putIfAbsent(key, created);
+                    if (existing == null) {
+                        started.add(key);
+                        existing = created;
+                    } else {
+                        coalesced.increment();
+                    }
+                } else {
+                    coalesced.increment();
+                }
+                values.add(existing.map(value -> Map.entry(key, value)));
+            }
+            claimed.tryEmitValue(List.copyOf(started));
+            return Flux.merge(values).collectMap(Map.Entry::getKey, Map.Entry::getValue);
+        });
+    }
+
+    /**
+     * @return The number of calls currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return The number of callers that joined an existing call instead of starting their own.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    private Mono<V> share(K key, Supplier<Mono<V>> call) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> shared = Mono.defer(call)
+                // Release the key on success, error, or once the last subscriber has cancelled
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .flux()
+                .publish()
+                .refCount(1)
+                .singleOrEmpty();
+        self.set(shared);
+        return shared;
+    }
+}
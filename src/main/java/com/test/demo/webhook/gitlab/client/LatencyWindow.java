@@ -0,0 +1,40 @@
+package com.test.demo.webhook.gitlab.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * The most recent latencies of one endpoint, for estimating a percentile to hedge at.
+ * All methods are synchronized.
+ */
+final class LatencyWindow {
+
+    private final long[] samplesMillis;
+    private int size;
+    private int next;
+
+    LatencyWindow(int capacity) {
+        this.samplesMillis = new long[capacity];
+    }
+
+    synchronized void record(long latencyMillis) {
+        samplesMillis[next] = latencyMillis;
+        next = (next + 1) % samplesMillis.length;
+        size = Math.min(size + 1, samplesMillis.length);
+    }
+
+    /**
+     * Returns the percentile of the recorded latencies, or null while fewer than {@code minSamples} were recorded.
+     *
+     * @param percentile Between 0 and 1, e.g. 0.95.
+     */
+    synchronized Duration percentile(double percentile, int minSamples) {
+        if (size == 0 || size < minSamples) {
+            return null;
+        }
+        long[] sorted = Arrays.copyOf(samplesMillis, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return Duration.ofMillis(sorted[Math.min(Math.max(index, 0), size - 1)]);
+    }
+}
@@ -0,0 +1,108 @@
+package com.test.demo.webhook.gitlab.client;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Token bucket whose refill rate follows GitLab's {@code RateLimit-*} response headers.
+ * <p>
+ * Until the first headers arrive it refills at the configured initial rate. Afterwards the remaining quota,
+ * less a safety margin, is spread evenly over the time left until the quota resets. Once the usable quota is
+ * used up, no tokens are handed out until the reset.
+ * <p>
+ * Callers reserve a token and are told how long to wait for it, so a burst of callers queues up in order
+ * instead of failing. Not tied to a thread; all methods are synchronized.
+ */
+final class TokenBucket {
+
+    private final Clock clock;
+    private final double capacity;
+    private final double safetyMargin;
+    private final Duration window;
+
+    private double ratePerMilli;
+    private double tokens;          // Negative while callers wait for reserved tokens
+    private long lastRefillMillis;  // In the future while paused until a quota reset
+
+    /**
+     * @param initialRatePerSecond Refill rate before GitLab has reported its quota.
+     * @param burst                Maximum number of tokens that can accumulate.
+     * @param safetyMargin         Fraction of GitLab's limit left unused, e.g. 0.05.
+     * @param window               GitLab's throttle period, used for the rate right after a reset.
+     */
+    TokenBucket(double initialRatePerSecond, int burst, double safetyMargin, Duration window, Clock clock) {
+        this.clock = clock;
+        this.capacity = burst;
+        this.safetyMargin = safetyMargin;
+        this.window = window;
+        this.ratePerMilli = initialRatePerSecond / 1000.0;
+        this.tokens = burst;
+        this.lastRefillMillis = clock.millis();
+    }
+
+    /**
+     * Takes a token, possibly ahead of time.
+     *
+     * @return How long the caller has to wait before its token is available; zero if it is available now.
+     */
+    synchronized Duration reserve() {
+        long now = clock.millis();
+        refill(now);
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+        long waitMillis = Math.max(lastRefillMillis - now, 0) + (long) Math.ceil(-tokens / ratePerMilli);
+        return Duration.ofMillis(waitMillis);
+    }
+
+    /**
+     * Adjusts the rate to the quota GitLab reported.
+     *
+     * @param limit              {@code RateLimit-Limit}: requests allowed per window.
+     * @param remaining          {@code RateLimit-Remaining}: requests left in the current window.
+     * @param resetEpochSeconds  {@code RateLimit-Reset}: when the current window ends.
+     */
+    synchronized void update(long limit, long remaining, long resetEpochSeconds) {
+        long now = clock.millis();
+        refill(now);
+        long millisUntilReset = Math.max(resetEpochSeconds * 1000 - now, 1000);
+        double usable = remaining - safetyMargin * limit;
+        if (usable >= 1) {
+            ratePerMilli = usable / millisUntilReset;
+            tokens = Math.min(tokens, usable);
+        } else {
+            pauseUntil(now + millisUntilReset, limit);
+        }
+    }
+
+    /**
+     * Hands out no tokens for the given time, e.g. after a 429 with {@code Retry-After}.
+     */
+    synchronized void pause(Duration duration) {
+        long now = clock.millis();
+        refill(now);
+        pauseUntil(now + duration.toMillis(), -1);
+    }
+
+    synchronized double ratePerSecond() {
+        return ratePerMilli * 1000.0;
+    }
+
+    private void pauseUntil(long untilMillis, long limit) {
+        tokens = Math.min(tokens, 0);
+        lastRefillMillis = Math.max(lastRefillMillis, untilMillis);
+        if (limit > 0) {
+            // After the reset the full quota is available again for the next window
+            ratePerMilli = Math.max(limit * (1 - safetyMargin), 1) / window.toMillis();
+        }
+    }
+
+    private void refill(long now) {
+        if (now <= lastRefillMillis) {
+            return;
+        }
+        tokens = Math.min(capacity, tokens + (now - lastRefillMillis) * ratePerMilli);
+        lastRefillMillis = now;
+    }
+}
@@ -0,0 +1,44 @@
+package com.test.demo.webhook.gitlab.controller;
+
+import com.test.demo.webhook.gitlab.backfill.BackfillJob;
+import com.test.demo.webhook.gitlab.backfill.BackfillProgress;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@RestController
+@RequestMapping("/backfill")
+@RequiredArgsConstructor
+public class BackfillController {
+
+    private final BackfillJob backfillJob;
+
+    /**
+     * Backfills the merge requests of a project merged from the start of {@code from} until the start of
+     * {@code to}, both UTC dates, and streams the progress as NDJSON.
+     * <p>
+     * The backfill runs while the response is being read; closing the connection stops it at a checkpoint, and
+     * posting the same project and dates again resumes it. Returns 409 if the project is already being backfilled.
+     */
+    @PostMapping(value = "/projects/{projectId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BackfillProgress> backfill(@PathVariable Long projectId,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (!from.isBefore(to)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'"));
+        }
+        Instant fromInstant = from.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant toInstant = to.atStartOfDay(ZoneOffset.UTC).toInstant();
+        return backfillJob.run(projectId, fromInstant, toInstant)
+            .onErrorMap(BackfillJob.BackfillAlreadyRunningException.class,
+                e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e));
+    }
+}
@@ -1,26 +1,100 @@
 package com.test.demo.webhook.gitlab.controller;
 
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.BulkEventStatus;
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
-import com.test.demo.webhook.gitlab.processor.MergeRequestProcessor; // Import the new processor
+import com.test.demo.webhook.gitlab.ingest.MergeRequestEventDispatcher;
+import com.test.demo.webhook.gitlab.processor.MergeRequestEventReader;
+import com.test.demo.webhook.gitlab.processor.PipelineMetrics;
+import com.test.demo.webhook.gitlab.processor.ProcessingOutcome;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
 @RestController
 @RequestMapping("/webhooks/gitlab")
 @RequiredArgsConstructor
 @Slf4j
 public class GitLabWebhookController {
 
-    private final MergeRequestProcessor mergeRequestProcessor; // Inject the processor
+    private final MergeRequestEventDispatcher eventDispatcher; // Inline or queued, see gitlab.webhook.ingestion.mode
+    private final PipelineMetrics pipelineMetrics;
+    private final MergeRequestEventReader eventReader;
+    private final WebhookProperties webhookProperties;
 
     @PostMapping("/mergerequest")
     @ResponseStatus(HttpStatus.ACCEPTED) // Acknowledge receipt immediately
-    public Mono<Void> handleMergeRequestEvent(@RequestBody MergeRequestEvent event) {
+    public Mono<Void> handleMergeRequestEvent(@RequestBody byte[] body) {
+        long receiveStart = System.nanoTime();
+        // Most deliveries are other actions or branches; drop them before binding the whole payload
+        if (!eventReader.isRelevant(body)) {
+            pipelineMetrics.record(PipelineMetrics.Stage.RECEIVE, null, ProcessingOutcome.SKIPPED, receiveStart);
+            return Mono.empty();
+        }
+        MergeRequestEvent event;
+        try {
+            event = eventReader.read(body);
+        } catch (IOException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid merge request event", e));
+        }
         log.info("Received webhook event for MR !{}", event.attributes() != null ? event.attributes().iid() : "unknown");
-        // Delegate processing to the processor.
-        return mergeRequestProcessor.processEvent(event); // Call the processor method
+        // Hand the event over to the configured dispatcher; inline, this times the whole processing too.
+        Long projectId = event.attributes() != null ? event.attributes().targetProjectId() : null;
+        return pipelineMetrics.timeStage(PipelineMetrics.Stage.RECEIVE, projectId, eventDispatcher.dispatch(event),
+            ignored -> ProcessingOutcome.PROCESSED, ProcessingOutcome.PROCESSED);
+    }
+
+    /**
+     * Replays many saved merge request events in one request, e.g. after an outage.
+     * <p>
+     * The body is an NDJSON stream or a JSON array of events. It is decoded incrementally, one event at a time
+     * as dispatch capacity frees up, so memory stays flat however large the body is. Up to
+     * {@code gitlab.webhook.ingestion.bulk-concurrency} events are dispatched at once, each as if it had been
+     * posted to {@code /mergerequest}. One status line per event is streamed back in request order.
+     */
+    @PostMapping(value = "/mergerequest/bulk",
+        consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkEventStatus> handleMergeRequestEvents(@RequestBody Flux<MergeRequestEvent> events) {
+        int concurrency = webhookProperties.getIngestion().getBulkConcurrency();
+        AtomicLong accepted = new AtomicLong();
+        // Only as many events are requested from the decoder as can be dispatched, so the body is read on demand
+        return events.index()
+            // Delay errors: after a decoding error the events already in flight still finish and are reported
+            .flatMapSequentialDelayError(indexed -> dispatchForBulk(indexed.getT1(), indexed.getT2())
+                    .doOnNext(status -> {
+                        if (BulkEventStatus.ACCEPTED.equals(status.status())) {
+                            accepted.incrementAndGet();
+                        }
+                    }),
+                concurrency, 1)
+            .onErrorResume(e -> {
+                // Decoding failed part-way; events before it were dispatched and reported
+                log.warn("Bulk replay stopped after {} accepted events: {}", accepted.get(), e.getMessage());
+                return Mono.just(new BulkEventStatus(null, null, null, BulkEventStatus.INVALID_BODY, e.getMessage()));
+            })
+            .doOnComplete(() -> log.info("Bulk replay accepted {} events", accepted.get()));
+    }
+
+    private Mono<BulkEventStatus> dispatchForBulk(long index, MergeRequestEvent event) {
+        Long projectId = event.attributes() != null ? event.attributes().targetProjectId() : null;
+        Long iid = event.attributes() != null ? event.attributes().iid() : null;
+        // Deferred, as a dispatcher may reject the event by throwing right away
+        Mono<Void> dispatch = Mono.defer(() -> eventDispatcher.dispatch(event));
+        return pipelineMetrics.timeStage(PipelineMetrics.Stage.RECEIVE, projectId, dispatch,
+                ignored -> ProcessingOutcome.PROCESSED, ProcessingOutcome.PROCESSED)
+            .thenReturn(new BulkEventStatus(index, projectId, iid, BulkEventStatus.ACCEPTED, null))
+            .onErrorResume(ResponseStatusException.class, e -> Mono.just(
+                new BulkEventStatus(index, projectId, iid, BulkEventStatus.REJECTED, e.getReason())))
+            .onErrorResume(e -> Mono.just(
+                new BulkEventStatus(index, projectId, iid, BulkEventStatus.FAILED, e.getMessage())));
     }
 }
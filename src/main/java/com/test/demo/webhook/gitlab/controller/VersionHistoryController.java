@@ -0,0 +1,39 @@
+package com.test.demo.webhook.gitlab.controller;
+
+import com.test.demo.webhook.gitlab.history.VersionHistoryStore;
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/history")
+@RequiredArgsConstructor
+public class VersionHistoryController {
+
+    private final VersionHistoryStore versionHistory;
+
+    /**
+     * Returns the recorded versions of a project, oldest first: all of them, or those with the given code version
+     * (full or just the pom.xml version) and/or API spec version.
+     */
+    @GetMapping("/projects/{projectId}/versions")
+    public Flux<VersionRecord> versions(@PathVariable Long projectId,
+                                        @RequestParam(required = false) String codeVersion,
+                                        @RequestParam(required = false) String apiSpecVersion) {
+        List<VersionRecord> records;
+        if (codeVersion != null) {
+            records = versionHistory.findByCodeVersion(projectId, codeVersion);
+            if (apiSpecVersion != null) {
+                records = records.stream().filter(record -> apiSpecVersion.equals(record.apiSpecVersion())).toList();
+            }
+        } else if (apiSpecVersion != null) {
+            records = versionHistory.findByApiSpecVersion(projectId, apiSpecVersion);
+        } else {
+            records = versionHistory.findByProject(projectId);
+        }
+        return Flux.fromIterable(records);
+    }
+}
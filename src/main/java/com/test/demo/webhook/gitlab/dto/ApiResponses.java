@@ -2,27 +2,53 @@ package com.test.demo.webhook.gitlab.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
 import java.util.List;
 
 public class ApiResponses {
+    // One entry of the merge request diffs listing; the 'diff' body is skipped by the parser, never bound
     @JsonIgnoreProperties(ignoreUnknown = true)
-    public record MergeRequestChanges(
-        @JsonProperty("changes") List<Change> changes
-    ) {
-        public record Change(
-            @JsonProperty("old_path") String oldPath,
-            @JsonProperty("new_path") String newPath,
-            @JsonProperty("new_file") boolean newFile,
-            @JsonProperty("renamed_file") boolean renamedFile,
-            @JsonProperty("deleted_file") boolean deletedFile
-        ) {}
-    }
-
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    public record FileContent(
-        @JsonProperty("file_name") String fileName,
-        @JsonProperty("file_path") String filePath,
-        @JsonProperty("content") String content,
-        @JsonProperty("encoding") String encoding
+    public record Change(
+        @JsonProperty("old_path") String oldPath,
+        @JsonProperty("new_path") String newPath,
+        @JsonProperty("new_file") boolean newFile,
+        @JsonProperty("renamed_file") boolean renamedFile,
+        @JsonProperty("deleted_file") boolean deletedFile
     ) {}
+
+    // One entry of the merge requests listing, as used by the backfill
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record MergeRequestSummary(
+        @JsonProperty("iid") Long iid,
+        @JsonProperty("project_id") Long projectId,
+        @JsonProperty("source_project_id") Long sourceProjectId,
+        @JsonProperty("target_branch") String targetBranch,
+        @JsonProperty("sha") String sha,
+        @JsonProperty("merged_at") Instant mergedAt,
+        @JsonProperty("updated_at") Instant updatedAt,
+        @JsonProperty("web_url") String webUrl
+    ) {}
+
+    // Response of the GraphQL blobs query; data is null and errors are set when GitLab rejected the query
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record GraphQlBlobsResponse(BlobsData data, List<GraphQlError> errors) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record BlobsData(Nodes<ProjectNode> projects) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Nodes<T>(List<T> nodes) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ProjectNode(BlobsRepository repository) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record BlobsRepository(Nodes<Blob> blobs) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Blob(String path, String rawBlob) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record GraphQlError(String message) {}
 }
@@ -0,0 +1,22 @@
+package com.test.demo.webhook.gitlab.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one event of a bulk replay, streamed back as one NDJSON line per event.
+ *
+ * @param index   Position of the event in the request body, from 0; null for a line about the body itself.
+ * @param project Target project of the event, if known.
+ * @param iid     Merge request IID of the event, if known.
+ * @param status  {@code accepted}, {@code rejected} (e.g. the queue is full), {@code failed}, or
+ *                {@code invalid_body} when the rest of the body could not be decoded.
+ * @param error   Why the event was not accepted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkEventStatus(Long index, Long project, Long iid, String status, String error) {
+
+    public static final String ACCEPTED = "accepted";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+    public static final String INVALID_BODY = "invalid_body";
+}
@@ -0,0 +1,578 @@
+package com.test.demo.webhook.gitlab.history;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.sink.VersionResultSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Embedded, append-only store of the extracted {@link VersionRecord}s, answering e.g. which API spec version
+ * shipped with a code version without an external database.
+ * <p>
+ * Records are appended to segment files in {@code gitlab.webhook.history.dir}. The active segment is memory-mapped
+ * at {@code segment-size} and filled up, then a new one is started; all reads go through the mapped segments.
+ * Each record is framed as {@code [length][CRC32C][payload]} and carries a sequence number, so a record torn by a
+ * crash ends the segment on restart, and copies left behind by an interrupted compaction are told apart.
+ * <p>
+ * In-memory indexes by project, by code version and by API spec version point at the records; a lookup is a map
+ * access plus decoding the matched records straight from the mapping. A record for the same project, merge
+ * request, commit and spec file as an earlier one, e.g. from a backfill run again, supersedes it, unless it would
+replace a known version with {@code unknown}, e.g. when the backfill ran while GitLab was failing. Older segments
+ * that are mostly superseded records are rewritten in the background with only the current ones.
+ * On startup the indexes are rebuilt by scanning the segments.
+ */
+@Slf4j
+@Component
+public class VersionHistoryStore implements VersionResultSink, DisposableBean {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{10})\\.log");
+    private static final int HEADER_BYTES = 8; // Payload length and CRC32C
+    private static final int FIXED_PAYLOAD_BYTES = 32; // Sequence, project, iid and timestamp
+    private static final int STRING_FIELDS = 5;
+    private static final short NULL_STRING = -1;
+
+    // A record is replaced, not added to, by a later one with the same key
+    private record RecordKey(long projectId, long mergeRequestIid, String commitSha, String apiSpecFile) {}
+
+    private record VersionKey(long projectId, String version) {}
+
+    // Where the current record of a key is, and what it is indexed under
+    private record Indexed(long location, long sequence, int bytes, Set<String> codeVersions, String apiSpecVersion) {}
+
+    private record Decoded(long sequence, VersionRecord record) {}
+
+    private static final class Segment {
+        private final int id;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int size;       // Bytes of records written
+        private long liveBytes; // Bytes of records not superseded
+
+        private Segment(int id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private double garbageRatio() {
+            return size == 0 ? 0 : 1 - (double) liveBytes / size;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final boolean sync;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final Map<RecordKey, Indexed> current = new HashMap<>();
+    private final Map<Long, NavigableSet<Long>> byProject = new HashMap<>();
+    private final Map<VersionKey, NavigableSet<Long>> byCodeVersion = new HashMap<>();
+    private final Map<VersionKey, NavigableSet<Long>> byApiSpecVersion = new HashMap<>();
+    private final ExecutorService compactor;
+    private Segment active;
+    private int nextSegmentId;
+    private long lastSequence;
+
+    public VersionHistoryStore(WebhookProperties webhookProperties) {
+        WebhookProperties.History history = webhookProperties.getHistory();
+        this.enabled = history.isEnabled();
+        this.dir = history.getDir();
+        this.segmentSize = (int) Math.min(history.getSegmentSize().toBytes(), Integer.MAX_VALUE);
+        this.compactionThreshold = history.getCompactionThreshold();
+        this.sync = history.isSync();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "version-history-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled && Files.isDirectory(dir)) {
+            load();
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Appends the record, see {@link #append}; the write goes to the mapped segment, so it does not wait on disk
+     * unless {@code sync} is set.
+     */
+    @Override
+    public void publish(VersionRecord record) {
+        append(record);
+    }
+
+    /**
+     * Appends the record and indexes it, superseding an earlier record for the same project, merge request,
+     * commit and spec file. Does nothing when the store is disabled, or when the record would replace a version
+     * the earlier record knows with {@code unknown}.
+     *
+     * @throws IllegalArgumentException If the record does not fit in a segment.
+     * @throws UncheckedIOException     If a new segment cannot be created.
+     */
+    public void append(VersionRecord record) {
+        if (!enabled) {
+            return;
+        }
+        boolean rolled = false;
+        lock.writeLock().lock();
+        try {
+            if (losesKnownVersion(current.get(keyOf(record)), record)) {
+                log.debug("Keeping the known versions of {} for MR !{} over unknown ones", record.apiSpecFile(),
+                    record.mergeRequestIid());
+                return;
+            }
+            long sequence = lastSequence + 1;
+            byte[] payload = encode(sequence, record);
+            int bytes = HEADER_BYTES + payload.length;
+            if (bytes > segmentSize) {
+                throw new IllegalArgumentException("Version record of " + bytes + " bytes exceeds the segment size");
+            }
+            if (active == null || active.size + bytes > segmentSize) {
+                rolled = active != null;
+                active = createSegment(nextSegmentId++);
+                segments.put(active.id, active);
+            }
+            int offset = active.size;
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            // Length last: until it is written the record reads as the end of the segment
+            active.buffer.put(offset + HEADER_BYTES, payload);
+            active.buffer.putInt(offset + 4, (int) crc.getValue());
+            active.buffer.putInt(offset, payload.length);
+            if (sync) {
+                active.buffer.force(offset, bytes);
+            }
+            active.size += bytes;
+            lastSequence = sequence;
+            index(record, sequence, location(active.id, offset), bytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rolled) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Returns the records of the project, oldest first.
+     */
+    public List<VersionRecord> findByProject(Long projectId) {
+        return find(byProject, projectId);
+    }
+
+    /**
+     * Returns the records of the project with the code version, oldest first. Matches either the full code version,
+     * e.g. {@code 1.4.0-0123abcd}, or just the pom.xml version, e.g. {@code 1.4.0}.
+     */
+    public List<VersionRecord> findByCodeVersion(Long projectId, String codeVersion) {
+        return find(byCodeVersion, new VersionKey(projectId, codeVersion));
+    }
+
+    /**
+     * Returns the records of the project with the API spec version, oldest first.
+     */
+    public List<VersionRecord> findByApiSpecVersion(Long projectId, String apiSpecVersion) {
+        return find(byApiSpecVersion, new VersionKey(projectId, apiSpecVersion));
+    }
+
+    private <K> List<VersionRecord> find(Map<K, NavigableSet<Long>> index, K key) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<Decoded> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Long> locations = index.get(key);
+            if (locations == null) {
+                return List.of();
+            }
+            for (long location : locations) {
+                Segment segment = segments.get(segmentId(location));
+                found.add(decode(segment.buffer, offset(location) + HEADER_BYTES));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Compaction moves records to newer segments, so the order of the locations is not the order of appending
+        return found.stream()
+            .sorted(Comparator.comparingLong(Decoded::sequence))
+            .map(Decoded::record)
+            .toList();
+    }
+
+    /**
+     * Rewrites the older segments whose share of superseded records reached {@code compaction-threshold} into new
+     * segments with only their current records, then deletes them. Appends and lookups carry on meanwhile, except
+     * for the final swap. Runs in the background after a segment fills up and on startup.
+     */
+    synchronized void compact() {
+        Map<Integer, Segment> candidates = new HashMap<>();
+        List<Map.Entry<RecordKey, Indexed>> moving = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.size > 0 && segment.garbageRatio() >= compactionThreshold) {
+                    candidates.put(segment.id, segment);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<RecordKey, Indexed> entry : current.entrySet()) {
+                if (candidates.containsKey(segmentId(entry.getValue().location()))) {
+                    moving.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        moving.sort(Comparator.comparingLong(entry -> entry.getValue().sequence()));
+
+        // Copy the current records; the candidates are sealed and only removed below, so they are read without the
+        // lock, and the new segments are only registered once complete
+        List<Segment> written = new ArrayList<>();
+        Map<RecordKey, Indexed> moved = new HashMap<>();
+        try {
+            Segment target = null;
+            for (Map.Entry<RecordKey, Indexed> entry : moving) {
+                Indexed indexed = entry.getValue();
+                if (target == null || target.size + indexed.bytes() > segmentSize) {
+                    if (target != null) {
+                        target.buffer.force();
+                    }
+                    target = createSegment(allocateSegmentId());
+                    written.add(target);
+                }
+                Segment source = candidates.get(segmentId(indexed.location()));
+                byte[] bytes = new byte[indexed.bytes()];
+                source.buffer.get(offset(indexed.location()), bytes);
+                target.buffer.put(target.size, bytes);
+                moved.put(entry.getKey(), new Indexed(location(target.id, target.size), indexed.sequence(),
+                    indexed.bytes(), indexed.codeVersions(), indexed.apiSpecVersion()));
+                target.size += indexed.bytes();
+            }
+            if (target != null) {
+                target.buffer.force(); // Durable before the originals are deleted
+            }
+        } catch (RuntimeException e) {
+            log.error("Version history compaction failed, keeping the segments as they are: {}", e.getMessage(), e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : written) {
+                segments.put(segment.id, segment);
+            }
+            for (Map.Entry<RecordKey, Indexed> entry : moving) {
+                Indexed original = entry.getValue();
+                Indexed copy = moved.get(entry.getKey());
+                Segment target = segments.get(segmentId(copy.location()));
+                // Superseded while being copied, then the copy is garbage from the start
+                if (current.get(entry.getKey()) == original) {
+                    unindex(entry.getKey(), original);
+                    current.put(entry.getKey(), copy);
+                    addToIndexes(entry.getKey(), copy);
+                    target.liveBytes += copy.bytes();
+                }
+            }
+            for (Segment segment : candidates.values()) {
+                segments.remove(segment.id);
+                Files.deleteIfExists(segment.file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete a compacted version history segment: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Compacted {} version history segments into {}, keeping {} records",
+            candidates.size(), written.size(), moving.size());
+    }
+
+    private int allocateSegmentId() {
+        lock.writeLock().lock();
+        try {
+            return nextSegmentId++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(VersionRecord record, long sequence, long location, int bytes) {
+        RecordKey key = keyOf(record);
+        Indexed previous = current.get(key);
+        if (previous != null && previous.sequence() >= sequence) {
+            return; // A copy of a record already indexed, left behind by an interrupted compaction
+        }
+        if (losesKnownVersion(previous, record)) {
+            return; // Appended before unknown versions were kept from superseding known ones
+        }
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        Indexed indexed = new Indexed(location, sequence, bytes, codeVersionsOf(record), record.apiSpecVersion());
+        current.put(key, indexed);
+        addToIndexes(key, indexed);
+        segmentOf(location).liveBytes += bytes;
+    }
+
+    private static RecordKey keyOf(VersionRecord record) {
+        return new RecordKey(record.projectId(), record.mergeRequestIid(), record.commitSha(), record.apiSpecFile());
+    }
+
+    // Whether the record has an unknown version where the current record of its key has a known one
+    private static boolean losesKnownVersion(Indexed previous, VersionRecord record) {
+        if (previous == null) {
+            return false;
+        }
+        boolean codeVersionLost = VersionRecord.UNKNOWN_VERSION.equals(record.codeVersion())
+            && !previous.codeVersions().isEmpty() && !previous.codeVersions().contains(VersionRecord.UNKNOWN_VERSION);
+        boolean apiSpecVersionLost = VersionRecord.UNKNOWN_VERSION.equals(record.apiSpecVersion())
+            && previous.apiSpecVersion() != null && !VersionRecord.UNKNOWN_VERSION.equals(previous.apiSpecVersion());
+        return codeVersionLost || apiSpecVersionLost;
+    }
+
+    private void addToIndexes(RecordKey key, Indexed indexed) {
+        byProject.computeIfAbsent(key.projectId(), id -> new TreeSet<>()).add(indexed.location());
+        for (String codeVersion : indexed.codeVersions()) {
+            byCodeVersion.computeIfAbsent(new VersionKey(key.projectId(), codeVersion), k -> new TreeSet<>())
+                .add(indexed.location());
+        }
+        if (indexed.apiSpecVersion() != null) {
+            byApiSpecVersion.computeIfAbsent(new VersionKey(key.projectId(), indexed.apiSpecVersion()),
+                k -> new TreeSet<>()).add(indexed.location());
+        }
+    }
+
+    private void unindex(RecordKey key, Indexed indexed) {
+        removeFrom(byProject, key.projectId(), indexed.location());
+        for (String codeVersion : indexed.codeVersions()) {
+            removeFrom(byCodeVersion, new VersionKey(key.projectId(), codeVersion), indexed.location());
+        }
+        if (indexed.apiSpecVersion() != null) {
+            removeFrom(byApiSpecVersion, new VersionKey(key.projectId(), indexed.apiSpecVersion()), indexed.location());
+        }
+        Segment segment = segments.get(segmentId(indexed.location()));
+        if (segment != null) {
+            segment.liveBytes -= indexed.bytes();
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, NavigableSet<Long>> index, K key, long location) {
+        NavigableSet<Long> locations = index.get(key);
+        if (locations != null && locations.remove(location) && locations.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // The code version as logged, plus the bare pom.xml version in front of the short SHA
+    private static Set<String> codeVersionsOf(VersionRecord record) {
+        String codeVersion = record.codeVersion();
+        if (codeVersion == null) {
+            return Set.of();
+        }
+        String sha = record.commitSha();
+        if (sha != null && sha.length() >= 8 && codeVersion.endsWith("-" + sha.substring(0, 8))) {
+            return Set.of(codeVersion, codeVersion.substring(0, codeVersion.length() - 9));
+        }
+        return Set.of(codeVersion);
+    }
+
+    private Segment segmentOf(long location) {
+        return segments.get(segmentId(location));
+    }
+
+    private static long location(int segmentId, int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private Segment createSegment(int id) {
+        Path file = dir.resolve("segment-%010d.log".formatted(id));
+        try {
+            Files.createDirectories(dir);
+            return new Segment(id, file, map(file, FileChannel.MapMode.READ_WRITE, segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create version history segment " + file, e);
+        }
+    }
+
+    // The mapping stays valid after the channel is closed
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode, long size) throws IOException {
+        try (FileChannel channel = mode == FileChannel.MapMode.READ_ONLY
+                ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    private void load() {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+            ids.sort(null);
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                Path file = dir.resolve("segment-%010d.log".formatted(id));
+                boolean last = i == ids.size() - 1;
+                long fileSize = Files.size(file);
+                // The newest segment is appended to, if there is room left
+                MappedByteBuffer buffer = last
+                    ? map(file, FileChannel.MapMode.READ_WRITE, Math.max(fileSize, segmentSize))
+                    : map(file, FileChannel.MapMode.READ_ONLY, fileSize);
+                Segment segment = new Segment(id, file, buffer);
+                segments.put(id, segment);
+                scan(segment);
+                if (last) {
+                    active = segment;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load version history from " + dir, e);
+        }
+        nextSegmentId = ids.isEmpty() ? 0 : ids.get(ids.size() - 1) + 1;
+        log.info("Loaded {} version records from {} segments in {}", current.size(), segments.size(), dir);
+    }
+
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0) {
+                break; // End of the records
+            }
+            if (length < FIXED_PAYLOAD_BYTES || offset + HEADER_BYTES + length > buffer.capacity()
+                    || !checksumMatches(buffer, offset, length)) {
+                log.warn("Version history segment {} ends in a torn record at offset {}", segment.file, offset);
+                break;
+            }
+            Decoded decoded = decode(buffer, offset + HEADER_BYTES);
+            segment.size = offset + HEADER_BYTES + length; // Before indexing, which looks the segment up
+            lastSequence = Math.max(lastSequence, decoded.sequence());
+            index(decoded.record(), decoded.sequence(), location(segment.id, offset), HEADER_BYTES + length);
+            offset += HEADER_BYTES + length;
+        }
+        segment.size = offset;
+    }
+
+    private static boolean checksumMatches(MappedByteBuffer buffer, int offset, int length) {
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + 4);
+    }
+
+    // Sequence, project, iid, timestamp millis, then each string as a length-prefixed UTF-8 field
+    private static byte[] encode(long sequence, VersionRecord record) {
+        byte[][] strings = {
+            utf8(record.commitSha()), utf8(record.targetBranch()), utf8(record.codeVersion()),
+            utf8(record.apiSpecFile()), utf8(record.apiSpecVersion())};
+        int size = FIXED_PAYLOAD_BYTES;
+        for (byte[] string : strings) {
+            size += 2 + (string != null ? string.length : 0);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size)
+            .putLong(sequence)
+            .putLong(record.projectId())
+            .putLong(record.mergeRequestIid())
+            .putLong(record.timestamp().toEpochMilli());
+        for (byte[] string : strings) {
+            if (string == null) {
+                payload.putShort(NULL_STRING);
+            } else {
+                payload.putShort((short) string.length).put(string);
+            }
+        }
+        return payload.array();
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Version record field of " + bytes.length + " bytes is too long");
+        }
+        return bytes;
+    }
+
+    private static Decoded decode(MappedByteBuffer buffer, int position) {
+        long sequence = buffer.getLong(position);
+        long projectId = buffer.getLong(position + 8);
+        long iid = buffer.getLong(position + 16);
+        long timestamp = buffer.getLong(position + 24);
+        int cursor = position + FIXED_PAYLOAD_BYTES;
+        String[] strings = new String[STRING_FIELDS];
+        for (int i = 0; i < STRING_FIELDS; i++) {
+            short length = buffer.getShort(cursor);
+            cursor += 2;
+            if (length != NULL_STRING) {
+                byte[] bytes = new byte[length];
+                buffer.get(cursor, bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                cursor += length;
+            }
+        }
+        return new Decoded(sequence, new VersionRecord(projectId, iid, strings[0], strings[1], strings[2], strings[3],
+            strings[4], Instant.ofEpochMilli(timestamp)));
+    }
+
+    @Override
+    public void destroy() {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.buffer.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
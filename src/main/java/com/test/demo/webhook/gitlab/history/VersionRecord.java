@@ -0,0 +1,28 @@
+package com.test.demo.webhook.gitlab.history;
+
+import java.time.Instant;
+
+/**
+ * The versions extracted for one API spec file of a merged merge request.
+ *
+ * @param codeVersion    The pom.xml version with the short commit SHA appended, e.g. {@code 1.4.0-0123abcd},
+ *                       or {@code unknown}.
+ * @param apiSpecVersion The {@code info.version} of the spec file, or {@code unknown}.
+ * @param timestamp      When the versions were extracted.
+ */
+public record VersionRecord(
+    Long projectId,
+    Long mergeRequestIid,
+    String commitSha,
+    String targetBranch,
+    String codeVersion,
+    String apiSpecFile,
+    String apiSpecVersion,
+    Instant timestamp
+) {
+
+    /**
+     * Stands in for a version that could not be extracted, e.g. because the file was missing or GitLab failed.
+     */
+    public static final String UNKNOWN_VERSION = "unknown";
+}
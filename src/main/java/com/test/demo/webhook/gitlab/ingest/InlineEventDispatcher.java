@@ -0,0 +1,24 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.MergeRequestProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Processes events within the webhook request; the response completes once processing has finished.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "gitlab.webhook.ingestion.mode", havingValue = "inline", matchIfMissing = true)
+public class InlineEventDispatcher implements MergeRequestEventDispatcher {
+
+    private final MergeRequestProcessor mergeRequestProcessor;
+
+    @Override
+    public Mono<Void> dispatch(MergeRequestEvent event) {
+        return mergeRequestProcessor.processEvent(event);
+    }
+}
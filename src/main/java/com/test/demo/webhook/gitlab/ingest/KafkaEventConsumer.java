@@ -0,0 +1,59 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.MergeRequestProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Consumes webhook events published by {@link KafkaEventDispatcher} in batches and runs them through the
+ * {@link MergeRequestProcessor}. Offsets are only committed after the whole batch has been processed, so
+ * events in flight during a crash or restart are redelivered.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gitlab.webhook.ingestion.mode", havingValue = "kafka")
+public class KafkaEventConsumer {
+
+    private final MergeRequestProcessor mergeRequestProcessor;
+    private final int batchConcurrency;
+    private final Duration processingTimeout;
+
+    public KafkaEventConsumer(MergeRequestProcessor mergeRequestProcessor, WebhookProperties webhookProperties) {
+        this.mergeRequestProcessor = mergeRequestProcessor;
+        this.batchConcurrency = webhookProperties.getIngestion().getKafka().getBatchConcurrency();
+        this.processingTimeout = webhookProperties.getIngestion().getProcessingTimeout();
+    }
+
+    @KafkaListener(
+            topics = "${gitlab.webhook.ingestion.kafka.topic:gitlab-merge-request-events}",
+            containerFactory = "mergeRequestEventListenerFactory")
+    public void consume(List<ConsumerRecord<String, MergeRequestEvent>> records, Acknowledgment acknowledgment) {
+        // Null values are records the ErrorHandlingDeserializer could not decode
+        List<MergeRequestEvent> events = records.stream()
+                .map(ConsumerRecord::value)
+                .filter(Objects::nonNull)
+                .toList();
+        if (events.size() < records.size()) {
+            log.warn("Skipping {} undecodable webhook events in batch of {}", records.size() - events.size(), records.size());
+        }
+
+        // processEvent logs and swallows its own errors; a timeout fails the batch so it is redelivered
+        Flux.fromIterable(events)
+                .flatMap(mergeRequestProcessor::processEvent, batchConcurrency)
+                .then()
+                .block(processingTimeout);
+
+        acknowledgment.acknowledge();
+    }
+}
@@ -0,0 +1,49 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Publishes the raw event to Kafka, keyed by target project id so all events of a project land on the same
+ * partition. The webhook is acknowledged once the broker has stored the event; processing happens in
+ * {@link KafkaEventConsumer}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gitlab.webhook.ingestion.mode", havingValue = "kafka")
+public class KafkaEventDispatcher implements MergeRequestEventDispatcher {
+
+    private final KafkaTemplate<String, MergeRequestEvent> kafkaTemplate;
+    private final String topic;
+
+    public KafkaEventDispatcher(@Qualifier("mergeRequestEventKafkaTemplate") KafkaTemplate<String, MergeRequestEvent> kafkaTemplate,
+                                WebhookProperties webhookProperties) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = webhookProperties.getIngestion().getKafka().getTopic();
+    }
+
+    @Override
+    public Mono<Void> dispatch(MergeRequestEvent event) {
+        String key = partitionKey(event);
+        // send() may block on metadata lookups, so keep it off the Netty event loop
+        return Mono.fromFuture(() -> kafkaTemplate.send(topic, key, event))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(e -> log.error("Failed to publish webhook event for project {} to topic '{}': {}",
+                        key, topic, e.getMessage(), e))
+                .then();
+    }
+
+    static String partitionKey(MergeRequestEvent event) {
+        // Events without a project id are rejected by the validator anyway; a null key spreads them out
+        return event != null && event.attributes() != null && event.attributes().targetProjectId() != null
+                ? String.valueOf(event.attributes().targetProjectId())
+                : null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands received merge request events over to the processing pipeline.
+ * The implementation is selected by {@code gitlab.webhook.ingestion.mode}.
+ */
+public interface MergeRequestEventDispatcher {
+
+    /**
+     * Dispatches the event for processing.
+     *
+     * @param event The merge request event received by the webhook.
+     * @return A Mono completing once the event has been accepted (and, depending on the mode, processed),
+     *         or erroring if the event could not be accepted.
+     */
+    Mono<Void> dispatch(MergeRequestEvent event);
+}
@@ -0,0 +1,127 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.MergeRequestProcessor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acknowledges events as soon as they are enqueued in a bounded in-process queue, which is drained
+ * by a fixed pool of workers running the {@link MergeRequestProcessor}.
+ * <p>
+ * When the queue is full the event is rejected with 503 so GitLab redelivers it later.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gitlab.webhook.ingestion.mode", havingValue = "queue")
+public class QueuedEventDispatcher implements MergeRequestEventDispatcher, DisposableBean {
+
+    private final MergeRequestProcessor mergeRequestProcessor;
+    private final ThreadPoolExecutor executor;
+    private final Duration processingTimeout;
+    private final Duration shutdownTimeout;
+
+    private final Timer queueWaitTimer;
+    private final Timer processingTimer;
+    private final Counter rejectedCounter;
+
+    public QueuedEventDispatcher(MergeRequestProcessor mergeRequestProcessor,
+                                 WebhookProperties webhookProperties,
+                                 MeterRegistry meterRegistry) {
+        WebhookProperties.Ingestion ingestion = webhookProperties.getIngestion();
+        this.mergeRequestProcessor = mergeRequestProcessor;
+        this.processingTimeout = ingestion.getProcessingTimeout();
+        this.shutdownTimeout = ingestion.getShutdownTimeout();
+        this.executor = new ThreadPoolExecutor(
+                ingestion.getWorkers(), ingestion.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ingestion.getQueueCapacity()),
+                new CustomizableThreadFactory("webhook-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("gitlab.webhook.queue.depth", executor, e -> e.getQueue().size())
+                .description("Events waiting in the webhook queue")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.webhook.queue.remaining", executor, e -> e.getQueue().remainingCapacity())
+                .description("Remaining capacity of the webhook queue")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.webhook.queue.active.workers", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Workers currently processing an event")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("gitlab.webhook.queue.wait")
+                .description("Time events spend in the webhook queue before a worker picks them up")
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("gitlab.webhook.queue.processing")
+                .description("Time workers spend processing a dequeued event")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("gitlab.webhook.queue.rejected")
+                .description("Events rejected because the webhook queue was full")
+                .register(meterRegistry);
+
+        log.info("Webhook events are processed asynchronously: queueCapacity={}, workers={}",
+                ingestion.getQueueCapacity(), ingestion.getWorkers());
+    }
+
+    @Override
+    public Mono<Void> dispatch(MergeRequestEvent event) {
+        return Mono.fromRunnable(() -> enqueue(event));
+    }
+
+    private void enqueue(MergeRequestEvent event) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> process(event, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Webhook queue is full, rejecting event for MR !{}", iidOf(event));
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Webhook queue is full");
+        }
+    }
+
+    private void process(MergeRequestEvent event, long enqueuedAt) {
+        long startedAt = System.nanoTime();
+        queueWaitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+        try {
+            mergeRequestProcessor.processEvent(event).block(processingTimeout);
+        } catch (Exception e) {
+            // processEvent already logs and swallows processing errors, so this is a timeout or a bug
+            log.error("Error processing queued event for MR !{}: {}", iidOf(event), e.getMessage(), e);
+        } finally {
+            processingTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops accepting events and waits for the queued ones to be processed.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            List<Runnable> dropped = executor.shutdownNow();
+            log.warn("Webhook queue did not drain within {}, dropping {} queued events", shutdownTimeout, dropped.size());
+        }
+    }
+
+    private static Object iidOf(MergeRequestEvent event) {
+        return event != null && event.attributes() != null ? event.attributes().iid() : "unknown";
+    }
+}
@@ -0,0 +1,289 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers recently processed events by (target project, iid, last commit SHA), so that webhooks GitLab
+ * redelivers, or sends more than once for one merge, are dropped instead of fetching and parsing everything again.
+ * <p>
+ * Keys are held in a Caffeine cache bounded by the window and by count, so a check is a single O(1) lookup.
+ * With a spill file configured, every remembered and forgotten key is also appended to it; on startup the keys
+ * still inside the window are loaded back and the file is rewritten with just those. It is rewritten the same way
+ * whenever {@code max-keys} lines have been appended since, so it stays bounded however long the process runs.
+ * <p>
+ * Checks never wait on the file: lines go through a bounded queue to a single writer thread, which also does the
+ * rewriting. While the queue is full, lines are dropped and the writer then rewrites the file from memory.
+ */
+@Slf4j
+@Component
+public class DuplicateEventFilter implements DisposableBean {
+
+    private record Key(long projectId, long iid, String commitSha) {
+    }
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final boolean enabled;
+    private final Duration window;
+    private final Clock clock;
+    private final Cache<Key, Long> seen; // Value: when the key was first seen, epoch millis
+    private final Counter suppressed;
+    private final Path spillFile; // null without a spill file
+    private final long compactAfterLines;
+    private final BlockingQueue<String> spillQueue; // null without a spill file
+    private final Thread spillWriter; // null without a spill file
+    private volatile boolean closed;
+    private final AtomicBoolean spillDropped = new AtomicBoolean();
+    // Only used on the spill writer thread once it is started
+    private BufferedWriter spill;
+    private long appendedLines; // Since the last compaction
+
+    @Autowired
+    public DuplicateEventFilter(WebhookProperties webhookProperties, MeterRegistry meterRegistry) {
+        this(webhookProperties, meterRegistry, Clock.systemUTC());
+    }
+
+    DuplicateEventFilter(WebhookProperties webhookProperties, MeterRegistry meterRegistry, Clock clock) {
+        WebhookProperties.Dedup dedup = webhookProperties.getDedup();
+        this.enabled = dedup.isEnabled();
+        this.window = dedup.getWindow();
+        this.clock = clock;
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(dedup.getMaxKeys())
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .expireAfter(new Expiry<Key, Long>() {
+                    // Keys restored from the spill file only live out what is left of their window
+                    @Override
+                    public long expireAfterCreate(Key key, Long seenAtMillis, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(window.toMillis() - (clock.millis() - seenAtMillis), 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Long seenAtMillis, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, seenAtMillis, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Long seenAtMillis, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.suppressed = Counter.builder("gitlab.webhook.duplicates.suppressed")
+                .description("Webhook events dropped as duplicates of a recently processed event")
+                .register(meterRegistry);
+        this.spillFile = enabled ? dedup.getSpillFile() : null;
+        this.compactAfterLines = dedup.getMaxKeys();
+        if (spillFile != null) {
+            openSpillFile();
+            this.spillQueue = new LinkedBlockingQueue<>((int) Math.min(compactAfterLines, Integer.MAX_VALUE));
+            this.spillWriter = new Thread(this::writeSpilled, "dedup-spill-writer");
+            spillWriter.setDaemon(true);
+            spillWriter.start();
+        } else {
+            this.spillQueue = null;
+            this.spillWriter = null;
+        }
+    }
+
+    /**
+     * Remembers the event and returns whether it is new; false means an event with the same key was seen within
+     * the window, and has been counted as suppressed. Events without a complete key are always new.
+     */
+    public boolean firstSeen(MergeRequestEvent event) {
+        Key key = keyOf(event);
+        if (!enabled || key == null) {
+            return true;
+        }
+        long now = clock.millis();
+        if (seen.asMap().putIfAbsent(key, now) != null) {
+            suppressed.increment();
+            return false;
+        }
+        append("+ " + now, key);
+        return true;
+    }
+
+    /**
+     * Forgets the event, e.g. because processing it failed, so that a redelivery is processed again.
+     */
+    public void forget(MergeRequestEvent event) {
+        Key key = keyOf(event);
+        if (!enabled || key == null) {
+            return;
+        }
+        if (seen.asMap().remove(key) != null) {
+            append("-", key);
+        }
+    }
+
+    long size() {
+        seen.cleanUp();
+        return seen.estimatedSize();
+    }
+
+    /**
+     * Waits for the queued lines to be written to the spill file, then closes it.
+     */
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        if (spillFile == null || closed) {
+            return;
+        }
+        closed = true;
+        spillWriter.join(SHUTDOWN_TIMEOUT.toMillis());
+        if (spillWriter.isAlive()) {
+            spillWriter.interrupt();
+            spillWriter.join(POLL_INTERVAL.toMillis());
+            log.warn("Dedup spill file writer did not finish within {}, {} lines not written", SHUTDOWN_TIMEOUT,
+                    spillQueue.size());
+        }
+        spill.close();
+    }
+
+    private static Key keyOf(MergeRequestEvent event) {
+        MergeRequestEvent.Attributes attributes = event.attributes();
+        if (attributes == null || attributes.targetProjectId() == null || attributes.iid() == null
+                || attributes.lastCommit() == null || attributes.lastCommit().id() == null) {
+            return null;
+        }
+        return new Key(attributes.targetProjectId(), attributes.iid(), attributes.lastCommit().id());
+    }
+
+    // Line format: "+ <seen at millis> <project> <iid> <sha>" or "- <project> <iid> <sha>"
+    private void append(String prefix, Key key) {
+        if (spillFile == null) {
+            return;
+        }
+        if (!spillQueue.offer(prefix + ' ' + key.projectId() + ' ' + key.iid() + ' ' + key.commitSha())) {
+            // The writer rewrites the file from memory instead, which covers the dropped line
+            spillDropped.set(true);
+            log.debug("Dedup spill queue is full, not spilling MR !{} at commit {}", key.iid(), key.commitSha());
+        }
+    }
+
+    private void writeSpilled() {
+        List<String> lines = new ArrayList<>();
+        try {
+            while (!closed || !spillQueue.isEmpty()) {
+                String line = spillQueue.poll(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    lines.add(line);
+                    spillQueue.drainTo(lines);
+                    write(lines);
+                    lines.clear();
+                }
+                if (spillDropped.getAndSet(false)) {
+                    rewrite();
+                }
+            }
+            if (spillDropped.getAndSet(false)) {
+                rewrite();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Appends the lines, rewriting the file whenever max-keys lines have been appended since the last time
+    private void write(List<String> lines) {
+        try {
+            for (String line : lines) {
+                spill.write(line);
+                spill.newLine();
+                if (++appendedLines >= compactAfterLines) {
+                    spill.close();
+                    compactSpillFile(Map.copyOf(seen.asMap()));
+                }
+            }
+            spill.flush();
+        } catch (IOException e) {
+            log.warn("Failed to append to dedup spill file: {}", e.getMessage());
+        }
+    }
+
+    // Lines still queued are appended after the rewrite and replay on top of it to the same state
+    private void rewrite() {
+        try {
+            spill.close();
+            compactSpillFile(Map.copyOf(seen.asMap()));
+        } catch (IOException e) {
+            log.warn("Failed to rewrite dedup spill file: {}", e.getMessage());
+        }
+    }
+
+    private void openSpillFile() {
+        Path file = spillFile;
+        try {
+            Map<Key, Long> live = new LinkedHashMap<>();
+            long cutoff = clock.millis() - window.toMillis();
+            if (Files.exists(file)) {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    String[] fields = line.split(" ");
+                    try {
+                        if (fields.length == 5 && fields[0].equals("+") && Long.parseLong(fields[1]) > cutoff) {
+                            live.put(new Key(Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4]), Long.parseLong(fields[1]));
+                        } else if (fields.length == 4 && fields[0].equals("-")) {
+                            live.remove(new Key(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+                        }
+                    } catch (NumberFormatException e) {
+                        log.warn("Skipping malformed dedup spill line: {}", line); // e.g. torn by a crash
+                    }
+                }
+            }
+            seen.putAll(live);
+            compactSpillFile(live);
+            log.info("Restored {} recently processed events from {}", live.size(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open dedup spill file " + file, e);
+        }
+    }
+
+    // Rewrites the file with only the live keys, then keeps appending to the new file
+    private void compactSpillFile(Map<Key, Long> live) throws IOException {
+        Path parent = spillFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path compacted = Files.createTempFile(parent, spillFile.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Key, Long> entry : live.entrySet()) {
+                Key key = entry.getKey();
+                writer.write("+ " + entry.getValue() + ' ' + key.projectId() + ' ' + key.iid() + ' ' + key.commitSha());
+                writer.newLine();
+            }
+        }
+        Files.move(compacted, spillFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        appendedLines = 0;
+    }
+}
@@ -1,56 +1,58 @@
 package com.test.demo.webhook.gitlab.processor;
 
 import com.test.demo.webhook.gitlab.client.GitLabApiClient;
-import com.test.demo.webhook.gitlab.dto.ApiResponses.*;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream; // Add import for Stream
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FileChangeAnalyzer {
-    private final Set<String> apiSpecFiles;
+    private final ProjectRoutes projectRoutes;
     private final GitLabApiClient gitLabApiClient;
 
     public Mono<List<String>> findChangedApiSpecFiles(MergeRequestEvent event) {
-        if (apiSpecFiles.isEmpty()) {
+        return findChangedApiSpecFiles(event, projectRoutes.routeFor(event));
+    }
+
+    /**
+     * Finds the changed files matching the API spec files of the given route of the event's target project.
+     */
+    public Mono<List<String>> findChangedApiSpecFiles(MergeRequestEvent event, ProjectRoute route) {
+        GlobPathMatcher apiSpecFileMatcher = route.apiSpecFileMatcher();
+        if (apiSpecFileMatcher.isEmpty()) {
             log.debug("No API spec files configured for checking");
             return Mono.just(Collections.emptyList());
         }
 
-        return gitLabApiClient.getMergeRequestChanges(
+        Flux<String> changedSpecFiles = gitLabApiClient.getMergeRequestDiffs(
             event.attributes().targetProjectId(), 
             event.attributes().iid()
         )
-        .map(this::filterRelevantChanges)
-        .defaultIfEmpty(Collections.emptyList());
-    }
+        .mapNotNull(FileChangeAnalyzer::pathOf)
+        .filter(apiSpecFileMatcher::matches)
+        .distinct();
 
-    private List<String> filterRelevantChanges(MergeRequestChanges changes) {
-        if (changes == null || changes.changes() == null) {
-            log.warn("No changes found in API response");
-            return Collections.emptyList();
+        // With literal paths only, each path matches at most once; when all have been seen the listing
+        // is cancelled, so the remaining pages of a large merge request are never fetched
+        if (apiSpecFileMatcher.isLiteralOnly()) {
+            changedSpecFiles = changedSpecFiles.take(apiSpecFileMatcher.patterns().size());
         }
+        return changedSpecFiles.collectList();
+    }
 
-        // Use flatMap to handle path selection and null filtering more robustly
-        return changes.changes().stream()
-            .filter(Objects::nonNull) // Ensure Change object is not null
-            .flatMap(change -> {
-                String path = change.newPath() != null ? change.newPath() : change.oldPath();
-                // If path is non-null and contained in the set, stream it, otherwise stream empty
-                return (path != null && apiSpecFiles.contains(path)) ? Stream.of(path) : Stream.empty();
-            })
-            .distinct()
-            .collect(Collectors.toList()); // Revert to Collectors.toList() for better type inference compatibility
+    // The new path, or the old one for changes without a new path
+    private static String pathOf(Change change) {
+        return change.newPath() != null ? change.newPath() : change.oldPath();
     }
 }
@@ -0,0 +1,212 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches repository paths against a set of glob patterns compiled into one segment trie.
+ * <p>
+ * Supported syntax, per {@code /}-separated segment: {@code *} matches any run of characters within the segment,
+ * {@code ?} matches one character, and a segment of exactly {@code **} matches zero or more whole segments.
+ * Anything else is literal, so <code>services/&#42;/APISPEC/&#42;&#42;/swagger.yml</code> and plain paths such as
+ * {@code APISPEC/resolved/swagger.yml} can be mixed freely.
+ * <p>
+ * Patterns sharing a prefix share trie nodes, and literal segments are looked up by hash. Matching a path therefore
+ * costs one step per segment for each live wildcard branch, independent of how many patterns are configured.
+ * Instances are immutable and thread-safe.
+ */
+public final class GlobPathMatcher {
+
+    private static final String ANY_SEGMENTS = "**";
+
+    private final Node root;
+    private final Set<String> patterns;
+    private final boolean literalOnly;
+
+    private GlobPathMatcher(Node root, Set<String> patterns, boolean literalOnly) {
+        this.root = root;
+        this.patterns = patterns;
+        this.literalOnly = literalOnly;
+    }
+
+    /**
+     * Compiles the patterns; blank entries are ignored and a leading {@code /} is dropped.
+     *
+     * @param patterns The glob patterns or literal paths.
+     * @return A matcher for all patterns.
+     */
+    public static GlobPathMatcher compile(Collection<String> patterns) {
+        Node root = new Node();
+        Set<String> normalized = new LinkedHashSet<>();
+        boolean literalOnly = true;
+        for (String pattern : patterns) {
+            String trimmed = pattern == null ? "" : pattern.trim();
+            while (trimmed.startsWith("/")) {
+                trimmed = trimmed.substring(1);
+            }
+            if (trimmed.isEmpty() || !normalized.add(trimmed)) {
+                continue;
+            }
+            Node node = root;
+            for (String segment : trimmed.split("/", -1)) {
+                node = node.child(segment);
+            }
+            node.terminal = true;
+            literalOnly &= !isWildcard(trimmed);
+        }
+        return new GlobPathMatcher(root, Set.copyOf(normalized), literalOnly);
+    }
+
+    /**
+     * Returns whether the path matches any of the patterns.
+     */
+    public boolean matches(String path) {
+        if (path == null || patterns.isEmpty()) {
+            return false;
+        }
+        List<Node> active = new ArrayList<>(4);
+        addWithAnySegments(active, root);
+
+        int start = path.startsWith("/") ? 1 : 0;
+        while (!active.isEmpty()) {
+            int end = path.indexOf('/', start);
+            String segment = end < 0 ? path.substring(start) : path.substring(start, end);
+
+            List<Node> next = new ArrayList<>(4);
+            for (Node node : active) {
+                node.advance(segment, next);
+            }
+            active = next;
+
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        for (Node node : active) {
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether no patterns were configured.
+     */
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * Returns whether every pattern is a literal path, so that each one can match at most one distinct path.
+     */
+    public boolean isLiteralOnly() {
+        return literalOnly;
+    }
+
+    /**
+     * Returns the distinct normalized patterns.
+     */
+    public Set<String> patterns() {
+        return patterns;
+    }
+
+    @Override
+    public String toString() {
+        return "GlobPathMatcher" + patterns;
+    }
+
+    private static boolean isWildcard(String text) {
+        return text.indexOf('*') >= 0 || text.indexOf('?') >= 0;
+    }
+
+    // Adds the node, and the '**' nodes reachable from it without consuming a segment
+    private static void addWithAnySegments(List<Node> active, Node node) {
+        while (node != null && !active.contains(node)) {
+            active.add(node);
+            node = node.anySegments;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final List<SegmentGlob> globs = new ArrayList<>();
+        private Node anySegment;   // '*' as a whole segment
+        private Node anySegments;  // '**'
+        private boolean selfLoop;  // This node was reached through '**' and may consume further segments
+        private boolean terminal;
+
+        Node child(String segment) {
+            if (ANY_SEGMENTS.equals(segment)) {
+                if (anySegments == null) {
+                    anySegments = new Node();
+                    anySegments.selfLoop = true;
+                }
+                return anySegments;
+            }
+            if ("*".equals(segment)) {
+                return anySegment != null ? anySegment : (anySegment = new Node());
+            }
+            if (isWildcard(segment)) {
+                for (SegmentGlob glob : globs) {
+                    if (glob.pattern.equals(segment)) {
+                        return glob.node;
+                    }
+                }
+                SegmentGlob glob = new SegmentGlob(segment, new Node());
+                globs.add(glob);
+                return glob.node;
+            }
+            return literals.computeIfAbsent(segment, s -> new Node());
+        }
+
+        void advance(String segment, List<Node> next) {
+            addWithAnySegments(next, literals.get(segment));
+            addWithAnySegments(next, anySegment);
+            for (SegmentGlob glob : globs) {
+                if (glob.matches(segment)) {
+                    addWithAnySegments(next, glob.node);
+                }
+            }
+            if (selfLoop) {
+                addWithAnySegments(next, this);
+            }
+        }
+    }
+
+    // A segment containing '*' or '?' among literal characters, e.g. 'swagger-*.yml'
+    private record SegmentGlob(String pattern, Node node) {
+
+        // Iterative wildcard matching with backtracking to the most recent '*'
+        boolean matches(String text) {
+            int t = 0;
+            int p = 0;
+            int starP = -1;
+            int starT = -1;
+            while (t < text.length()) {
+                if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                    t++;
+                    p++;
+                } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                    starP = p++;
+                    starT = t;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    t = ++starT;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pattern.length() && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == pattern.length();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Reads raw webhook bodies: a cheap pre-filter on a few fields, and binding to {@link MergeRequestEvent}
+ * for the bodies that pass it.
+ * <p>
+ * The pre-filter streams over the JSON tokens and only looks at {@code object_kind} and, within
+ * {@code object_attributes}, at {@code action}, {@code target_branch} and {@code target_project_id}; everything
+ * else is skipped without being materialised. It rejects exactly the deliveries {@link MergeRequestValidator}
+ * would reject for those fields, so most of them are dropped before any DTO or log line is built.
+ */
+@Slf4j
+@Component
+public class MergeRequestEventReader {
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader eventReader;
+    private final ProjectRoutes projectRoutes;
+
+    public MergeRequestEventReader(Jackson2ObjectMapperBuilder objectMapperBuilder, ProjectRoutes projectRoutes) {
+        // A JSON mapper: the application-wide one is YAML, whose parser is far slower on webhook payloads
+        ObjectMapper jsonMapper = objectMapperBuilder.build();
+        this.jsonFactory = jsonMapper.getFactory();
+        this.eventReader = jsonMapper.readerFor(MergeRequestEvent.class);
+        this.projectRoutes = projectRoutes;
+    }
+
+    /**
+     * Returns false if the body is certainly not a merge into a target branch of its project, reading only the
+     * fields needed to tell. Bodies that cannot be scanned, e.g. malformed JSON, are let through so that binding
+     * reports them.
+     */
+    public boolean isRelevant(byte[] body) {
+        String objectKind = null;
+        String action = null;
+        String targetBranch = null;
+        Long targetProjectId = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return true;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("object_kind".equals(field)) {
+                    objectKind = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    if (!"merge_request".equals(objectKind)) {
+                        return reject("object_kind", objectKind);
+                    }
+                } else if ("object_attributes".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String attribute = parser.currentName();
+                        JsonToken attributeValue = parser.nextToken();
+                        switch (attribute) {
+                            case "action" -> {
+                                action = attributeValue == JsonToken.VALUE_STRING ? parser.getText() : null;
+                                if (!"merge".equalsIgnoreCase(action)) {
+                                    return reject("action", action);
+                                }
+                            }
+                            case "target_branch" -> targetBranch = attributeValue == JsonToken.VALUE_STRING ? parser.getText() : null;
+                            case "target_project_id" -> targetProjectId = attributeValue == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                            default -> parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren(); // e.g. the user, project, labels and changes sections
+                }
+            }
+        } catch (IOException e) {
+            return true;
+        }
+        if (objectKind == null) {
+            return reject("object_kind", null);
+        }
+        if (action == null) {
+            return reject("action", null);
+        }
+        if (targetBranch == null || !projectRoutes.routeFor(targetProjectId).targetBranches().contains(targetBranch)) {
+            return reject("target_branch", targetBranch);
+        }
+        return true;
+    }
+
+    /**
+     * Binds a webhook body to the event.
+     *
+     * @throws IOException If the body is not a valid event.
+     */
+    public MergeRequestEvent read(byte[] body) throws IOException {
+        return eventReader.readValue(body);
+    }
+
+    private static boolean reject(String field, String value) {
+        log.debug("Dropping webhook before binding: {} is '{}'", field, value);
+        return false;
+    }
+}
@@ -1,12 +1,16 @@
 package com.test.demo.webhook.gitlab.processor;
 
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
 import com.test.demo.webhook.gitlab.service.MergeRequestService; // Import new service
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component; // Use @Component for processors
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Component // Changed from @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -15,32 +19,65 @@ public class MergeRequestProcessor {
     private final MergeRequestValidator validator;
     private final FileChangeAnalyzer changeAnalyzer;
     private final MergeRequestService mergeRequestService; // Inject new service
+    private final ProjectRoutes projectRoutes;
+    private final PipelineMetrics pipelineMetrics;
+    private final DuplicateEventFilter duplicateFilter;
 
     /**
      * Processes the incoming merge request event.
      * Validates the event, finds relevant changes, and delegates to the service for further processing.
+     * Each stage and the whole event are timed in {@link PipelineMetrics}.
      * @param event The merge request event.
      * @return A Mono indicating completion.
      */
     public Mono<Void> processEvent(MergeRequestEvent event) {
-        if (!validator.validate(event)) {
+        Long projectId = event.attributes() != null ? event.attributes().targetProjectId() : null;
+        return pipelineMetrics.timeProcessing(projectId, process(event, projectId)).then();
+    }
+
+    private Mono<ProcessingOutcome> process(MergeRequestEvent event, Long projectId) {
+        // One routing snapshot for the whole event, even if the routing file is reloaded meanwhile
+        ProjectRoute route = projectRoutes.routeFor(event);
+        long validationStart = System.nanoTime();
+        boolean valid = validator.validate(event, route);
+        pipelineMetrics.record(PipelineMetrics.Stage.VALIDATE, projectId,
+            valid ? ProcessingOutcome.PROCESSED : ProcessingOutcome.SKIPPED, validationStart);
+        if (!valid) {
             log.debug("MR event validation failed for MR !{}", event.attributes() != null ? event.attributes().iid() : "unknown");
-            return Mono.empty(); // Event is not valid or not relevant, stop processing.
+            return Mono.just(ProcessingOutcome.SKIPPED); // Event is not valid or not relevant, stop processing.
+        }
+        if (!duplicateFilter.firstSeen(event)) {
+            log.debug("Skipping MR !{}: already processed at commit {}", event.attributes().iid(), event.attributes().lastCommit().id());
+            return Mono.just(ProcessingOutcome.SKIPPED); // Redelivery or repeated event, acknowledged and dropped
         }
 
-        // Find changed API spec files and process the first one found.
-        return changeAnalyzer.findChangedApiSpecFiles(event)
-            .filter(changes -> !changes.isEmpty()) // Proceed only if relevant files changed
-            .flatMap(changes -> {
-                String specFilePath = changes.get(0); // Process the first relevant change
-                // Delegate the core logic to the service
-                return mergeRequestService.processMergeRequest(event, specFilePath);
-            })
+        // Find changed API spec files and process all of them in one pass.
+        Mono<List<String>> changedSpecFiles = pipelineMetrics.timeStage(PipelineMetrics.Stage.ANALYZE, projectId,
+            changeAnalyzer.findChangedApiSpecFiles(event, route),
+            changes -> changes.isEmpty() ? ProcessingOutcome.SKIPPED : ProcessingOutcome.PROCESSED,
+            ProcessingOutcome.SKIPPED);
+        return changedSpecFiles
+            // Delegate the core logic to the service, if relevant files changed
+            .flatMap(changes -> changes.isEmpty()
+                ? Mono.just(ProcessingOutcome.SKIPPED)
+                : mergeRequestService.processMergeRequest(event, changes))
             .doOnError(e -> log.error("Error processing MR !{}: {}", event.attributes().iid(), e.getMessage(), e))
             .onErrorResume(e -> {
-                // Ensure completion even if the service fails (error is already logged)
-                return Mono.empty(); 
+                // Ensure completion even if the analyzer or the service fails (error is already logged)
+                return Mono.just(ProcessingOutcome.ERROR);
+            })
+            // The event stays seen only if its changes were listed and processed or found irrelevant; after a
+            // failed or incomplete GitLab fetch (ERROR, or UNKNOWN versions) a redelivery should try again
+            .doOnNext(outcome -> {
+                if (outcome != ProcessingOutcome.PROCESSED && outcome != ProcessingOutcome.SKIPPED) {
+                    duplicateFilter.forget(event);
+                }
             })
-            .then(); // Ensure the final result is Mono<Void>
+            // No change list at all, so nothing was decided about the event
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                duplicateFilter.forget(event);
+                return ProcessingOutcome.SKIPPED;
+            }))
+            .doOnCancel(() -> duplicateFilter.forget(event));
     }
 }
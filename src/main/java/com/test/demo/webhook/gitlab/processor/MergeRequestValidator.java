@@ -1,26 +1,34 @@
 package com.test.demo.webhook.gitlab.processor;
 
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.util.Set;
 import java.util.function.Predicate;
 
 @Slf4j
 @Component
 public class MergeRequestValidator {
-    private final Set<String> targetBranches;
+    private final ProjectRoutes projectRoutes;
 
-    public MergeRequestValidator(Set<String> targetBranches) {
-        this.targetBranches = targetBranches;
+    public MergeRequestValidator(ProjectRoutes projectRoutes) {
+        this.projectRoutes = projectRoutes;
     }
 
     public boolean validate(MergeRequestEvent event) {
+        return validate(event, projectRoutes.routeFor(event));
+    }
+
+    /**
+     * Validates the event against the given route of its target project.
+     */
+    public boolean validate(MergeRequestEvent event, ProjectRoute route) {
         return isValidEvent(event) &&
                isMergeEvent(event) &&
-               hasValidTargetBranch(event);
+               hasValidTargetBranch(event, route);
     }
 
     private boolean isValidEvent(MergeRequestEvent event) {
@@ -49,12 +57,12 @@ public class MergeRequestValidator {
         return true;
     }
 
-    private boolean hasValidTargetBranch(MergeRequestEvent event) {
+    private boolean hasValidTargetBranch(MergeRequestEvent event, ProjectRoute route) {
         String targetBranch = event.attributes().targetBranch();
         // Add null check for targetBranch
-        if (targetBranch == null || !targetBranches.contains(targetBranch)) {
-            log.info("Skipping MR !{}: Target branch '{}' is null or not in configured list {}",
-                event.attributes().iid(), targetBranch, targetBranches);
+        if (targetBranch == null || !route.targetBranches().contains(targetBranch)) {
+            log.info("Skipping MR !{}: Target branch '{}' is null or not in configured list {} of project {}",
+                event.attributes().iid(), targetBranch, route.targetBranches(), event.attributes().targetProjectId());
             return false;
         }
         return true;
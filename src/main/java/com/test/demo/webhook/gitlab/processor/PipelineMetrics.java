@@ -0,0 +1,119 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Latency of the webhook pipeline, per stage and end to end, tagged by target project and outcome.
+ * <p>
+ * Stages are recorded in {@code gitlab.webhook.stage}, tagged {@code stage}, and whole events in
+ * {@code gitlab.webhook.processing}. Histogram buckets and SLO boundaries are configured under
+ * {@code management.metrics.distribution}, so they can be tuned without a release.
+ * <p>
+ * The {@code project} tag names only projects with their own entry in the routing file, and is {@code other} for
+ * the rest: project ids come from unauthenticated webhook bodies, and each distinct tag value would otherwise add
+ * a full set of histogram buckets to the registry.
+ */
+@Component
+public class PipelineMetrics {
+
+    static final String STAGE_TIMER = "gitlab.webhook.stage";
+    static final String PROCESSING_TIMER = "gitlab.webhook.processing";
+    static final String OTHER_PROJECT = "other";
+
+    /**
+     * Timed stages, in pipeline order.
+     */
+    public enum Stage {
+        RECEIVE,     // Controller: dispatching the event, inline processing included
+        VALIDATE,    // MergeRequestValidator
+        ANALYZE,     // FileChangeAnalyzer: listing the MR diffs for changed spec files
+        FETCH_POM,   // Raw pom.xml from GitLab
+        FETCH_SPEC,  // Raw API spec file from GitLab, per file
+        PARSE_POM,   // VersionExtractor on pom.xml
+        PARSE_SPEC;  // VersionExtractor on an API spec file, per file
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private record TimerKey(String name, Stage stage, String project, ProcessingOutcome outcome) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ProjectRoutes projectRoutes;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry meterRegistry, ProjectRoutes projectRoutes) {
+        this.meterRegistry = meterRegistry;
+        this.projectRoutes = projectRoutes;
+    }
+
+    /**
+     * Records a synchronous stage that started at {@code startNanos} ({@link System#nanoTime()}) and just ended.
+     */
+    public void record(Stage stage, Long projectId, ProcessingOutcome outcome, long startNanos) {
+        timer(STAGE_TIMER, stage, projectId, outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times a stage from subscription until it emits, completes empty or fails. Cancellation is not recorded.
+     *
+     * @param outcomeOfValue Outcome when the stage emits a value.
+     * @param outcomeIfEmpty Outcome when it completes without one.
+     */
+    public <T> Mono<T> timeStage(Stage stage, Long projectId, Mono<T> source,
+                                 Function<? super T, ProcessingOutcome> outcomeOfValue, ProcessingOutcome outcomeIfEmpty) {
+        return time(STAGE_TIMER, stage, projectId, source, outcomeOfValue, outcomeIfEmpty);
+    }
+
+    /**
+     * Times the processing of a whole event, ending with the given outcome.
+     */
+    public Mono<ProcessingOutcome> timeProcessing(Long projectId, Mono<ProcessingOutcome> source) {
+        return time(PROCESSING_TIMER, null, projectId, source, Function.identity(), ProcessingOutcome.SKIPPED);
+    }
+
+    private <T> Mono<T> time(String name, Stage stage, Long projectId, Mono<T> source,
+                             Function<? super T, ProcessingOutcome> outcomeOfValue, ProcessingOutcome outcomeIfEmpty) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return source
+                .doOnSuccess(value -> sample.stop(timer(name, stage, projectId,
+                    value != null ? outcomeOfValue.apply(value) : outcomeIfEmpty)))
+                .doOnError(e -> sample.stop(timer(name, stage, projectId, ProcessingOutcome.ERROR)));
+        });
+    }
+
+    private Timer timer(String name, Stage stage, Long projectId, ProcessingOutcome outcome) {
+        String project = projectTag(projectId);
+        return timers.computeIfAbsent(new TimerKey(name, stage, project, outcome), key -> {
+            Timer.Builder builder = Timer.builder(name)
+                .tag("project", key.project())
+                .tag("outcome", key.outcome().tag());
+            if (key.stage() != null) {
+                builder.description("Latency of one stage of processing a GitLab merge request webhook")
+                    .tag("stage", key.stage().tag());
+            } else {
+                builder.description("End-to-end latency of processing a GitLab merge request webhook");
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private String projectTag(Long projectId) {
+        if (projectId == null) {
+            return "none";
+        }
+        return projectRoutes.current().hasRoute(projectId) ? projectId.toString() : OTHER_PROJECT;
+    }
+}
@@ -0,0 +1,96 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import org.codehaus.plexus.util.xml.pull.EntityReplacementMap;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.IOException;
+
+/**
+ * Pull-parser scan of a pom.xml for the top-level {@code <version>} and {@code <parent><version>},
+ * without building a Maven {@code Model}.
+ * <p>
+ * The scan stops as soon as the project version is read, since it takes precedence over the parent version.
+ * Other top-level elements, including bulky sections such as dependencies or build, are skipped without
+ * looking inside, so a version declared after them, against Maven's conventional element order, is still found.
+ */
+final class PomVersionScanner {
+
+    private static final String PROJECT_ELEMENT = "project";
+    private static final String PARENT_ELEMENT = "parent";
+    private static final String VERSION_ELEMENT = "version";
+
+    private PomVersionScanner() {
+    }
+
+    /**
+     * Result of the scan; either version may be null.
+     */
+    record PomVersions(String version, String parentVersion) {}
+
+    /**
+     * Creates a parser that, like Maven's own reader, accepts the HTML entities commonly found in POMs.
+     */
+    static XmlPullParser newParser() {
+        return new MXParser(EntityReplacementMap.defaultEntityReplacementMap);
+    }
+
+    /**
+     * Scans a parser already positioned at the start of the input.
+     */
+    static PomVersions scan(XmlPullParser parser) throws XmlPullParserException, IOException {
+        String parentVersion = null;
+
+        int eventType = parser.nextTag(); // Skips the prolog and positions on the root element
+        if (!PROJECT_ELEMENT.equals(parser.getName())) {
+            throw new XmlPullParserException("Expected root element 'project' but found '" + parser.getName() + "'", parser, null);
+        }
+
+        while ((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.END_TAG && parser.getDepth() == 1) {
+                break; // End of </project>
+            }
+            if (eventType != XmlPullParser.START_TAG || parser.getDepth() != 2) {
+                continue;
+            }
+            String name = parser.getName();
+            if (VERSION_ELEMENT.equals(name)) {
+                return new PomVersions(parser.nextText().trim(), parentVersion);
+            } else if (PARENT_ELEMENT.equals(name)) {
+                parentVersion = scanParentVersion(parser);
+            } else {
+                skipElement(parser);
+            }
+        }
+        return new PomVersions(null, parentVersion);
+    }
+
+    // Reads <parent> up to its end tag and returns its <version>, if any
+    private static String scanParentVersion(XmlPullParser parser) throws XmlPullParserException, IOException {
+        String parentVersion = null;
+        int parentDepth = parser.getDepth();
+        int eventType;
+        while ((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.END_TAG && parser.getDepth() == parentDepth) {
+                break;
+            }
+            if (eventType == XmlPullParser.START_TAG && parser.getDepth() == parentDepth + 1
+                    && VERSION_ELEMENT.equals(parser.getName())) {
+                parentVersion = parser.nextText().trim();
+            }
+        }
+        return parentVersion;
+    }
+
+    // Advances past the end tag of the element the parser is positioned on
+    private static void skipElement(XmlPullParser parser) throws XmlPullParserException, IOException {
+        int depth = parser.getDepth();
+        int eventType;
+        while ((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.END_TAG && parser.getDepth() == depth) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.test.demo.webhook.gitlab.processor;
+
+/**
+ * How a merge request event, or one stage of processing it, ended; the {@code outcome} tag of the pipeline metrics.
+ */
+public enum ProcessingOutcome {
+    SKIPPED,    // Not relevant, e.g. not a merge into a target branch or no API spec file changed
+    PROCESSED,  // Every version was extracted
+    UNKNOWN,    // Finished, but at least one version is unknown, e.g. a file was missing
+    ERROR;      // Failed
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
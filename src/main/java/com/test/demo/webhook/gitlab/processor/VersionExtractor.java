@@ -1,16 +1,17 @@
 package com.test.demo.webhook.gitlab.processor;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.StringReader;
 
 @Component
 public class VersionExtractor {
@@ -19,60 +20,146 @@ public class VersionExtractor {
     private static final String YAML_VERSION_FIELD = "version";
 
     private final ObjectMapper yamlMapper;
-    private final MavenXpp3Reader pomReader;
 
-    public VersionExtractor(ObjectMapper yamlMapper, MavenXpp3Reader pomReader) {
+    public VersionExtractor(ObjectMapper yamlMapper) {
         this.yamlMapper = yamlMapper;
-        this.pomReader = pomReader;
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Opens a token parser over an API spec's source using the given factory
+    @FunctionalInterface
+    private interface SpecParserOpener {
+        JsonParser open(JsonFactory factory) throws IOException;
     }
 
     public String extractPomVersion(String pomContent) throws VersionExtractionException { // Use custom exception
-        try (InputStreamReader reader = new InputStreamReader(
-            new ByteArrayInputStream(pomContent.getBytes(StandardCharsets.UTF_8)))) {
-
-            Model model = pomReader.read(reader);
-            String version = model.getVersion();
-            // Handle potential null parent or parent version gracefully
-            String parentVersion = (model.getParent() != null) ? model.getParent().getVersion() : null;
-            
-            if (version != null) {
-                return version;
-            } else if (parentVersion != null) {
-                return parentVersion;
-            } else {
-                 // Explicitly return unknown if neither is found, avoid throwing exception for this case
-                return UNKNOWN_VERSION;
-            }
+        XmlPullParser parser = PomVersionScanner.newParser();
+        try {
+            parser.setInput(new StringReader(pomContent));
+            return versionOf(PomVersionScanner.scan(parser));
         } catch (IOException | XmlPullParserException e) {
             throw new VersionExtractionException("Failed to parse pom.xml: " + e.getMessage(), e); // Use custom exception
         }
     }
 
+    /**
+     * Extracts the version from raw pom.xml bytes; the XML parser detects the encoding itself.
+     */
+    public String extractPomVersion(byte[] pomContent) throws VersionExtractionException {
+        XmlPullParser parser = PomVersionScanner.newParser();
+        try {
+            parser.setInput(new ByteArrayInputStream(pomContent), null);
+            return versionOf(PomVersionScanner.scan(parser));
+        } catch (IOException | XmlPullParserException e) {
+            throw new VersionExtractionException("Failed to parse pom.xml: " + e.getMessage(), e);
+        }
+    }
+
+    // Project version wins over the parent version; neither present means unknown
+    private String versionOf(PomVersionScanner.PomVersions versions) {
+        if (versions.version() != null) {
+            return versions.version();
+        } else if (versions.parentVersion() != null) {
+            return versions.parentVersion();
+        } else {
+            // Explicitly return unknown if neither is found, avoid throwing exception for this case
+            return UNKNOWN_VERSION;
+        }
+    }
+
     public String extractApiSpecVersion(String specContent, String filePath) throws VersionExtractionException {
+        return extractApiSpecVersion(factory -> factory.createParser(specContent), looksLikeJson(specContent), filePath);
+    }
+
+    /**
+     * Extracts the API spec version from raw spec bytes without decoding them to a String first.
+     */
+    public String extractApiSpecVersion(byte[] specContent, String filePath) throws VersionExtractionException {
+        return extractApiSpecVersion(factory -> factory.createParser(specContent), looksLikeJson(specContent), filePath);
+    }
+
+    /**
+     * Streams tokens up to {@code info.version}, skipping every other subtree without materializing it,
+     * and stops parsing as soon as the version is read. JSON specs go through the (much faster) JSON parser,
+     * falling back to YAML, which also covers YAML flow mappings that merely start with '{'.
+     */
+    private String extractApiSpecVersion(SpecParserOpener opener, boolean json, String filePath) throws VersionExtractionException {
+        if (json) {
+            try {
+                return scanApiSpecVersion(opener, JSON_FACTORY, filePath);
+            } catch (JsonProcessingException e) {
+                // Not strict JSON; let the YAML parser have a go below
+            } catch (IOException e) {
+                throw new VersionExtractionException("Failed to parse API spec YAML '" + filePath + "': " + e.getMessage(), e);
+            }
+        }
         try {
-            JsonNode rootNode = yamlMapper.readTree(specContent);
-            JsonNode infoNode = rootNode.path(YAML_INFO_FIELD);
+            return scanApiSpecVersion(opener, yamlMapper.getFactory(), filePath);
+        } catch (IOException e) {
+            throw new VersionExtractionException("Failed to parse API spec YAML '" + filePath + "': " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw new VersionExtractionException("Unexpected error parsing API spec YAML '" + filePath + "': " + e.getMessage(), e);
+        }
+    }
 
-            if (infoNode.isMissingNode()) {
+    private String scanApiSpecVersion(SpecParserOpener opener, JsonFactory factory, String filePath)
+            throws IOException, VersionExtractionException {
+        try (JsonParser parser = opener.open(factory)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
                 throw new VersionExtractionException("Missing 'info' field in API spec: " + filePath);
             }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (YAML_INFO_FIELD.equals(field)) {
+                    return scanInfoVersion(parser, value, filePath);
+                }
+                parser.skipChildren(); // No-op for scalars
+            }
+            throw new VersionExtractionException("Missing 'info' field in API spec: " + filePath);
+        }
+    }
 
-            JsonNode versionNode = infoNode.path(YAML_VERSION_FIELD);
-            if (versionNode.isMissingNode() || !versionNode.isTextual()) {
-                 throw new VersionExtractionException("Missing or invalid 'version' field under 'info' in API spec: " + filePath);
+    private String scanInfoVersion(JsonParser parser, JsonToken info, String filePath)
+            throws IOException, VersionExtractionException {
+        if (info == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (YAML_VERSION_FIELD.equals(field)) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        return parser.getText();
+                    }
+                    break; // Numbers, booleans, nulls and nested structures are not valid versions
+                }
+                parser.skipChildren();
             }
+        }
+        throw new VersionExtractionException("Missing or invalid 'version' field under 'info' in API spec: " + filePath);
+    }
 
-            return versionNode.asText();
-        } catch (Exception e) {
-            // Handle both direct IOExceptions and RuntimeExceptions wrapping IOExceptions
-            Throwable cause = e;
-            while (cause != null && !(cause instanceof IOException)) {
-                cause = cause.getCause();
+    private static boolean looksLikeJson(String content) {
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (!Character.isWhitespace(c) && c != '\uFEFF') {
+                return c == '{';
             }
-            if (cause instanceof IOException) {
-                throw new VersionExtractionException("Failed to parse API spec YAML '" + filePath + "': " + cause.getMessage(), (IOException) cause);
+        }
+        return false;
+    }
+
+    private static boolean looksLikeJson(byte[] content) {
+        int i = 0;
+        if (content.length >= 3 && (content[0] & 0xFF) == 0xEF && (content[1] & 0xFF) == 0xBB && (content[2] & 0xFF) == 0xBF) {
+            i = 3; // UTF-8 byte order mark
+        }
+        for (; i < content.length; i++) {
+            byte b = content[i];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b == '{';
             }
-            throw new VersionExtractionException("Unexpected error parsing API spec YAML '" + filePath + "': " + e.getMessage(), e);
         }
+        return false;
     }
 }
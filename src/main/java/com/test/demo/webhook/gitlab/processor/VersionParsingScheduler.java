@@ -0,0 +1,91 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.test.demo.config.WebhookProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link VersionExtractor} on a fixed pool of parser threads, one per processor unless configured
+ * otherwise, so parsing a large pom.xml or spec file never stalls the Netty event loop that delivered it and
+ * every other HTTP exchange on that loop.
+ * <p>
+ * Files wait for a parser thread in a bounded queue; when it is full the file is rejected rather than parsed on
+ * the caller's thread. The pool is measured in {@code gitlab.webhook.parser.*}.
+ */
+@Slf4j
+@Component
+public class VersionParsingScheduler implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final Scheduler scheduler;
+
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public VersionParsingScheduler(WebhookProperties webhookProperties, MeterRegistry meterRegistry) {
+        WebhookProperties.Parsing parsing = webhookProperties.getParsing();
+        int threads = parsing.getThreads() > 0 ? parsing.getThreads() : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("version-parser-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parsing.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Schedulers.fromExecutorService(executor, "version-parser");
+
+        Gauge.builder("gitlab.webhook.parser.queue.depth", executor, e -> e.getQueue().size())
+                .description("Files waiting for a parser thread")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.webhook.parser.queue.remaining", executor, e -> e.getQueue().remainingCapacity())
+                .description("Remaining capacity of the parser queue")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.webhook.parser.active.threads", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Parser threads currently parsing a file")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("gitlab.webhook.parser.queue.wait")
+                .description("Time files spend in the parser queue before a parser thread picks them up")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("gitlab.webhook.parser.rejected")
+                .description("Files not parsed because the parser queue was full")
+                .register(meterRegistry);
+
+        log.info("Parsing pom.xml and API spec files on {} threads with a queue of {}", threads, parsing.getQueueCapacity());
+    }
+
+    /**
+     * Calls the parser on a parser thread and emits its result, or completes empty if it returns null.
+     * Fails with a {@link RejectedExecutionException} if the parser queue is full.
+     */
+    public <T> Mono<T> parse(Callable<T> parser) {
+        return Mono.defer(() -> {
+                long queuedAt = System.nanoTime();
+                return Mono.fromCallable(() -> {
+                    queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    return parser.call();
+                }).subscribeOn(scheduler);
+            })
+            .doOnError(RejectedExecutionException.class, e -> rejectedCounter.increment());
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
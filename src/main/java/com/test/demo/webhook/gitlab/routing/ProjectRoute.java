@@ -0,0 +1,14 @@
+package com.test.demo.webhook.gitlab.routing;
+
+import com.test.demo.webhook.gitlab.processor.GlobPathMatcher;
+
+import java.util.Set;
+
+/**
+ * Processing rules for the merge requests of one project.
+ *
+ * @param targetBranches     Target branches whose merges are processed.
+ * @param apiSpecFileMatcher Matches the paths of the project's API spec files.
+ */
+public record ProjectRoute(Set<String> targetBranches, GlobPathMatcher apiSpecFileMatcher) {
+}
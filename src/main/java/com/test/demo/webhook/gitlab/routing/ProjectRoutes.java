@@ -0,0 +1,196 @@
+package com.test.demo.webhook.gitlab.routing;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.GlobPathMatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link ProjectRoutingTable}: the global target branches and spec files from
+ * {@code gitlab.webhook.*} as the default route, overridden per project by the optional routing file.
+ * <p>
+ * The routing file is watched and reloaded when it changes. A reload builds a complete new table and swaps
+ * it in atomically, so a lookup sees either the old or the new routes, never a mix. An invalid file is
+ * rejected at startup, and on reload the previous table is kept.
+ * <p>
+ * Example routing file:
+ * <pre>
+ * projects:
+ *   - id: 123
+ *     target-branches: [main, release]
+ *     api-spec-files: [services/&#42;/APISPEC/&#42;&#42;/swagger.yml]
+ *   - id: 456
+ *     target-branches: [develop]   # api-spec-files falls back to the global setting
+ * </pre>
+ */
+@Slf4j
+@Component
+public class ProjectRoutes implements DisposableBean {
+
+    private final ObjectMapper yamlMapper;
+    private final ProjectRoute defaultRoute;
+    private final Path routingFile;
+    private final AtomicReference<ProjectRoutingTable> table = new AtomicReference<>();
+    private final WatchService watchService;
+
+    public ProjectRoutes(WebhookProperties webhookProperties, ObjectMapper yamlObjectMapper) {
+        WebhookProperties.Routing routing = webhookProperties.getRouting();
+        this.yamlMapper = yamlObjectMapper;
+        this.defaultRoute = new ProjectRoute(webhookProperties.getTargetBranchesSet(),
+                GlobPathMatcher.compile(webhookProperties.getApiSpecFilesSet()));
+        this.routingFile = routing.getFile() != null ? routing.getFile().toAbsolutePath() : null;
+
+        if (routingFile == null) {
+            table.set(new ProjectRoutingTable(Map.of(), defaultRoute));
+            this.watchService = null;
+            return;
+        }
+        try {
+            table.set(load());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to load project routing file " + routingFile + ": " + e.getMessage(), e);
+        }
+        this.watchService = routing.isWatch() ? startWatching() : null;
+    }
+
+    /**
+     * Returns the current routing snapshot.
+     */
+    public ProjectRoutingTable current() {
+        return table.get();
+    }
+
+    /**
+     * Returns the route for the event's target project, or the default route if the event has none.
+     */
+    public ProjectRoute routeFor(MergeRequestEvent event) {
+        return routeFor(event != null && event.attributes() != null ? event.attributes().targetProjectId() : null);
+    }
+
+    /**
+     * Returns the route for the given target project, or the default route if the project is null.
+     */
+    public ProjectRoute routeFor(Long projectId) {
+        ProjectRoutingTable snapshot = table.get();
+        return projectId != null ? snapshot.routeFor(projectId) : snapshot.defaultRoute();
+    }
+
+    /**
+     * Re-reads the routing file and swaps in the new table; the previous table is kept if the file is invalid.
+     *
+     * @return Whether the new table was applied.
+     */
+    public boolean reload() {
+        if (routingFile == null) {
+            return false;
+        }
+        try {
+            table.set(load());
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Keeping previous project routes; failed to reload {}: {}", routingFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private ProjectRoutingTable load() throws IOException {
+        RoutingFile file = yamlMapper.readValue(Files.readAllBytes(routingFile), RoutingFile.class);
+        Map<Long, ProjectRoute> routes = new HashMap<>();
+        for (ProjectEntry project : file != null && file.projects() != null ? file.projects() : List.<ProjectEntry>of()) {
+            if (project.id() == null) {
+                throw new IllegalArgumentException("Project entry without 'id'");
+            }
+            ProjectRoute route = new ProjectRoute(
+                    project.targetBranches() != null ? trimmed(project.targetBranches()) : defaultRoute.targetBranches(),
+                    project.apiSpecFiles() != null ? GlobPathMatcher.compile(project.apiSpecFiles()) : defaultRoute.apiSpecFileMatcher());
+            if (routes.putIfAbsent(project.id(), route) != null) {
+                throw new IllegalArgumentException("Duplicate project id " + project.id());
+            }
+        }
+        log.info("Loaded routes for {} projects from {}", routes.size(), routingFile);
+        return new ProjectRoutingTable(routes, defaultRoute);
+    }
+
+    private static Set<String> trimmed(List<String> values) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                result.add(value.trim());
+            }
+        }
+        return Set.copyOf(result);
+    }
+
+    // Watches the file's directory, since editors and config management often replace the file instead of writing it
+    private WatchService startWatching() {
+        try {
+            WatchService watcher = routingFile.getFileSystem().newWatchService();
+            routingFile.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            Thread thread = new Thread(() -> watch(watcher), "project-routes-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            log.info("Watching {} for project routing changes", routingFile);
+            return watcher;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to watch project routing file " + routingFile, e);
+        }
+    }
+
+    private void watch(WatchService watcher) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || routingFile.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RoutingFile(@JsonProperty("projects") List<ProjectEntry> projects) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ProjectEntry(
+            @JsonProperty("id") Long id,
+            @JsonProperty("target-branches") List<String> targetBranches,
+            @JsonProperty("api-spec-files") List<String> apiSpecFiles
+    ) {}
+}
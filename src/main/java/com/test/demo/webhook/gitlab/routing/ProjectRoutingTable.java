@@ -0,0 +1,51 @@
+package com.test.demo.webhook.gitlab.routing;
+
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the per-project routes, with a default route for projects without one.
+ * <p>
+ * Routes are kept in a primitive long-keyed map, so lookups by project id neither box nor hash {@code Long}s.
+ * The map is filled once in the constructor and only read afterwards, which makes a published snapshot
+ * safe to share between threads.
+ */
+public final class ProjectRoutingTable {
+
+    private final LongObjectMap<ProjectRoute> routes;
+    private final ProjectRoute defaultRoute;
+
+    ProjectRoutingTable(Map<Long, ProjectRoute> routes, ProjectRoute defaultRoute) {
+        this.routes = new LongObjectHashMap<>(Math.max(routes.size(), 1));
+        routes.forEach((projectId, route) -> this.routes.put(projectId.longValue(), route));
+        this.defaultRoute = defaultRoute;
+    }
+
+    /**
+     * Returns the route of the project, or the default route if it has none.
+     */
+    public ProjectRoute routeFor(long projectId) {
+        ProjectRoute route = routes.get(projectId);
+        return route != null ? route : defaultRoute;
+    }
+
+    /**
+     * Returns whether the project has its own route, rather than falling back to the default one.
+     */
+    public boolean hasRoute(long projectId) {
+        return routes.containsKey(projectId);
+    }
+
+    public ProjectRoute defaultRoute() {
+        return defaultRoute;
+    }
+
+    /**
+     * Returns the number of projects with their own route.
+     */
+    public int size() {
+        return routes.size();
+    }
+}
@@ -1,76 +1,139 @@
 package com.test.demo.webhook.gitlab.service;
 
+import com.test.demo.config.WebhookProperties;
 import com.test.demo.webhook.gitlab.client.GitLabApiClient;
 import com.test.demo.webhook.gitlab.client.GitLabApiClientImpl; // Import the implementation class
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+import com.test.demo.webhook.gitlab.processor.PipelineMetrics;
+import com.test.demo.webhook.gitlab.processor.ProcessingOutcome;
 import com.test.demo.webhook.gitlab.processor.VersionExtractionException;
 import com.test.demo.webhook.gitlab.processor.VersionExtractor;
-import lombok.RequiredArgsConstructor;
+import com.test.demo.webhook.gitlab.processor.VersionParsingScheduler;
+import com.test.demo.webhook.gitlab.sink.VersionResultSink;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class MergeRequestService {
 
-    private static final String UNKNOWN_VERSION = "unknown";
+    private static final String UNKNOWN_VERSION = VersionRecord.UNKNOWN_VERSION;
     private static final String POM_XML_PATH = "pom.xml";
 
     private final GitLabApiClient gitLabApiClient;
     private final VersionExtractor versionExtractor;
+    private final VersionParsingScheduler parsingScheduler;
+    private final int specFetchConcurrency;
+    private final PipelineMetrics pipelineMetrics;
+    private final List<VersionResultSink> resultSinks;
+
+    public MergeRequestService(GitLabApiClient gitLabApiClient, VersionExtractor versionExtractor,
+                               VersionParsingScheduler parsingScheduler, WebhookProperties webhookProperties,
+                               PipelineMetrics pipelineMetrics, List<VersionResultSink> resultSinks) {
+        this.gitLabApiClient = gitLabApiClient;
+        this.versionExtractor = versionExtractor;
+        this.parsingScheduler = parsingScheduler;
+        this.pipelineMetrics = pipelineMetrics;
+        this.resultSinks = resultSinks;
+        this.specFetchConcurrency = webhookProperties.getSpecFetchConcurrency();
+    }
 
     // Helper function type for version extraction logic
     @FunctionalInterface
     private interface VersionExtractionFunction {
-        String extract(String content) throws VersionExtractionException;
+        String extract(byte[] content) throws VersionExtractionException;
     }
 
     /**
-     * Processes a validated merge request event by extracting and logging versions.
+     * Processes a validated merge request event by extracting the versions, logging them and publishing them to
+     * every {@link VersionResultSink}, e.g. the version history and the Kafka results topic.
+     * The pom.xml and all changed spec files are requested together in one {@link GitLabApiClient#getRawFiles}
+     * call, fetched one by one with up to {@code gitlab.webhook.spec-fetch-concurrency} in parallel unless the
+     * client batches them. The pom.xml is parsed once and shared by all spec files. Parsing runs on the
+     * {@link VersionParsingScheduler}, not on the thread that delivered the file.
      * @param event The merge request event.
-     * @param specFilePath The path to the changed API specification file.
-     * @return A Mono indicating completion.
+     * @param specFilePaths The paths of the changed API specification files.
+     * @return {@link ProcessingOutcome#PROCESSED} if every version was extracted, otherwise
+     *         {@link ProcessingOutcome#UNKNOWN}; fails with a {@link RejectedExecutionException}, without logging or
+     *         publishing any versions, if a file could not be queued for parsing.
      */
-    public Mono<Void> processMergeRequest(MergeRequestEvent event, String specFilePath) {
+    public Mono<ProcessingOutcome> processMergeRequest(MergeRequestEvent event, List<String> specFilePaths) {
         String commitSha = event.attributes().lastCommit().id();
-        String shortCommitSha = getShortSha(commitSha);
-
-        Mono<String> pomVersionMono = fetchAndParsePomVersion(event, commitSha);
-        Mono<String> apiSpecVersionMono = fetchAndParseApiSpecVersion(event, commitSha, specFilePath);
-
-        return Mono.zip(pomVersionMono, apiSpecVersionMono)
+        Long projectId = event.attributes().targetProjectId();
+
+        List<String> filePaths = new ArrayList<>(specFilePaths.size() + 1);
+        filePaths.add(POM_XML_PATH);
+        specFilePaths.stream().filter(path -> !POM_XML_PATH.equals(path)).forEach(filePaths::add);
+        // Shared by every file below, so the files are fetched once however many subscribe
+        Mono<Map<String, byte[]>> files = gitLabApiClient.getRawFiles(projectId, filePaths, commitSha, specFetchConcurrency)
+            .cache();
+
+        Mono<String> pomVersionMono = fetchAndParsePomVersion(projectId, files, commitSha);
+        Mono<Map<String, String>> apiSpecVersionsMono = Flux.fromIterable(specFilePaths)
+            // flatMapSequential keeps the reported order stable
+            .flatMapSequential(specFilePath -> fetchAndParseApiSpecVersion(projectId, files, commitSha, specFilePath)
+                    .map(version -> Map.entry(specFilePath, version)))
+            .collect(LinkedHashMap<String, String>::new, (versions, entry) -> versions.put(entry.getKey(), entry.getValue()));
+
+        return Mono.zip(pomVersionMono, apiSpecVersionsMono)
             .doOnSuccess(versions -> logExtractedVersions(
+                projectId,
                 event.attributes().iid(),
                 versions.getT1(), // pomVersion
-                versions.getT2(), // apiSpecVersion
-                shortCommitSha,
+                versions.getT2(), // apiSpecVersion per spec file
+                commitSha,
                 event.attributes().targetBranch(),
                 event.attributes().url()
             ))
-            .then(); // Convert Mono<Tuple2<String, String>> to Mono<Void>
+            .map(versions -> UNKNOWN_VERSION.equals(versions.getT1()) || versions.getT2().containsValue(UNKNOWN_VERSION)
+                ? ProcessingOutcome.UNKNOWN
+                : ProcessingOutcome.PROCESSED);
     }
 
     /**
-     * Generic helper to fetch file content and extract a version using a provided function.
+     * Generic helper to take one file out of the fetched files and extract a version using a provided function.
+     * The fetch stage is timed until the file is available, i.e. until the whole batch has been fetched.
+     * The parse stage is timed on the parser thread, excluding the wait for one.
      */
-    private Mono<String> fetchAndExtractVersion(Long projectId, String filePath, String commitSha,
-                                                VersionExtractionFunction extractionFunction, String errorContext) {
-        return gitLabApiClient.getFileContent(projectId, filePath, commitSha)
-            .flatMap(content -> {
+    private Mono<String> fetchAndExtractVersion(Long projectId, Mono<Map<String, byte[]>> files, String filePath,
+                                                String commitSha, VersionExtractionFunction extractionFunction,
+                                                String errorContext, PipelineMetrics.Stage fetchStage,
+                                                PipelineMetrics.Stage parseStage) {
+        // Raw bytes go straight to the extractor, no base64 decoding or intermediate String
+        Mono<byte[]> fileContent = pipelineMetrics.timeStage(fetchStage, projectId,
+            files.flatMap(contents -> Mono.justOrEmpty(contents.get(filePath))),
+            content -> ProcessingOutcome.PROCESSED, ProcessingOutcome.UNKNOWN);
+        return fileContent
+            // The file arrives on a Netty event loop; parsing it there would stall every exchange on that loop
+            .flatMap(content -> parsingScheduler.parse(() -> {
+                long parseStart = System.nanoTime();
                 try {
-                    // Use Mono.justOrEmpty to handle null/empty results from extractor gracefully
-                    return Mono.justOrEmpty(extractionFunction.extract(content));
+                    String version = extractionFunction.extract(content);
+                    pipelineMetrics.record(parseStage, projectId,
+                        version != null ? ProcessingOutcome.PROCESSED : ProcessingOutcome.UNKNOWN, parseStart);
+                    // A null version completes empty and becomes UNKNOWN_VERSION below
+                    return version;
                 } catch (VersionExtractionException e) {
-                    // Log extraction errors and return Mono.error to be caught by onErrorResume
+                    pipelineMetrics.record(parseStage, projectId, ProcessingOutcome.ERROR, parseStart);
+                    // Log extraction errors and propagate them to be caught by onErrorResume
                     log.warn("Failed to extract version from {} for commit {}: {}", filePath, getShortSha(commitSha), e.getMessage());
-                    return Mono.error(e); // Propagate specific error
+                    throw e; // Propagate specific error
                 }
-            })
-            .onErrorResume(e -> {
-                // Catches both API client errors (propagated as GitLabApiException)
-                // and VersionExtractionException from flatMap above.
+            }))
+            // A full parser queue fails the whole event instead, so it is retried rather than recorded as unknown
+            .onErrorResume(e -> !(e instanceof RejectedExecutionException), e -> {
+                // Catches API client errors (propagated as GitLabApiException) and VersionExtractionException
+                // from the parser above.
                 // Log appropriately but return UNKNOWN_VERSION for processing flow.
                 if (!(e instanceof GitLabApiClientImpl.GitLabApiException)) { // Use the implementation class here
                      log.warn("Failed to get {} for commit {}: {}", errorContext, getShortSha(commitSha), e.getMessage());
@@ -83,36 +146,59 @@ public class MergeRequestService {
     }
 
 
-    private Mono<String> fetchAndParsePomVersion(MergeRequestEvent event, String commitSha) {
+    private Mono<String> fetchAndParsePomVersion(Long projectId, Mono<Map<String, byte[]>> files, String commitSha) {
         return fetchAndExtractVersion(
-            event.attributes().targetProjectId(),
+            projectId,
+            files,
             POM_XML_PATH,
             commitSha,
             versionExtractor::extractPomVersion, // Pass method reference
-            "pom version"
+            "pom version",
+            PipelineMetrics.Stage.FETCH_POM,
+            PipelineMetrics.Stage.PARSE_POM
         );
     }
 
-    private Mono<String> fetchAndParseApiSpecVersion(MergeRequestEvent event, String commitSha, String specFilePath) {
+    private Mono<String> fetchAndParseApiSpecVersion(Long projectId, Mono<Map<String, byte[]>> files, String commitSha,
+                                                     String specFilePath) {
          return fetchAndExtractVersion(
-            event.attributes().targetProjectId(),
+            projectId,
+            files,
             specFilePath,
             commitSha,
             content -> versionExtractor.extractApiSpecVersion(content, specFilePath), // Pass lambda
-            "API spec version from " + specFilePath
+            "API spec version from " + specFilePath,
+            PipelineMetrics.Stage.FETCH_SPEC,
+            PipelineMetrics.Stage.PARSE_SPEC
         );
     }
 
     // Removed redundant fetchFileContent method
 
-    private void logExtractedVersions(Long mrId, String pomVersion, String apiSpecVersion,
-                                      String shortSha, String targetBranch, String mrUrl) {
+    private void logExtractedVersions(Long projectId, Long mrId, String pomVersion, Map<String, String> apiSpecVersions,
+                                      String commitSha, String targetBranch, String mrUrl) {
+        String shortSha = getShortSha(commitSha);
         String codeVersion = UNKNOWN_VERSION.equals(pomVersion) ?
             UNKNOWN_VERSION : pomVersion + "-" + shortSha;
 
         // Keep this log as it seems essential for the application's purpose
-        log.info("Extracted Details for MR !{}: CodeVersion='{}', ApiSpecVersion='{}', Commit='{}', TargetBranch='{}', MR_URL='{}'",
-            mrId, codeVersion, apiSpecVersion, shortSha, targetBranch, mrUrl);
+        log.info("Extracted Details for MR !{}: CodeVersion='{}', ApiSpecVersions={}, Commit='{}', TargetBranch='{}', MR_URL='{}'",
+            mrId, codeVersion, apiSpecVersions, shortSha, targetBranch, mrUrl);
+
+        Instant extractedAt = Instant.now();
+        apiSpecVersions.forEach((specFile, apiSpecVersion) -> {
+            VersionRecord record = new VersionRecord(projectId, mrId, commitSha, targetBranch, codeVersion,
+                specFile, apiSpecVersion, extractedAt);
+            for (VersionResultSink sink : resultSinks) {
+                try {
+                    sink.publish(record);
+                } catch (RuntimeException e) {
+                    // The versions are logged above either way, and one failing sink does not hold up the others
+                    log.warn("Failed to publish versions of {} for MR !{} to {}: {}", specFile, mrId,
+                        sink.getClass().getSimpleName(), e.getMessage());
+                }
+            }
+        });
     }
 
     private String getShortSha(String commitSha) {
@@ -0,0 +1,167 @@
+package com.test.demo.webhook.gitlab.sink;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the extracted versions to {@code gitlab.webhook.results.kafka.topic}, keyed by target project id.
+ * <p>
+ * {@link #publish} only puts the record in a bounded buffer, which a single sender thread hands to the producer.
+ * The producer can block, e.g. while the broker is unreachable and its own buffer is full, but that holds up the
+ * sender, never the thread processing the merge request. While the buffer is full, records are dropped straight
+ * away or, with the {@code BLOCK} overflow policy, after waiting up to {@code block-timeout} for room.
+ * <p>
+ * Results are counted in {@code gitlab.webhook.results.published}, {@code .failed} (the producer gave up on them)
+ * and {@code .dropped}, tagged with the reason; the buffer in {@code gitlab.webhook.results.buffer.*}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gitlab.webhook.results.kafka.enabled", havingValue = "true")
+public class KafkaVersionResultSink implements VersionResultSink, DisposableBean {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final KafkaTemplate<String, VersionRecord> kafkaTemplate;
+    private final String topic;
+    private final BlockingQueue<VersionRecord> buffer;
+    private final WebhookProperties.OverflowPolicy overflow;
+    private final Duration blockTimeout;
+    private final Duration shutdownTimeout;
+    private final Thread sender;
+    private volatile boolean closed;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter bufferFullCounter;
+    private final Counter shutdownCounter;
+
+    public KafkaVersionResultSink(@Qualifier("versionResultKafkaTemplate") KafkaTemplate<String, VersionRecord> kafkaTemplate,
+                                  WebhookProperties webhookProperties,
+                                  MeterRegistry meterRegistry) {
+        WebhookProperties.ResultsKafka kafka = webhookProperties.getResults().getKafka();
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = kafka.getTopic();
+        this.buffer = new ArrayBlockingQueue<>(kafka.getBufferCapacity());
+        this.overflow = kafka.getOverflow();
+        this.blockTimeout = kafka.getBlockTimeout();
+        this.shutdownTimeout = kafka.getShutdownTimeout();
+
+        Gauge.builder("gitlab.webhook.results.buffer.depth", buffer, BlockingQueue::size)
+                .description("Results waiting to be handed to the Kafka producer")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.webhook.results.buffer.remaining", buffer, BlockingQueue::remainingCapacity)
+                .description("Remaining capacity of the Kafka results buffer")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("gitlab.webhook.results.published")
+                .description("Results acknowledged by the Kafka broker")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("gitlab.webhook.results.failed")
+                .description("Results the Kafka producer failed to send")
+                .register(meterRegistry);
+        this.bufferFullCounter = droppedCounter(meterRegistry, "buffer_full");
+        this.shutdownCounter = droppedCounter(meterRegistry, "shutdown");
+
+        this.sender = new Thread(this::sendBuffered, "version-results-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("gitlab.webhook.results.dropped")
+                .description("Results dropped before reaching the Kafka producer")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(VersionRecord record) {
+        if (closed) {
+            shutdownCounter.increment();
+            return;
+        }
+        boolean buffered;
+        try {
+            buffered = overflow == WebhookProperties.OverflowPolicy.BLOCK
+                    ? buffer.offer(record, blockTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                    : buffer.offer(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            buffered = false;
+        }
+        if (!buffered) {
+            bufferFullCounter.increment();
+            log.debug("Kafka results buffer is full, dropping versions of {} for MR !{}",
+                    record.apiSpecFile(), record.mergeRequestIid());
+        }
+    }
+
+    private void sendBuffered() {
+        try {
+            while (!Thread.currentThread().isInterrupted() && (!closed || !buffer.isEmpty())) {
+                VersionRecord record = buffer.poll(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    send(record);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(VersionRecord record) {
+        try {
+            kafkaTemplate.send(topic, String.valueOf(record.projectId()), record)
+                    .whenComplete((result, e) -> {
+                        if (e == null) {
+                            publishedCounter.increment();
+                        } else {
+                            failedCounter.increment();
+                            log.warn("Failed to publish versions of {} for MR !{} to Kafka: {}",
+                                    record.apiSpecFile(), record.mergeRequestIid(), e.getMessage());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // Thrown by the producer itself, e.g. after max.block.ms without broker metadata
+            failedCounter.increment();
+            log.warn("Failed to hand versions of {} for MR !{} to the Kafka producer: {}",
+                    record.apiSpecFile(), record.mergeRequestIid(), e.getMessage());
+        }
+    }
+
+    /**
+     * Stops accepting results, waits for the buffered ones to be handed to the producer and closes it, which
+     * sends what it still holds.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        sender.join(shutdownTimeout.toMillis());
+        if (sender.isAlive()) {
+            sender.interrupt();
+            sender.join(POLL_INTERVAL.toMillis());
+        }
+        List<VersionRecord> unsent = new ArrayList<>();
+        buffer.drainTo(unsent);
+        if (!unsent.isEmpty()) {
+            shutdownCounter.increment(unsent.size());
+            log.warn("Kafka results buffer did not drain within {}, dropping {} results", shutdownTimeout, unsent.size());
+        }
+        kafkaTemplate.getProducerFactory().reset();
+    }
+}
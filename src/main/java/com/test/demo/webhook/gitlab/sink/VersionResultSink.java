@@ -0,0 +1,15 @@
+package com.test.demo.webhook.gitlab.sink;
+
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+
+/**
+ * Receives every {@link VersionRecord} extracted by the {@code MergeRequestService}, one per changed API spec
+ * file. All sink beans in the context receive every record.
+ * <p>
+ * {@link #publish} is called on the thread processing the merge request, so implementations must return quickly
+ * and must not wait on a remote system; one that is slow should buffer and deliver in the background.
+ */
+public interface VersionResultSink {
+
+    void publish(VersionRecord record);
+}
@@ -0,0 +1,136 @@
+package com.test.demo.config;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class WebClientConfigTest {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    private final Sinks.Empty<Void> release = Sinks.empty();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() {
+        // Stand-in for GitLab that holds every response until released
+        server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.get("/api/v4/slow", (request, response) -> {
+                acceptEncodings.add(String.valueOf(request.requestHeaders().get("Accept-Encoding")));
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                // Counted out before the body is written, as the client may reuse the connection right after
+                return response.sendString(release.asMono()
+                    .then(Mono.just("ok"))
+                    .doOnNext(body -> inFlight.decrementAndGet()));
+            }))
+            .bindNow();
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.tryEmitEmpty();
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+        server.disposeNow();
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    private WebClient webClient(int maxConnections, int pendingAcquireMaxCount, Duration pendingAcquireTimeout) {
+        GitLabApiProperties properties = new GitLabApiProperties();
+        properties.setBaseUrl("http://localhost:" + server.port() + "/api/v4");
+        properties.setPrivateToken("token");
+        properties.getHttp().setMaxConnections(maxConnections);
+        properties.getHttp().setPendingAcquireMaxCount(pendingAcquireMaxCount);
+        properties.getHttp().setPendingAcquireTimeout(pendingAcquireTimeout);
+
+        WebClientConfig config = new WebClientConfig(properties);
+        connectionProvider = config.gitlabConnectionProvider();
+        properties.getRateLimit().setEnabled(false); // Pool limits only
+        properties.getResilience().setEnabled(false);
+        return config.gitlabWebClient(WebClient.builder(), Jackson2ObjectMapperBuilder.json(), connectionProvider, meterRegistry);
+    }
+
+    private List<Signal<String>> fire(WebClient webClient, int requests) {
+        List<Signal<String>> results = new CopyOnWriteArrayList<>();
+        IntStream.range(0, requests).forEach(i -> webClient.get().uri("/slow")
+            .retrieve()
+            .bodyToMono(String.class)
+            .materialize()
+            .subscribe(results::add));
+        return results;
+    }
+
+    @Test
+    void gitlabWebClient_shouldCapConnectionsAndRejectBeyondPendingLimit() {
+        WebClient webClient = webClient(2, 1, Duration.ofSeconds(30));
+
+        List<Signal<String>> results = fire(webClient, 4);
+
+        // Two requests hold both connections, one waits for a connection, and the fourth is rejected at once
+        await().atMost(Duration.ofSeconds(10)).until(() -> inFlight.get() == 2 && results.size() == 1);
+        assertThat(results.get(0).getThrowable()).rootCause()
+            .extracting(e -> e.getClass().getSimpleName()).isEqualTo("PoolAcquirePendingLimitException");
+
+        release.tryEmitEmpty();
+        await().atMost(Duration.ofSeconds(10)).until(() -> results.size() == 4);
+
+        assertThat(results).filteredOn(Signal::isOnNext).hasSize(3);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(acceptEncodings).allMatch(encoding -> encoding.contains("gzip"));
+    }
+
+    @Test
+    void gitlabWebClient_whenNoConnectionFreesUpInTime_shouldFailPendingAcquire() {
+        WebClient webClient = webClient(1, 10, Duration.ofMillis(200));
+
+        List<Signal<String>> results = fire(webClient, 2);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> results.size() == 1);
+        assertThat(results.get(0).getThrowable()).rootCause()
+            .extracting(e -> e.getClass().getSimpleName()).isEqualTo("PoolAcquireTimeoutException");
+        assertThat(maxInFlight.get()).isEqualTo(1);
+    }
+
+    @Test
+    void gitlabConnectionProvider_shouldPublishPoolMetrics() {
+        WebClient webClient = webClient(2, 1, Duration.ofSeconds(30));
+
+        fire(webClient, 1);
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(meterRegistry.find("reactor.netty.connection.provider.active.connections").tag("name", "gitlab").gauge())
+                .isNotNull()
+                .satisfies(gauge -> assertThat(gauge.value()).isEqualTo(1.0));
+            assertThat(meterRegistry.find("reactor.netty.connection.provider.pending.connections").tag("name", "gitlab").gauge())
+                .isNotNull();
+            assertThat(meterRegistry.find("reactor.netty.connection.provider.idle.connections").tag("name", "gitlab").gauge())
+                .isNotNull();
+        });
+    }
+}
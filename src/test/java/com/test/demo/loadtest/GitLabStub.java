@@ -0,0 +1,192 @@
+package com.test.demo.loadtest;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.springframework.boot.convert.DurationStyle;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for the GitLab REST API endpoints the processor calls: the paged merge request diffs and
+ * raw repository files. Latency, error rate and payload sizes are configurable, and every call is counted by
+ * endpoint and status.
+ */
+public final class GitLabStub implements AutoCloseable {
+
+    /**
+     * @param latency         Base delay before every response.
+     * @param latencyJitter   Random extra delay, uniformly distributed up to this.
+     * @param errorRate       Fraction of calls answered with 503.
+     * @param changedFiles    Files listed as changed per merge request; the two default spec files are among them.
+     * @param diffsPerPage    Changes per diffs page, as GitLab pages them.
+     * @param specBytes       Approximate size of every API spec file.
+     * @param pomDependencies Dependencies in every pom.xml.
+     * @param requestsPerMinute Quota reported in the {@code RateLimit-*} headers; not enforced.
+     */
+    public record Settings(Duration latency, Duration latencyJitter, double errorRate, int changedFiles,
+                           int diffsPerPage, int specBytes, int pomDependencies, long requestsPerMinute) {
+
+        public static Settings defaults() {
+            return new Settings(Duration.ofMillis(20), Duration.ofMillis(30), 0.0, 50, 100, 64 * 1024, 30, 600_000);
+        }
+
+        /**
+         * Reads each setting from a {@code loadtest.gitlab.*} system property, falling back to the defaults.
+         */
+        public static Settings fromSystemProperties() {
+            Settings defaults = defaults();
+            return new Settings(
+                duration("loadtest.gitlab.latency", defaults.latency()),
+                duration("loadtest.gitlab.latency-jitter", defaults.latencyJitter()),
+                Double.parseDouble(System.getProperty("loadtest.gitlab.error-rate", String.valueOf(defaults.errorRate()))),
+                Integer.getInteger("loadtest.gitlab.changed-files", defaults.changedFiles()),
+                Integer.getInteger("loadtest.gitlab.diffs-per-page", defaults.diffsPerPage()),
+                Integer.getInteger("loadtest.gitlab.spec-bytes", defaults.specBytes()),
+                Integer.getInteger("loadtest.gitlab.pom-dependencies", defaults.pomDependencies()),
+                Long.getLong("loadtest.gitlab.requests-per-minute", defaults.requestsPerMinute()));
+        }
+
+        // Accepts 20ms, 1s and the like
+        static Duration duration(String property, Duration defaultValue) {
+            String value = System.getProperty(property);
+            return value != null ? DurationStyle.detectAndParse(value) : defaultValue;
+        }
+    }
+
+    static final String DIFFS = "diffs";
+    static final String RAW_FILE = "raw_file";
+
+    private final Settings settings;
+    private final byte[] pom;
+    private final byte[] spec;
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final DisposableServer server;
+    private long quotaWindow;
+    private long quotaUsed;
+
+    public GitLabStub(Settings settings) {
+        this.settings = settings;
+        this.pom = pom(settings.pomDependencies());
+        this.spec = spec(settings.specBytes());
+        this.server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                .get("/api/v4/projects/{id}/merge_requests/{iid}/diffs", (request, response) ->
+                    respond(DIFFS, response, () -> {
+                        int page = Integer.parseInt(new QueryStringDecoder(request.uri()).parameters().get("page").get(0));
+                        int pages = Math.max(1, (settings.changedFiles() + settings.diffsPerPage() - 1) / settings.diffsPerPage());
+                        return response
+                            .header("Content-Type", "application/json")
+                            .header("X-Next-Page", page < pages ? String.valueOf(page + 1) : "")
+                            .sendString(Mono.just(diffsPage(page)))
+                            .then();
+                    }))
+                .get("/api/v4/projects/{id}/repository/files/{path}/raw", (request, response) ->
+                    respond(RAW_FILE, response, () -> response
+                        .sendByteArray(Mono.just(request.param("path").endsWith("pom.xml") ? pom : spec))
+                        .then())))
+            .bindNow();
+    }
+
+    /**
+     * Base URL of the stub, to be used as {@code gitlab.api.base-url}.
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.port() + "/api/v4";
+    }
+
+    /**
+     * Calls received so far, keyed by endpoint and status, e.g. {@code raw_file 200}.
+     */
+    public Map<String, Long> callCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        calls.forEach((key, count) -> counts.put(key, count.sum()));
+        return counts;
+    }
+
+    public long calls(String endpoint) {
+        return calls.entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith(endpoint + " "))
+            .mapToLong(entry -> entry.getValue().sum())
+            .sum();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Mono<Void> respond(String endpoint, HttpServerResponse response, Supplier<Mono<Void>> ok) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayMillis = settings.latency().toMillis()
+            + (settings.latencyJitter().isZero() ? 0 : random.nextLong(settings.latencyJitter().toMillis() + 1));
+        boolean fail = random.nextDouble() < settings.errorRate();
+        calls.computeIfAbsent(endpoint + " " + (fail ? 503 : 200), key -> new LongAdder()).increment();
+        rateLimitHeaders(response);
+        return Mono.delay(Duration.ofMillis(delayMillis))
+            .then(Mono.defer(() -> fail ? response.status(503).send() : ok.get()));
+    }
+
+    // Like GitLab, so the client paces itself from the reported quota rather than its initial rate
+    private synchronized void rateLimitHeaders(HttpServerResponse response) {
+        long window = System.currentTimeMillis() / 60_000;
+        if (window != quotaWindow) {
+            quotaWindow = window;
+            quotaUsed = 0;
+        }
+        quotaUsed++;
+        response.header("RateLimit-Limit", String.valueOf(settings.requestsPerMinute()))
+            .header("RateLimit-Remaining", String.valueOf(Math.max(settings.requestsPerMinute() - quotaUsed, 0)))
+            .header("RateLimit-Reset", String.valueOf((window + 1) * 60));
+    }
+
+    private String diffsPage(int page) {
+        int first = (page - 1) * settings.diffsPerPage();
+        int last = Math.min(first + settings.diffsPerPage(), settings.changedFiles());
+        StringBuilder body = new StringBuilder("[");
+        for (int i = first; i < last; i++) {
+            String path = switch (settings.changedFiles() - 1 - i) {
+                case 0 -> "APISPEC/resolved/swagger.yml";
+                case 1 -> "APISPEC/unresolved/swagger.yml";
+                default -> "src/main/java/com/example/Class" + i + ".java";
+            };
+            if (i > first) {
+                body.append(',');
+            }
+            body.append("{\"old_path\":\"").append(path).append("\",\"new_path\":\"").append(path)
+                .append("\",\"a_mode\":\"100644\",\"b_mode\":\"100644\",\"new_file\":false,\"renamed_file\":false,")
+                .append("\"deleted_file\":false,\"diff\":\"@@ -1 +1 @@\\n-old\\n+new\\n\"}");
+        }
+        return body.append(']').toString();
+    }
+
+    private static byte[] pom(int dependencies) {
+        StringBuilder pom = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<project>\n")
+            .append("  <modelVersion>4.0.0</modelVersion>\n  <groupId>com.example</groupId>\n")
+            .append("  <artifactId>service</artifactId>\n  <version>1.4.0</version>\n  <dependencies>\n");
+        for (int i = 0; i < dependencies; i++) {
+            pom.append("    <dependency><groupId>org.example</groupId><artifactId>lib-").append(i)
+                .append("</artifactId><version>1.").append(i).append(".0</version></dependency>\n");
+        }
+        return pom.append("  </dependencies>\n</project>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] spec(int bytes) {
+        StringBuilder spec = new StringBuilder("openapi: 3.0.3\ninfo:\n  title: Load test API\n  version: 2.1.0\npaths:\n");
+        for (int i = 0; spec.length() < bytes; i++) {
+            spec.append("  /resources-").append(i).append(":\n    get:\n      operationId: getResource").append(i)
+                .append("\n      responses:\n        '200':\n          description: OK\n");
+        }
+        return spec.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
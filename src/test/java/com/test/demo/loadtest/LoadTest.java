@@ -0,0 +1,86 @@
+package com.test.demo.loadtest;
+
+import com.test.demo.TestingApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs the application against a {@link GitLabStub} and drives it with a {@link WebhookLoadGenerator}:
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="-Dloadtest.rate=200 -Dloadtest.duration=60s"
+ * </pre>
+ * Settings are system properties: {@code loadtest.rate} (webhooks per second), {@code loadtest.duration},
+ * {@code loadtest.warmup}, {@code loadtest.projects}, {@code loadtest.max-in-flight},
+ * {@code loadtest.app-log-level} and the {@code loadtest.gitlab.*} settings of the stub. Other system
+ * properties are passed on to the application, e.g. {@code -Dgitlab.webhook.ingestion.mode=queue}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+        Duration duration = GitLabStub.Settings.duration("loadtest.duration", Duration.ofSeconds(30));
+        Duration warmup = GitLabStub.Settings.duration("loadtest.warmup", Duration.ofSeconds(10));
+        int projects = Integer.getInteger("loadtest.projects", 50);
+        int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 1000);
+
+        try (GitLabStub stub = new GitLabStub(GitLabStub.Settings.fromSystemProperties());
+             // Command line arguments, as default properties would lose against application.yml
+             ConfigurableApplicationContext app = new SpringApplicationBuilder(TestingApplication.class)
+                 .run(Stream.concat(Stream.of(
+                     "--server.port=0",
+                     "--gitlab.api.base-url=" + stub.baseUrl(),
+                     "--gitlab.api.private-token=loadtest",
+                     // Per-event INFO logging would otherwise bury the report
+                     "--logging.level.com.test.demo=" + System.getProperty("loadtest.app-log-level", "WARN")),
+                     Stream.of(args)).toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            WebhookLoadGenerator generator = new WebhookLoadGenerator("http://localhost:" + port, projects);
+
+            if (!warmup.isZero()) {
+                System.out.printf("Warming up for %ss%n", warmup.toSeconds());
+                generator.run(rate, warmup, maxInFlight);
+            }
+            Map<String, Long> upstreamBefore = stub.callCounts();
+            LoadTestReport report = generator.run(rate, duration, maxInFlight)
+                .withUpstreamCalls(delta(upstreamBefore, stub.callCounts()));
+
+            System.out.println(report.format());
+            printStageTimers(app.getBean(MeterRegistry.class));
+        }
+    }
+
+    private static Map<String, Long> delta(Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Long> delta = new HashMap<>();
+        after.forEach((key, count) -> delta.put(key, count - before.getOrDefault(key, 0L)));
+        return new TreeMap<>(delta);
+    }
+
+    // Server-side view from the pipeline metrics, warmup included
+    private static void printStageTimers(MeterRegistry registry) {
+        System.out.println("Pipeline stages (all projects, warmup included):");
+        Map<String, long[]> countAndNanos = new TreeMap<>();
+        Map<String, Double> maxMillis = new HashMap<>();
+        for (Timer timer : registry.find("gitlab.webhook.stage").timers()) {
+            String key = timer.getId().getTag("stage") + " " + timer.getId().getTag("outcome");
+            long[] totals = countAndNanos.computeIfAbsent(key, k -> new long[2]);
+            totals[0] += timer.count();
+            totals[1] += (long) timer.totalTime(TimeUnit.NANOSECONDS);
+            maxMillis.merge(key, timer.max(TimeUnit.MILLISECONDS), Math::max);
+        }
+        countAndNanos.forEach((key, totals) -> System.out.printf("  %-28s count %8d  mean %8.2f ms  max %8.2f ms%n",
+            key, totals[0], totals[0] == 0 ? 0 : totals[1] / 1e6 / totals[0], maxMillis.get(key)));
+    }
+}
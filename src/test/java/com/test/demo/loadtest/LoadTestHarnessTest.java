@@ -0,0 +1,61 @@
+package com.test.demo.loadtest;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Smoke test of the load test harness: a short, low-rate run against the GitLab stub.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTestHarnessTest {
+
+    private static final GitLabStub STUB = new GitLabStub(new GitLabStub.Settings(
+        Duration.ofMillis(5), Duration.ofMillis(5), 0.0, 150, 100, 4096, 10, 600_000));
+
+    @TempDir
+    static Path historyDir;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void gitlab(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.api.base-url", STUB::baseUrl);
+        // Exact call counts below; on a cold JVM a slow stub response could otherwise be hedged
+        registry.add("gitlab.api.resilience.hedging-enabled", () -> "false");
+        registry.add("gitlab.webhook.history.dir", () -> historyDir.toString());
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void run_shouldDriveWebhooksThroughPipelineAndReport() {
+        WebhookLoadGenerator generator = new WebhookLoadGenerator("http://localhost:" + port, 5);
+
+        LoadTestReport report = generator.run(40, Duration.ofSeconds(1), 100)
+            .withUpstreamCalls(STUB.callCounts());
+
+        assertThat(report.sent()).isEqualTo(40);
+        assertThat(report.dropped()).isZero();
+        assertThat(report.responses()).isEqualTo(Map.of("202", 40L));
+        assertThat(report.percentileMicros(0.99)).isPositive();
+        // Two diffs pages, then pom.xml and both spec files, per event
+        assertThat(STUB.calls(GitLabStub.DIFFS)).isEqualTo(80);
+        assertThat(STUB.calls(GitLabStub.RAW_FILE)).isEqualTo(120);
+        assertThat(report.format()).contains("throughput", "p99", "upstream calls per webhook 5.00");
+    }
+}
@@ -0,0 +1,79 @@
+package com.test.demo.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Outcome of one load test run: throughput, the latency distribution of the webhook calls as the sender saw
+ * them, response statuses and the calls that reached the GitLab stub.
+ *
+ * @param sent          Webhook calls sent.
+ * @param dropped       Calls not sent because {@code maxInFlight} calls were already outstanding.
+ * @param responses     Completed calls by status, or by exception type for calls that failed without one.
+ * @param latencyMicros Latency of every completed call, sorted.
+ * @param upstreamCalls Calls received by the GitLab stub during the run, by endpoint and status.
+ */
+public record LoadTestReport(double targetRate, Duration elapsed, long sent, long dropped, Map<String, Long> responses,
+                             long[] latencyMicros, Map<String, Long> upstreamCalls) {
+
+    public LoadTestReport withUpstreamCalls(Map<String, Long> upstreamCalls) {
+        return new LoadTestReport(targetRate, elapsed, sent, dropped, responses, latencyMicros, upstreamCalls);
+    }
+
+    public long completed() {
+        return latencyMicros.length;
+    }
+
+    public double throughput() {
+        return completed() / (elapsed.toNanos() / 1e9);
+    }
+
+    /**
+     * Returns the latency at the given percentile, e.g. 0.99, in microseconds.
+     */
+    public long percentileMicros(double percentile) {
+        if (latencyMicros.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * latencyMicros.length) - 1;
+        return latencyMicros[Math.min(Math.max(index, 0), latencyMicros.length - 1)];
+    }
+
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Webhook load test: target %.1f/s over %.1fs%n", targetRate, elapsed.toMillis() / 1000.0));
+        report.append(String.format("  sent %d, completed %d, dropped %d, throughput %.1f/s%n",
+            sent, completed(), dropped, throughput()));
+        report.append("  responses ").append(responses).append('\n');
+        report.append(String.format("  latency ms: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+            percentileMicros(0.50) / 1000.0, percentileMicros(0.90) / 1000.0, percentileMicros(0.99) / 1000.0,
+            percentileMicros(0.999) / 1000.0, percentileMicros(1.0) / 1000.0));
+        report.append("  latency histogram:\n");
+        appendHistogram(report);
+        report.append("  upstream calls ").append(upstreamCalls).append('\n');
+        if (completed() > 0) {
+            long total = upstreamCalls.values().stream().mapToLong(Long::longValue).sum();
+            report.append(String.format("  upstream calls per webhook %.2f%n", (double) total / completed()));
+        }
+        return report.toString();
+    }
+
+    // Power-of-two millisecond buckets: < 1 ms, 1-2 ms, 2-4 ms, ...
+    private void appendHistogram(StringBuilder report) {
+        if (latencyMicros.length == 0) {
+            return;
+        }
+        int buckets = 64 - Long.numberOfLeadingZeros(Math.max(latencyMicros[latencyMicros.length - 1] / 1000, 1)) + 1;
+        long[] counts = new long[buckets];
+        for (long micros : latencyMicros) {
+            long millis = micros / 1000;
+            counts[millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis)]++;
+        }
+        long max = Arrays.stream(counts).max().orElse(1);
+        for (int i = 0; i < buckets; i++) {
+            String range = i == 0 ? "< 1" : (1L << (i - 1)) + "-" + (1L << i);
+            report.append(String.format("    %12s ms %8d %s%n", range, counts[i], "#".repeat((int) (40 * counts[i] / max))));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.test.demo.loadtest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Fires merge request webhooks at the application at a fixed rate (an open model: calls are sent on schedule
+ * whether or not earlier ones have completed) and records how long each took.
+ * <p>
+ * Every event is a distinct merge into {@code main}, with its own iid and commit, spread over a number of
+ * projects, so nothing is served from caches that real traffic would miss.
+ */
+public final class WebhookLoadGenerator {
+
+    private static final String WEBHOOK_PATH = "/webhooks/gitlab/mergerequest";
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    private final WebClient webClient;
+    private final int projects;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public WebhookLoadGenerator(String applicationUrl, int projects) {
+        this.webClient = WebClient.create(applicationUrl);
+        this.projects = projects;
+    }
+
+    /**
+     * Sends webhooks at {@code ratePerSecond} for {@code duration}, then waits for the outstanding calls.
+     *
+     * @param maxInFlight Outstanding calls beyond which further calls are dropped rather than queued, so a
+     *                    saturated application shows up as drops instead of as ever-growing latency.
+     */
+    public LoadTestReport run(double ratePerSecond, Duration duration, int maxInFlight) {
+        long ticks = Math.max(duration.toMillis() / TICK.toMillis(), 1);
+        double perTick = ratePerSecond * TICK.toMillis() / 1000.0;
+        LongAdder sent = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        Map<String, LongAdder> responses = new ConcurrentHashMap<>();
+        LatencyRecorder latencies = new LatencyRecorder();
+
+        long start = System.nanoTime();
+        Flux.interval(TICK)
+            .take(ticks)
+            // Spread the fractional part of the rate over the ticks
+            .concatMap(tick -> Flux.fromStream(LongStream.range((long) (tick * perTick), (long) ((tick + 1) * perTick)).boxed()))
+            .onBackpressureDrop(event -> dropped.increment())
+            .flatMap(event -> {
+                sent.increment();
+                return send(latencies).doOnNext(outcome -> responses.computeIfAbsent(outcome, key -> new LongAdder()).increment());
+            }, maxInFlight)
+            .blockLast();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Map<String, Long> responseCounts = new TreeMap<>();
+        responses.forEach((outcome, count) -> responseCounts.put(outcome, count.sum()));
+        return new LoadTestReport(ratePerSecond, elapsed, sent.sum(), dropped.sum(), responseCounts,
+            latencies.sorted(), Map.of());
+    }
+
+    private Mono<String> send(LatencyRecorder latencies) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.post()
+                .uri(WEBHOOK_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(nextEvent())
+                .exchangeToMono(response -> response.releaseBody().thenReturn(String.valueOf(response.statusCode().value())))
+                .onErrorResume(e -> Mono.just(e.getClass().getSimpleName()))
+                .doOnNext(outcome -> latencies.record((System.nanoTime() - start) / 1000));
+        });
+    }
+
+    private String nextEvent() {
+        long n = sequence.incrementAndGet();
+        long projectId = n % projects + 1;
+        String commit = String.format("%040x", n);
+        return """
+            {"object_kind":"merge_request","event_type":"merge_request",
+             "user":{"id":1,"name":"Load Test","username":"loadtest"},
+             "project":{"id":%d,"name":"service-%d","default_branch":"main"},
+             "object_attributes":{"iid":%d,"state":"merged","action":"merge","target_branch":"main",
+              "source_branch":"feature-%d","source_project_id":%d,"target_project_id":%d,
+              "last_commit":{"id":"%s","message":"Merge branch 'feature-%d' into 'main'"},
+              "url":"https://gitlab.example.com/group/service-%d/-/merge_requests/%d"}}
+            """.formatted(projectId, projectId, n, n, projectId, projectId, commit, n, projectId, n);
+    }
+
+    /**
+     * Collects latencies from concurrent callers.
+     */
+    private static final class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void record(long micros) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = micros;
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
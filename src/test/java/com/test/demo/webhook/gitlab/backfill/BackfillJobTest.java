@@ -0,0 +1,261 @@
+package com.test.demo.webhook.gitlab.backfill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.GitLabApiProperties;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.client.FileContentCache;
+import com.test.demo.webhook.gitlab.client.GitLabApiClientImpl;
+import com.test.demo.webhook.gitlab.history.VersionHistoryStore;
+import com.test.demo.webhook.gitlab.processor.FileChangeAnalyzer;
+import com.test.demo.webhook.gitlab.processor.PipelineMetrics;
+import com.test.demo.webhook.gitlab.processor.VersionExtractor;
+import com.test.demo.webhook.gitlab.processor.VersionParsingScheduler;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import com.test.demo.webhook.gitlab.service.MergeRequestService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackfillJobTest {
+
+    private static final long PROJECT_ID = 200L;
+    private static final int MERGE_REQUESTS = 30;
+    private static final int PAGE_SIZE = 10;
+    private static final Instant BASE = Instant.parse("2021-03-01T00:00:00Z");
+    private static final Instant FROM = Instant.parse("2021-03-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2021-03-02T00:00:00Z");
+    private static final long OTHER_BRANCH_IID = 5;
+    private static final long NO_SPEC_CHANGE_IID = 7;
+    private static final long MERGED_AFTER_RANGE_IID = 30;
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<Long, AtomicInteger> diffRequests = new ConcurrentHashMap<>();
+    // Update times changed while a backfill runs, e.g. by a comment on a merge request listed already
+    private final Map<Long, Instant> updatedDuringRun = new ConcurrentHashMap<>();
+    private volatile Runnable afterFirstListingPage = () -> {};
+    private volatile Duration diffsLatency = Duration.ZERO;
+    private final WebhookProperties properties = new WebhookProperties();
+    private DisposableServer server;
+    private BackfillCheckpoints checkpoints;
+
+    // One update per minute; iids 10 and 11 share their update time
+    private static Instant updatedAt(long iid) {
+        return BASE.plus(Duration.ofMinutes(iid == 11 ? 10 : iid));
+    }
+
+    private static Instant mergedAt(long iid) {
+        return iid == MERGED_AFTER_RANGE_IID ? TO.plusSeconds(60) : updatedAt(iid).minusSeconds(1);
+    }
+
+    private Instant currentUpdatedAt(long iid) {
+        return updatedDuringRun.getOrDefault(iid, updatedAt(iid));
+    }
+
+    private String mergeRequestJson(long iid) {
+        return """
+            {"iid":%d,"project_id":%d,"source_project_id":%d,"state":"merged","target_branch":"%s",
+             "sha":"sha%d","merged_at":"%s","updated_at":"%s","web_url":"https://gitlab.example.com/mr/%d"}"""
+            .formatted(iid, PROJECT_ID, PROJECT_ID, iid == OTHER_BRANCH_IID ? "feature" : "main", iid,
+                mergedAt(iid), currentUpdatedAt(iid), iid);
+    }
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                // GitLab's listing: by update time, filtered by updated_after and paged with X-Next-Page
+                .get("/api/v4/projects/{id}/merge_requests", (request, response) -> {
+                    Map<String, List<String>> query = new QueryStringDecoder(request.uri()).parameters();
+                    Instant updatedAfter = Instant.parse(query.get("updated_after").get(0));
+                    int page = Integer.parseInt(query.get("page").get(0));
+                    List<Long> listed = IntStream.rangeClosed(1, MERGE_REQUESTS).mapToObj(i -> (long) i)
+                        .filter(iid -> !currentUpdatedAt(iid).isBefore(updatedAfter))
+                        .sorted(Comparator.comparing(this::currentUpdatedAt))
+                        .toList();
+                    List<Long> onPage = listed.stream().skip((long) (page - 1) * PAGE_SIZE).limit(PAGE_SIZE).toList();
+                    boolean last = (long) page * PAGE_SIZE >= listed.size();
+                    String body = onPage.stream().map(this::mergeRequestJson).collect(Collectors.joining(",", "[", "]"));
+                    if (updatedAfter.equals(FROM) && page == 1) {
+                        afterFirstListingPage.run();
+                    }
+                    return response.header("Content-Type", "application/json")
+                        .header("X-Next-Page", last ? "" : String.valueOf(page + 1))
+                        .sendString(Mono.just(body))
+                        .then();
+                })
+                .get("/api/v4/projects/{id}/merge_requests/{iid}/diffs", (request, response) -> {
+                    long iid = Long.parseLong(request.param("iid"));
+                    diffRequests.computeIfAbsent(iid, key -> new AtomicInteger()).incrementAndGet();
+                    String path = iid == NO_SPEC_CHANGE_IID ? "README.md" : "spec/api.yaml";
+                    return Mono.delay(diffsLatency).then(response.header("Content-Type", "application/json")
+                        .sendString(Mono.just("[{\"new_path\":\"" + path + "\",\"old_path\":\"" + path + "\"}]"))
+                        .then());
+                })
+                .get("/api/v4/projects/{id}/repository/files/{path}/raw", (request, response) -> response
+                    .sendString(Mono.just(request.param("path").endsWith("pom.xml")
+                        ? "<project><version>1.0.0</version></project>"
+                        : "openapi: 3.0.0\ninfo:\n  version: 2.0.0\n"))
+                    .then()))
+            .bindNow();
+
+        properties.setTargetBranches("main");
+        properties.setApiSpecFiles(List.of("spec/api.yaml"));
+        properties.getBackfill().setCheckpointDir(tempDir);
+        properties.getHistory().setEnabled(false);
+        properties.getBackfill().setParallelism(2);
+        properties.getBackfill().setProgressInterval(Duration.ofMillis(50));
+        checkpoints = new BackfillCheckpoints(Jackson2ObjectMapperBuilder.json(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    // A fresh client and service per run, as after a restart; nothing is cached between runs
+    private BackfillJob newJob() {
+        GitLabApiProperties apiProperties = new GitLabApiProperties();
+        apiProperties.setBaseUrl("http://localhost:" + server.port() + "/api/v4");
+        GitLabApiClientImpl client = new GitLabApiClientImpl(
+            WebClient.builder().baseUrl(apiProperties.getBaseUrl()).build(), new FileContentCache(apiProperties));
+        ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+        ProjectRoutes routes = new ProjectRoutes(properties, yamlMapper);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MergeRequestService service = new MergeRequestService(client, new VersionExtractor(yamlMapper),
+            new VersionParsingScheduler(properties, meterRegistry), properties, new PipelineMetrics(meterRegistry, routes),
+            List.of(new VersionHistoryStore(properties)));
+        return new BackfillJob(client, new FileChangeAnalyzer(routes, client), service, routes, checkpoints, properties);
+    }
+
+    private int totalDiffRequests() {
+        return diffRequests.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Test
+    void run_shouldProcessMergeRequestsMergedInRangeAcrossListingPages() {
+        List<BackfillProgress> reports = newJob().run(PROJECT_ID, FROM, TO).collectList().block(Duration.ofSeconds(30));
+
+        BackfillProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.finished());
+        assertEquals(MERGE_REQUESTS, last.listed());
+        assertEquals(MERGE_REQUESTS - 3, last.processed());
+        assertEquals(2, last.skipped(), "Another target branch, and no spec file changed");
+        assertEquals(0, last.failed());
+        assertEquals(100.0, last.percentCovered());
+        // Merge requests into other branches are not looked at; merged after the range is not processed
+        assertNull(diffRequests.get(OTHER_BRANCH_IID));
+        assertNull(diffRequests.get(MERGED_AFTER_RANGE_IID));
+        assertEquals(MERGE_REQUESTS - 2, totalDiffRequests());
+
+        BackfillCheckpoint checkpoint = checkpoints.load(PROJECT_ID, FROM, TO);
+        assertTrue(checkpoint.finished());
+        assertEquals(updatedAt(MERGE_REQUESTS), checkpoint.watermark());
+
+        // Running a finished backfill again reports it without calling GitLab
+        List<BackfillProgress> again = newJob().run(PROJECT_ID, FROM, TO).collectList().block(Duration.ofSeconds(10));
+        assertEquals(1, again.size());
+        assertTrue(again.get(0).finished());
+        assertEquals(MERGE_REQUESTS - 2, totalDiffRequests());
+    }
+
+    @Test
+    void run_whenListedMergeRequestUpdatedDuringRun_shouldStillListEveryMergeRequestOnce() {
+        // Moves to the end of the listing, so every later merge request moves back one slot
+        afterFirstListingPage = () -> updatedDuringRun.put(3L, updatedAt(MERGE_REQUESTS).plusSeconds(60));
+
+        List<BackfillProgress> reports = newJob().run(PROJECT_ID, FROM, TO).collectList().block(Duration.ofSeconds(30));
+
+        BackfillProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.finished());
+        assertEquals(MERGE_REQUESTS, last.listed());
+        assertEquals(MERGE_REQUESTS - 3, last.processed());
+        assertEquals(MERGE_REQUESTS - 2, totalDiffRequests());
+        assertTrue(diffRequests.values().stream().allMatch(requests -> requests.get() == 1));
+    }
+
+    @Test
+    void run_whenInterrupted_shouldResumeWithoutReprocessingCompletedMergeRequests() throws InterruptedException {
+        properties.getBackfill().setCheckpointEvery(1);
+        diffsLatency = Duration.ofMillis(20);
+
+        Disposable interrupted = newJob().run(PROJECT_ID, FROM, TO).subscribe();
+        BackfillCheckpoint partial = null;
+        for (int attempt = 0; attempt < 500 && (partial == null || partial.processed() < 10); attempt++) {
+            Thread.sleep(10);
+            partial = checkpoints.load(PROJECT_ID, FROM, TO);
+        }
+        interrupted.dispose();
+        BackfillCheckpoint checkpoint = checkpoints.load(PROJECT_ID, FROM, TO);
+        assertNotNull(checkpoint);
+        assertFalse(checkpoint.finished());
+        assertTrue(checkpoint.processed() >= 10 && checkpoint.processed() < MERGE_REQUESTS - 3, "Stopped part-way");
+
+        Set<Long> completed = IntStream.rangeClosed(1, MERGE_REQUESTS).mapToObj(i -> (long) i)
+            .filter(iid -> updatedAt(iid).isBefore(checkpoint.watermark()) || checkpoint.completedIids().contains(iid))
+            .collect(Collectors.toSet());
+        assertTrue(completed.size() >= 10);
+
+        List<BackfillProgress> reports = newJob().run(PROJECT_ID, FROM, TO).collectList().block(Duration.ofSeconds(30));
+
+        BackfillProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.finished());
+        assertEquals(MERGE_REQUESTS - 3, last.processed(), "Counts carry over from the interrupted run");
+        assertEquals(2, last.skipped());
+        for (long iid = 1; iid <= MERGE_REQUESTS; iid++) {
+            if (iid == OTHER_BRANCH_IID || iid == MERGED_AFTER_RANGE_IID) {
+                continue;
+            }
+            int requests = diffRequests.get(iid).get();
+            if (completed.contains(iid)) {
+                assertEquals(1, requests, "MR !" + iid + " completed before the interruption");
+            } else {
+                // At most the merge requests in flight when interrupted are started twice
+                assertTrue(requests <= 2, "MR !" + iid + " requested " + requests + " times");
+            }
+        }
+        assertTrue(totalDiffRequests() <= MERGE_REQUESTS - 2 + properties.getBackfill().getParallelism());
+    }
+
+    @Test
+    void run_whenAlreadyRunningForProject_shouldFail() {
+        diffsLatency = Duration.ofMillis(50);
+        BackfillJob job = newJob();
+        Disposable first = job.run(PROJECT_ID, FROM, TO).subscribe();
+        try {
+            assertThrows(BackfillJob.BackfillAlreadyRunningException.class,
+                () -> job.run(PROJECT_ID, FROM, TO).blockFirst(Duration.ofSeconds(5)));
+            // A rejected request must not release the running one's claim on the project
+            assertThrows(BackfillJob.BackfillAlreadyRunningException.class,
+                () -> job.run(PROJECT_ID, FROM, TO).blockFirst(Duration.ofSeconds(5)));
+        } finally {
+            first.dispose();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.webhook.gitlab.client.AimdConcurrencyLimiter.Outcome;
+import com.test.demo.webhook.gitlab.client.AimdConcurrencyLimiter.Permit;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AimdConcurrencyLimiterTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    private AimdConcurrencyLimiter limiter(int initialLimit) {
+        return new AimdConcurrencyLimiter(initialLimit, 1, 16, 0.5, 2.0, Duration.ofSeconds(1), clock);
+    }
+
+    private List<Permit> acquireAll(AimdConcurrencyLimiter limiter, int count) {
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            limiter.acquire().subscribe(permits::add);
+        }
+        return permits;
+    }
+
+    @Test
+    void acquire_overLimit_shouldQueueUntilPermitReleased() {
+        AimdConcurrencyLimiter limiter = limiter(2);
+
+        List<Permit> permits = acquireAll(limiter, 3);
+
+        assertEquals(2, permits.size());
+        assertEquals(1, limiter.waiting());
+
+        permits.get(0).release(Outcome.IGNORED, 0);
+
+        assertEquals(3, permits.size());
+        assertEquals(0, limiter.waiting());
+        assertEquals(2, limiter.inFlight());
+    }
+
+    @Test
+    void release_whenDropped_shouldHalveLimitOncePerCooldown() {
+        AimdConcurrencyLimiter limiter = limiter(8);
+        List<Permit> permits = acquireAll(limiter, 3);
+
+        permits.get(0).release(Outcome.DROPPED, 0);
+        permits.get(1).release(Outcome.DROPPED, 0); // Same burst, within the cooldown
+        assertEquals(4, limiter.limit());
+
+        clock.advance(Duration.ofSeconds(1));
+        permits.get(2).release(Outcome.DROPPED, 0);
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    void release_whenSuccessfulAtFullUse_shouldGrowLimitAdditively() {
+        AimdConcurrencyLimiter limiter = limiter(4);
+
+        for (int round = 0; round < 4; round++) {
+            acquireAll(limiter, 4).forEach(permit -> permit.release(Outcome.SUCCESS, 100));
+        }
+
+        assertEquals(5, limiter.limit());
+    }
+
+    @Test
+    void release_whenLatencyGrows_shouldBackOff() {
+        AimdConcurrencyLimiter limiter = limiter(8);
+        acquireAll(limiter, 1).get(0).release(Outcome.SUCCESS, 100);
+
+        acquireAll(limiter, 1).get(0).release(Outcome.SUCCESS, 500);
+
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void acquire_whenWaiterCancels_shouldLeaveQueue() {
+        AimdConcurrencyLimiter limiter = limiter(1);
+        List<Permit> permits = acquireAll(limiter, 1);
+        Disposable waiter = limiter.acquire().subscribe();
+        assertEquals(1, limiter.waiting());
+
+        waiter.dispose();
+        permits.get(0).release(Outcome.IGNORED, 0);
+
+        assertEquals(0, limiter.waiting());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void permit_releasedTwice_shouldOnlyCountOnce() {
+        AimdConcurrencyLimiter limiter = limiter(2);
+        Permit permit = acquireAll(limiter, 1).get(0);
+
+        permit.release(Outcome.SUCCESS, 10);
+        permit.release(Outcome.SUCCESS, 10);
+
+        assertEquals(0, limiter.inFlight());
+    }
+}
@@ -0,0 +1,101 @@
+package com.test.demo.webhook.gitlab.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final CircuitBreaker breaker = new CircuitBreaker(0.5, 10, 4, Duration.ofSeconds(30), 2, clock);
+
+    private void call(boolean failure) {
+        assertTrue(breaker.tryAcquire());
+        if (failure) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    @Test
+    void shouldStayClosedBelowMinimumCallsAndThreshold() {
+        call(true);
+        call(true);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state()); // Only 3 calls recorded
+
+        call(false);
+        call(false);
+        call(false);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state()); // 3 of 7 failed
+    }
+
+    @Test
+    void shouldOpenAtFailureRateAndFailFastUntilOpenDurationPassed() {
+        call(false);
+        call(false);
+        call(true);
+        call(true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        clock.advance(Duration.ofSeconds(29));
+        assertFalse(breaker.tryAcquire());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    @Test
+    void halfOpen_shouldCloseAfterTrialCallsSucceed() {
+        openBreaker();
+        clock.advance(Duration.ofSeconds(30));
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire()); // Only 2 trial calls
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        call(true); // Window was reset, one failure does not reopen it
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void halfOpen_shouldReopenOnTrialFailure() {
+        openBreaker();
+        clock.advance(Duration.ofSeconds(30));
+
+        call(true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpen_ignoredTrialShouldFreeItsSlot() {
+        openBreaker();
+        clock.advance(Duration.ofSeconds(30));
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+}
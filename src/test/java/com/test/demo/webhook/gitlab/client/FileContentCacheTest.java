@@ -0,0 +1,116 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileContentCacheTest {
+
+    private static final String COMMIT_SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final Long PROJECT_ID = 123L;
+
+    private FileContentCache fileContentCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        fileContentCache = new FileContentCache(new GitLabApiProperties());
+        loads = new AtomicInteger();
+    }
+
+    private Mono<byte[]> load(String content) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return content.getBytes(StandardCharsets.UTF_8);
+        });
+    }
+
+    private static String text(byte[] content) {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void getOrLoad_whenRefIsFullSha_shouldLoadOnceAndServeFromCache() {
+        StepVerifier.create(fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, () -> load("pom")).map(FileContentCacheTest::text))
+            .expectNext("pom")
+            .verifyComplete();
+        StepVerifier.create(fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, () -> load("other")).map(FileContentCacheTest::text))
+            .expectNext("pom")
+            .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, fileContentCache.stats().hitCount());
+        assertEquals(1, fileContentCache.stats().missCount());
+    }
+
+    @Test
+    void getOrLoad_whenRefIsBranchName_shouldBypassCache() {
+        fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", "main", () -> load("v1")).block();
+        String second = text(fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", "main", () -> load("v2")).block());
+
+        assertEquals("v2", second);
+        assertEquals(2, loads.get());
+        assertEquals(0, fileContentCache.stats().requestCount());
+    }
+
+    @Test
+    void getOrLoad_whenKeysDiffer_shouldNotShareEntries() {
+        fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, () -> load("a")).block();
+        fileContentCache.getOrLoad(PROJECT_ID, "spec/api.yaml", COMMIT_SHA, () -> load("b")).block();
+        fileContentCache.getOrLoad(456L, "pom.xml", COMMIT_SHA, () -> load("c")).block();
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void getOrLoad_whenLoaderEmpty_shouldNotCacheAbsence() {
+        StepVerifier.create(fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, Mono::empty))
+            .verifyComplete();
+        StepVerifier.create(fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, () -> load("pom")).map(FileContentCacheTest::text))
+            .expectNext("pom")
+            .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getOrLoad_whenDisabled_shouldAlwaysLoad() {
+        GitLabApiProperties properties = new GitLabApiProperties();
+        properties.getCache().setEnabled(false);
+        fileContentCache = new FileContentCache(properties);
+
+        fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, () -> load("pom")).block();
+        fileContentCache.getOrLoad(PROJECT_ID, "pom.xml", COMMIT_SHA, () -> load("pom")).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getOrLoad_whenWeightExceeded_shouldEvict() {
+        GitLabApiProperties properties = new GitLabApiProperties();
+        properties.getCache().setMaxWeightBytes(10);
+        fileContentCache = new FileContentCache(properties);
+
+        fileContentCache.getOrLoad(PROJECT_ID, "a", COMMIT_SHA, () -> load("12345678")).block();
+        fileContentCache.getOrLoad(PROJECT_ID, "b", COMMIT_SHA, () -> load("12345678")).block();
+        fileContentCache.cleanUp();
+
+        assertTrue(fileContentCache.stats().evictionCount() >= 1);
+    }
+
+    @Test
+    void isCacheableRef_shouldAcceptOnlyFullShas() {
+        assertTrue(FileContentCache.isCacheableRef(COMMIT_SHA));
+        assertTrue(FileContentCache.isCacheableRef(COMMIT_SHA.toUpperCase()));
+        assertFalse(FileContentCache.isCacheableRef("01234567"));
+        assertFalse(FileContentCache.isCacheableRef("main"));
+        assertFalse(FileContentCache.isCacheableRef(null));
+    }
+}
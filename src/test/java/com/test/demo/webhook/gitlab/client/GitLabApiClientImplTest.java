@@ -0,0 +1,147 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import com.test.demo.webhook.gitlab.dto.ApiResponses.Change;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitLabApiClientImplTest {
+
+    private static final String COMMIT_SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final String SPEC_CONTENT = "openapi: 3.0.0\ninfo:\n  version: 1.2.3\n";
+
+    private static final long MISSING_MR_IID = 404L;
+    private static final long FAILING_MR_IID = 503L;
+
+    private final List<String> requestedUris = new CopyOnWriteArrayList<>();
+    private DisposableServer server;
+    private GitLabApiClientImpl client;
+
+    @BeforeEach
+    void setUp() {
+        // Stand-in for the GitLab REST API
+        server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                .get("/api/v4/projects/{id}/repository/files/{path}/raw", (request, response) -> {
+                    requestedUris.add(request.uri());
+                    if (request.uri().contains("missing")) {
+                        return response.status(404).send();
+                    }
+                    return response.sendString(Mono.just(SPEC_CONTENT));
+                })
+                .get("/api/v4/projects/{id}/merge_requests/{iid}/diffs", (request, response) -> {
+                    requestedUris.add(request.uri());
+                    // Two changes per page over three pages, each with a diff body the client never binds
+                    int page = Integer.parseInt(new QueryStringDecoder(request.uri()).parameters().get("page").get(0));
+                    if (request.param("iid").equals(String.valueOf(MISSING_MR_IID))) {
+                        return response.status(404).send();
+                    }
+                    if (request.param("iid").equals(String.valueOf(FAILING_MR_IID)) && page == 2) {
+                        return response.status(503).send();
+                    }
+                    String body = "[" + diffEntry("file-" + page + "a.txt") + "," + diffEntry("file-" + page + "b.txt") + "]";
+                    return response
+                        .header("Content-Type", "application/json")
+                        .header("X-Next-Page", page < 3 ? String.valueOf(page + 1) : "")
+                        .sendString(Mono.just(body));
+                }))
+            .bindNow();
+
+        WebClient webClient = WebClient.builder()
+            .baseUrl("http://localhost:" + server.port() + "/api/v4")
+            .build();
+        client = new GitLabApiClientImpl(webClient, new FileContentCache(new GitLabApiProperties()));
+    }
+
+    private static String diffEntry(String path) {
+        return "{\"old_path\":\"" + path + "\",\"new_path\":\"" + path + "\",\"a_mode\":\"100644\","
+            + "\"b_mode\":\"100644\",\"new_file\":false,\"renamed_file\":false,\"deleted_file\":false,"
+            + "\"diff\":\"@@ -1 +1 @@\\n-old\\n+new\\n\"}";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void getRawFile_shouldRequestRawEndpointWithEncodedPath() {
+        StepVerifier.create(client.getRawFile(123L, "APISPEC/resolved/swagger.yml", COMMIT_SHA))
+            .expectNextMatches(bytes -> new String(bytes, StandardCharsets.UTF_8).equals(SPEC_CONTENT))
+            .verifyComplete();
+
+        assertEquals(List.of("/api/v4/projects/123/repository/files/APISPEC%2Fresolved%2Fswagger.yml/raw?ref=" + COMMIT_SHA),
+            requestedUris);
+    }
+
+    @Test
+    void getFileContent_shouldDecodeRawBytesAsUtf8() {
+        StepVerifier.create(client.getFileContent(123L, "pom.xml", COMMIT_SHA))
+            .expectNext(SPEC_CONTENT)
+            .verifyComplete();
+    }
+
+    @Test
+    void getRawFile_whenFileMissing_shouldReturnEmpty() {
+        StepVerifier.create(client.getRawFile(123L, "missing.yml", COMMIT_SHA))
+            .verifyComplete();
+    }
+
+    @Test
+    void getRawFile_whenFetchedTwiceAtSameCommit_shouldHitGitLabOnce() {
+        client.getRawFile(123L, "pom.xml", COMMIT_SHA).block();
+        client.getRawFile(123L, "pom.xml", COMMIT_SHA).block();
+
+        assertEquals(1, requestedUris.size());
+    }
+
+    @Test
+    void getMergeRequestDiffs_shouldFollowNextPageHeaderUntilLastPage() {
+        StepVerifier.create(client.getMergeRequestDiffs(123L, 7L).map(Change::newPath))
+            .expectNext("file-1a.txt", "file-1b.txt", "file-2a.txt", "file-2b.txt", "file-3a.txt", "file-3b.txt")
+            .verifyComplete();
+
+        assertEquals(List.of(
+                "/api/v4/projects/123/merge_requests/7/diffs?page=1&per_page=100",
+                "/api/v4/projects/123/merge_requests/7/diffs?page=2&per_page=100",
+                "/api/v4/projects/123/merge_requests/7/diffs?page=3&per_page=100"),
+            requestedUris);
+    }
+
+    @Test
+    void getMergeRequestDiffs_whenLaterPageFails_shouldFailInsteadOfEndingEarly() {
+        StepVerifier.create(client.getMergeRequestDiffs(123L, FAILING_MR_IID).map(Change::newPath))
+            .expectNext("file-1a.txt", "file-1b.txt")
+            .verifyError(WebClientResponseException.ServiceUnavailable.class);
+    }
+
+    @Test
+    void getMergeRequestDiffs_whenMergeRequestNotFound_shouldReturnNoChanges() {
+        StepVerifier.create(client.getMergeRequestDiffs(123L, MISSING_MR_IID))
+            .verifyComplete();
+    }
+
+    @Test
+    void getMergeRequestDiffs_whenCancelledWithinFirstPage_shouldNotFetchFurtherPages() {
+        StepVerifier.create(client.getMergeRequestDiffs(123L, 7L).take(2))
+            .expectNextCount(2)
+            .verifyComplete();
+
+        assertEquals(List.of("/api/v4/projects/123/merge_requests/7/diffs?page=1&per_page=100"), requestedUris);
+    }
+}
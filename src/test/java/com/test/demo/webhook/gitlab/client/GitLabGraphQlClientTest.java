@@ -0,0 +1,213 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.util.function.Tuple2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitLabGraphQlClientTest {
+
+    private static final String COMMIT_SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final String POM = "pom.xml";
+    private static final String SPEC = "APISPEC/resolved/swagger.yml";
+    private static final String MISSING_SPEC = "APISPEC/unresolved/swagger.yml";
+    private static final String REST_CONTENT = "openapi: 3.0.0\ninfo:\n  version: 9.9.9\n";
+
+    private final List<String> graphQlBodies = new CopyOnWriteArrayList<>();
+    private final List<String> restUris = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DisposableServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * Starts a stand-in for GitLab that answers every GraphQL query with the given recorded response
+     * (or status), and serves every file over REST.
+     */
+    private GitLabGraphQlClient client(String recordedResponse, int graphQlStatus, int maxPathsPerQuery) {
+        String graphQlResponse = recordedResponse != null ? recorded(recordedResponse) : "";
+        server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                .post("/api/graphql", (request, response) -> request.receive().aggregate().asString()
+                    .doOnNext(graphQlBodies::add)
+                    .then(response.status(graphQlStatus)
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just(graphQlResponse))
+                        .then()))
+                .get("/api/v4/projects/{id}/repository/files/{path}/raw", (request, response) -> {
+                    restUris.add(request.uri());
+                    return response.sendString(Mono.just(REST_CONTENT));
+                }))
+            .bindNow();
+
+        GitLabApiProperties properties = new GitLabApiProperties();
+        properties.setBaseUrl("http://localhost:" + server.port() + "/api/v4");
+        properties.getGraphql().setEnabled(true);
+        properties.getGraphql().setMaxPathsPerQuery(maxPathsPerQuery);
+        WebClient webClient = WebClient.builder().baseUrl(properties.getBaseUrl()).build();
+        FileContentCache cache = new FileContentCache(properties);
+        return new GitLabGraphQlClient(new GitLabApiClientImpl(webClient, cache), webClient, cache, properties, meterRegistry);
+    }
+
+    private static String recorded(String name) {
+        try (InputStream in = GitLabGraphQlClientTest.class.getResourceAsStream("/gitlab/graphql/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String text(byte[] content) {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    private double fallbacks(String reason) {
+        return meterRegistry.get("gitlab.api.graphql.fallbacks").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void getRawFiles_shouldFetchAllPathsInOneQuery() {
+        GitLabGraphQlClient client = client("blobs.json", 200, 50);
+
+        Map<String, byte[]> files = client.getRawFiles(123L, List.of(POM, SPEC, MISSING_SPEC), COMMIT_SHA, 4).block();
+
+        assertEquals(List.of(POM, SPEC), List.copyOf(files.keySet()), "Missing files are absent, the rest in request order");
+        assertTrue(text(files.get(POM)).contains("<version>1.4.0</version>"));
+        assertTrue(text(files.get(SPEC)).contains("version: 2.1.0"));
+        assertEquals(1, graphQlBodies.size());
+        assertTrue(graphQlBodies.get(0).contains("gid://gitlab/Project/123"));
+        assertTrue(graphQlBodies.get(0).contains(COMMIT_SHA));
+        assertTrue(graphQlBodies.get(0).contains(MISSING_SPEC));
+        assertTrue(restUris.isEmpty());
+    }
+
+    @Test
+    void getRawFiles_whenFilesCachedAtCommit_shouldNotQueryAgain() {
+        GitLabGraphQlClient client = client("blobs.json", 200, 50);
+        client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4).block();
+
+        Map<String, byte[]> files = client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4).block();
+
+        assertEquals(2, files.size());
+        assertEquals(1, graphQlBodies.size());
+        // Single-file calls go over REST but share the cache
+        assertTrue(text(client.getRawFile(123L, POM, COMMIT_SHA).block()).contains("1.4.0"));
+        assertTrue(restUris.isEmpty());
+    }
+
+    @Test
+    void getRawFiles_whenCallsOverlap_shouldQueryEachFileOnce() {
+        GitLabGraphQlClient client = client("blobs.json", 200, 50);
+
+        // Both calls are subscribed before the first query returns
+        Tuple2<Map<String, byte[]>, Map<String, byte[]>> files = Mono.zip(client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4),
+                client.getRawFiles(123L, List.of(SPEC, MISSING_SPEC), COMMIT_SHA, 4)).block();
+
+        assertEquals(List.of(POM, SPEC), List.copyOf(files.getT1().keySet()));
+        assertEquals(List.of(SPEC), List.copyOf(files.getT2().keySet()));
+        assertEquals(2, graphQlBodies.size());
+        assertEquals(1, graphQlBodies.stream().filter(body -> body.contains(SPEC)).count(),
+            "The second query asks only for the file not already in flight");
+    }
+
+    @Test
+    void getRawFiles_whenMorePathsThanOneQueryAllows_shouldSplitQueries() {
+        GitLabGraphQlClient client = client("blobs.json", 200, 1);
+
+        Map<String, byte[]> files = client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4).block();
+
+        assertEquals(2, files.size());
+        assertEquals(2, graphQlBodies.size());
+    }
+
+    @Test
+    void getRawFiles_whenQueryRejected_shouldFallBackToRestAndSkipGraphQlAfterwards() {
+        GitLabGraphQlClient client = client("blobs-field-missing.json", 200, 50);
+
+        Map<String, byte[]> files = client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4).block();
+
+        assertEquals(REST_CONTENT, text(files.get(SPEC)));
+        assertEquals(2, restUris.size());
+        assertEquals(1, fallbacks("unavailable"));
+
+        // Within the backoff GitLab is not asked again
+        client.getRawFiles(123L, List.of("other.yml"), COMMIT_SHA, 4).block();
+        assertEquals(1, graphQlBodies.size());
+        assertEquals(3, restUris.size());
+    }
+
+    @Test
+    void getRawFiles_whenGraphQlEndpointMissing_shouldFallBackToRest() {
+        GitLabGraphQlClient client = client(null, 404, 50);
+
+        Map<String, byte[]> files = client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4).block();
+
+        assertEquals(2, files.size());
+        assertEquals(2, restUris.size());
+        assertEquals(1, fallbacks("unavailable"));
+    }
+
+    @Test
+    void getRawFiles_whenServerErrors_shouldFallBackWithoutBackoff() {
+        GitLabGraphQlClient client = client(null, 502, 50);
+
+        client.getRawFiles(123L, List.of(POM), COMMIT_SHA, 4).block();
+        client.getRawFiles(123L, List.of(SPEC), COMMIT_SHA, 4).block();
+
+        assertEquals(2, graphQlBodies.size(), "A transient failure does not disable GraphQL");
+        assertEquals(2, restUris.size());
+        assertEquals(2, fallbacks("error"));
+    }
+
+    @Test
+    void getRawFiles_whenFileDeclaresNonUtf8Encoding_shouldFetchItOverRest() {
+        GitLabGraphQlClient client = client("blobs-latin1.json", 200, 50);
+
+        Map<String, byte[]> files = client.getRawFiles(123L, List.of(POM, SPEC), COMMIT_SHA, 4).block();
+
+        // Encoded as UTF-8 again, the text would no longer match the declared ISO-8859-1
+        assertEquals(REST_CONTENT, text(files.get(POM)));
+        assertTrue(text(files.get(SPEC)).contains("version: 2.1.0"));
+        assertEquals(List.of("/api/v4/projects/123/repository/files/pom.xml/raw?ref=" + COMMIT_SHA), restUris);
+        assertEquals(1, fallbacks("incomplete"));
+        assertEquals(REST_CONTENT, text(client.getRawFile(123L, POM, COMMIT_SHA).block()), "REST bytes are cached");
+    }
+
+    @Test
+    void isUtf8Text_shouldRejectOtherDeclaredEncodingsAndReplacedBytes() {
+        assertTrue(GitLabGraphQlClient.isUtf8Text("<project><version>1.0</version></project>"));
+        assertTrue(GitLabGraphQlClient.isUtf8Text("<?xml version='1.0' encoding='utf-8'?><project/>"));
+        assertFalse(GitLabGraphQlClient.isUtf8Text("﻿<?xml version=\"1.0\" encoding=\"windows-1252\"?><project/>"));
+        assertFalse(GitLabGraphQlClient.isUtf8Text("openapi: 3.0.0\ninfo:\n  title: Caf�\n"));
+    }
+
+    @Test
+    void graphQlUrlFor_shouldDeriveEndpointFromRestBaseUrl() {
+        assertEquals(URI.create("https://gitlab.example.com/api/graphql"),
+            GitLabGraphQlClient.graphQlUrlFor("https://gitlab.example.com/api/v4"));
+        assertEquals(URI.create("https://gitlab.example.com/gitlab/api/graphql"),
+            GitLabGraphQlClient.graphQlUrlFor("https://gitlab.example.com/gitlab/api/v4/"));
+    }
+}
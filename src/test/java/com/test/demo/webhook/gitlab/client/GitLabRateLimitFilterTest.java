@@ -0,0 +1,113 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitLabRateLimitFilterTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://gitlab/api/v4/projects/1")).build();
+
+    private GitLabRateLimitFilter filter() {
+        GitLabApiProperties.RateLimit rateLimit = new GitLabApiProperties.RateLimit();
+        rateLimit.setInitialConcurrency(4);
+        return new GitLabRateLimitFilter(rateLimit, meterRegistry, clock);
+    }
+
+    private static ExchangeFunction respond(HttpStatus status, String... headers) {
+        return clientRequest -> {
+            ClientResponse.Builder response = ClientResponse.create(status);
+            for (int i = 0; i < headers.length; i += 2) {
+                response.header(headers[i], headers[i + 1]);
+            }
+            return Mono.just(response.build());
+        };
+    }
+
+    // Reads the body as every WebClient caller does, which ends the call
+    private static Mono<ClientResponse> released(Mono<ClientResponse> response) {
+        return response.flatMap(r -> r.releaseBody().thenReturn(r));
+    }
+
+    @Test
+    void filter_shouldPaceFromRateLimitHeaders() {
+        GitLabRateLimitFilter filter = filter();
+
+        StepVerifier.create(released(filter.filter(request, respond(HttpStatus.OK,
+                "RateLimit-Limit", "600", "RateLimit-Remaining", "330",
+                "RateLimit-Reset", String.valueOf(NOW.getEpochSecond() + 30)))))
+            .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+            .verifyComplete();
+
+        assertEquals(10.0, filter.tokenBucket().ratePerSecond(), 0.001);
+        assertEquals(0, filter.concurrencyLimiter().inFlight());
+    }
+
+    @Test
+    void filter_whenThrottled_shouldBackOffAndPauseForRetryAfter() {
+        GitLabRateLimitFilter filter = filter();
+
+        StepVerifier.create(released(filter.filter(request, respond(HttpStatus.TOO_MANY_REQUESTS, "Retry-After", "7"))))
+            .expectNextMatches(response -> response.statusCode() == HttpStatus.TOO_MANY_REQUESTS)
+            .verifyComplete();
+
+        assertEquals(2, filter.concurrencyLimiter().limit());
+        assertTrue(filter.tokenBucket().reserve().compareTo(Duration.ofSeconds(7)) >= 0);
+        assertEquals(1.0, meterRegistry.get("gitlab.api.ratelimit.throttled").counter().count());
+    }
+
+    @Test
+    void filter_shouldHoldPermitUntilBodyIsRead() {
+        GitLabRateLimitFilter filter = filter();
+        ClientResponse response = filter.filter(request,
+                clientRequest -> Mono.just(ClientResponse.create(HttpStatus.OK).body("spec").build())).block();
+
+        assertEquals(1, filter.concurrencyLimiter().inFlight(), "Headers alone do not end the call");
+
+        StepVerifier.create(response.bodyToMono(String.class))
+            .expectNext("spec")
+            .verifyComplete();
+        assertEquals(0, filter.concurrencyLimiter().inFlight());
+    }
+
+    @Test
+    void filter_whenExchangeFails_shouldReleasePermitAndBackOff() {
+        GitLabRateLimitFilter filter = filter();
+
+        StepVerifier.create(filter.filter(request, clientRequest -> Mono.error(new IllegalStateException("connection reset"))))
+            .verifyError(IllegalStateException.class);
+
+        assertEquals(0, filter.concurrencyLimiter().inFlight());
+        assertEquals(2, filter.concurrencyLimiter().limit());
+    }
+
+    @Test
+    void filter_whenCancelledInFlight_shouldReleasePermit() {
+        GitLabRateLimitFilter filter = filter();
+
+        StepVerifier.create(filter.filter(request, clientRequest -> Mono.never()))
+            .thenAwait(Duration.ofMillis(10))
+            .thenCancel()
+            .verify();
+
+        assertEquals(0, filter.concurrencyLimiter().inFlight());
+        assertEquals(4, filter.concurrencyLimiter().limit());
+    }
+}
@@ -0,0 +1,214 @@
+package com.test.demo.webhook.gitlab.client;
+
+import com.test.demo.config.GitLabApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitLabResilienceFilterTest {
+
+    private static final String ENDPOINT = "/projects/{projectId}/repository/files/{filePath}/raw";
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GitLabApiProperties.Resilience resilience = new GitLabApiProperties.Resilience();
+
+    GitLabResilienceFilterTest() {
+        resilience.setInitialBackoff(Duration.ofMillis(1));
+        resilience.setMaxBackoff(Duration.ofMillis(5));
+        resilience.setMinHedgeDelay(Duration.ofMillis(20));
+    }
+
+    private static ClientRequest request(HttpMethod method) {
+        return ClientRequest.create(method, URI.create("http://gitlab/api/v4/projects/1/repository/files/a.yml/raw?ref=main"))
+                .attribute(GitLabResilienceFilter.URI_TEMPLATE_ATTRIBUTE, ENDPOINT + "?ref={ref}")
+                .build();
+    }
+
+    private GitLabResilienceFilter filter() {
+        return new GitLabResilienceFilter(resilience, meterRegistry, clock);
+    }
+
+    private double calls(String outcome) {
+        return meterRegistry.get("gitlab.api.calls").tag("endpoint", ENDPOINT).tag("outcome", outcome).counter().count();
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).tag("endpoint", ENDPOINT).counter().count();
+    }
+
+    @Test
+    void filter_shouldRetryTransientFailuresUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+        ExchangeFunction next = clientRequest -> switch (attempts.incrementAndGet()) {
+            case 1 -> Mono.error(new IOException("connection reset"));
+            case 2 -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            default -> Mono.just(ClientResponse.create(HttpStatus.OK).body("spec").build());
+        };
+
+        StepVerifier.create(filter().filter(request(HttpMethod.GET), next))
+            .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+            .verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, count("gitlab.api.calls.retries"));
+        assertEquals(1.0, calls("success"));
+    }
+
+    @Test
+    void filter_whenRetriesExhausted_shouldPassOnLastErrorResponse() {
+        resilience.setMaxRetries(2);
+        AtomicInteger attempts = new AtomicInteger();
+        ExchangeFunction next = clientRequest -> {
+            attempts.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY).body("upstream down").build());
+        };
+
+        StepVerifier.create(filter().filter(request(HttpMethod.GET), next).flatMap(response -> response.bodyToMono(String.class)
+                .map(body -> response.statusCode().value() + " " + body)))
+            .expectNext("502 upstream down")
+            .verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(1.0, calls("failed"));
+    }
+
+    @Test
+    void filter_shouldNotRetryClientErrorsOrNonIdempotentCalls() {
+        AtomicInteger attempts = new AtomicInteger();
+        GitLabResilienceFilter filter = filter();
+
+        StepVerifier.create(filter.filter(request(HttpMethod.GET), clientRequest -> {
+                attempts.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+            }))
+            .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
+            .verifyComplete();
+        StepVerifier.create(filter.filter(request(HttpMethod.POST), clientRequest -> {
+                attempts.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            }))
+            .expectNextMatches(response -> response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE)
+            .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, calls("client_error"));
+    }
+
+    @Test
+    void filter_whenEndpointKeepsFailing_shouldOpenCircuitAndFailFast() {
+        resilience.setMaxRetries(0);
+        resilience.setMinimumCalls(3);
+        GitLabResilienceFilter filter = filter();
+        AtomicInteger attempts = new AtomicInteger();
+        ExchangeFunction down = clientRequest -> {
+            attempts.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+        };
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(filter.filter(request(HttpMethod.GET), down)).expectNextCount(1).verifyComplete();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, filter.circuitState(ENDPOINT));
+
+        StepVerifier.create(filter.filter(request(HttpMethod.GET), down))
+            .verifyError(CircuitBreaker.OpenException.class);
+        assertEquals(3, attempts.get());
+        assertEquals(1.0, calls("short_circuited"));
+
+        clock.advance(resilience.getOpenDuration());
+        StepVerifier.create(filter.filter(request(HttpMethod.GET),
+                clientRequest -> Mono.just(ClientResponse.create(HttpStatus.OK).build())))
+            .expectNextCount(1)
+            .verifyComplete();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, filter.circuitState(ENDPOINT));
+    }
+
+    // Named like the exception of the shaded reactor-pool, which is recognised by its name only
+    private static final class PoolAcquirePendingLimitException extends RuntimeException {
+        PoolAcquirePendingLimitException() {
+            super("Pending acquire queue has reached its maximum size");
+        }
+    }
+
+    @Test
+    void filter_whenConnectionPoolSaturated_shouldNeitherRetryNorOpenCircuit() {
+        resilience.setMinimumCalls(3);
+        GitLabResilienceFilter filter = filter();
+        AtomicInteger attempts = new AtomicInteger();
+        ExchangeFunction saturated = clientRequest -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IllegalStateException("acquire failed", new PoolAcquirePendingLimitException()));
+        };
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(filter.filter(request(HttpMethod.GET), saturated))
+                .verifyError(IllegalStateException.class);
+        }
+
+        assertEquals(5, attempts.get());
+        assertEquals(CircuitBreaker.State.CLOSED, filter.circuitState(ENDPOINT));
+        assertEquals(5.0, calls("failed"));
+        assertFalse(GitLabResilienceFilter.isPoolSaturated(new IOException("connection reset")));
+    }
+
+    @Test
+    void filter_whenCallIsSlowerThanPercentile_shouldHedgeAndCancelOriginal() {
+        GitLabResilienceFilter filter = filter();
+        ExchangeFunction fast = clientRequest -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        for (int i = 0; i < resilience.getMinLatencySamples(); i++) {
+            StepVerifier.create(filter.filter(request(HttpMethod.GET), fast)).expectNextCount(1).verifyComplete();
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean originalCancelled = new AtomicBoolean();
+        ExchangeFunction slowThenFast = clientRequest -> attempts.incrementAndGet() == 1
+                ? Mono.<ClientResponse>never().doOnCancel(() -> originalCancelled.set(true))
+                : Mono.just(ClientResponse.create(HttpStatus.OK).body("hedge").build());
+
+        // On virtual time the hedge delay elapses, and the original is cancelled, before verify returns
+        StepVerifier.withVirtualTime(() -> filter.filter(request(HttpMethod.GET), slowThenFast)
+                .flatMap(response -> response.bodyToMono(String.class)))
+            .expectSubscription()
+            .expectNoEvent(resilience.getMinHedgeDelay().minusMillis(1))
+            .thenAwait(Duration.ofMillis(1))
+            .expectNext("hedge")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertEquals(2, attempts.get());
+        assertTrue(originalCancelled.get());
+        assertEquals(1.0, count("gitlab.api.calls.hedges"));
+        assertEquals(1.0, count("gitlab.api.calls.hedges.won"));
+    }
+
+    @Test
+    void filter_beforeEnoughLatencySamples_shouldNotHedge() {
+        AtomicInteger attempts = new AtomicInteger();
+        ExchangeFunction slow = clientRequest -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).map(tick -> ClientResponse.create(HttpStatus.OK).build());
+        };
+
+        StepVerifier.create(filter().filter(request(HttpMethod.GET), slow))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,163 @@
+package com.test.demo.webhook.gitlab.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightRequestsTest {
+
+    private InFlightRequests<String, String> inFlightRequests;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        inFlightRequests = new InFlightRequests<>();
+        upstreamCalls = new AtomicInteger();
+    }
+
+    private Mono<String> upstream(Sinks.One<String> sink) {
+        return sink.asMono().doOnSubscribe(s -> upstreamCalls.incrementAndGet());
+    }
+
+    @Test
+    void execute_whenCallsOverlap_shouldShareOneUpstreamCall() {
+        Sinks.One<String> sink = Sinks.one();
+
+        Mono<String> first = inFlightRequests.execute("key", () -> upstream(sink));
+        Mono<String> second = inFlightRequests.execute("key", () -> upstream(sink));
+
+        StepVerifier.create(Mono.zip(first, second))
+            .then(() -> sink.tryEmitValue("value"))
+            .expectNextMatches(t -> t.getT1().equals("value") && t.getT2().equals("value"))
+            .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, inFlightRequests.coalescedCount());
+        assertEquals(0, inFlightRequests.inFlightCount());
+    }
+
+    @Test
+    void execute_whenUpstreamFails_shouldPropagateErrorToAllCallers() {
+        Sinks.One<String> sink = Sinks.one();
+
+        Mono<String> first = inFlightRequests.execute("key", () -> upstream(sink));
+        Mono<String> second = inFlightRequests.execute("key", () -> upstream(sink));
+
+        StepVerifier.create(Mono.zipDelayError(first.onErrorReturn("failed-1"), second.onErrorReturn("failed-2")))
+            .then(() -> sink.tryEmitError(new IllegalStateException("boom")))
+            .expectNextMatches(t -> t.getT1().equals("failed-1") && t.getT2().equals("failed-2"))
+            .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void execute_whenKeysDiffer_shouldNotShare() {
+        inFlightRequests.execute("a", () -> Mono.just("a").doOnSubscribe(s -> upstreamCalls.incrementAndGet())).block();
+        inFlightRequests.execute("b", () -> Mono.just("b").doOnSubscribe(s -> upstreamCalls.incrementAndGet())).block();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void execute_whenPreviousCallCompleted_shouldStartNewCall() {
+        inFlightRequests.execute("key", () -> Mono.just("v1").doOnSubscribe(s -> upstreamCalls.incrementAndGet())).block();
+        String second = inFlightRequests.execute("key", () -> Mono.just("v2").doOnSubscribe(s -> upstreamCalls.incrementAndGet())).block();
+
+        assertEquals("v2", second);
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void execute_whenOneSubscriberCancels_shouldKeepUpstreamForOthers() {
+        Sinks.One<String> sink = Sinks.one();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+        Disposable cancelled = inFlightRequests.execute("key",
+                () -> upstream(sink).doOnCancel(() -> upstreamCancelled.set(true))).subscribe();
+        Mono<String> survivor = inFlightRequests.execute("key", () -> upstream(sink));
+
+        StepVerifier.create(survivor)
+            .then(cancelled::dispose)
+            .then(() -> sink.tryEmitValue("value"))
+            .expectNext("value")
+            .verifyComplete();
+
+        assertFalse(upstreamCancelled.get());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void execute_whenAllSubscribersCancel_shouldCancelUpstreamAndReleaseKey() {
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+        Disposable subscription = inFlightRequests.execute("key",
+                () -> Mono.<String>never().doOnCancel(() -> upstreamCancelled.set(true))).subscribe();
+        subscription.dispose();
+
+        assertTrue(upstreamCancelled.get());
+        assertEquals(0, inFlightRequests.inFlightCount());
+
+        StepVerifier.create(inFlightRequests.execute("key", () -> Mono.just("fresh")))
+            .expectNext("fresh")
+            .verifyComplete();
+    }
+
+    @Test
+    void execute_shouldBeLazyUntilSubscribed() {
+        Mono<String> call = inFlightRequests.execute("key", () -> Mono.just("value").doOnSubscribe(s -> upstreamCalls.incrementAndGet()));
+
+        assertEquals(0, upstreamCalls.get());
+        StepVerifier.create(call).expectNext("value").verifyComplete();
+        StepVerifier.create(call.delaySubscription(Duration.ofMillis(1))).expectNext("value").verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void executeAll_shouldJoinInFlightKeysAndBatchTheOthers() {
+        Sinks.One<String> sink = Sinks.one();
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        Mono<String> single = inFlightRequests.execute("a", () -> upstream(sink));
+
+        Mono<Map<String, String>> all = inFlightRequests.executeAll(List.of("a", "b", "c", "b"), keys -> {
+            batches.add(keys);
+            return Mono.just(Map.of("b", "value-b"));
+        });
+
+        StepVerifier.create(Mono.zip(single, all))
+            .then(() -> sink.tryEmitValue("value-a"))
+            .expectNextMatches(t -> t.getT1().equals("value-a") && t.getT2().equals(Map.of("a", "value-a", "b", "value-b")))
+            .verifyComplete();
+
+        assertEquals(List.of(List.of("b", "c")), batches, "One call for the keys not in flight, without duplicates");
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, inFlightRequests.coalescedCount());
+        assertEquals(0, inFlightRequests.inFlightCount());
+    }
+
+    @Test
+    void executeAll_whenEveryKeyInFlight_shouldNotCall() {
+        Sinks.One<String> sink = Sinks.one();
+        Mono<String> single = inFlightRequests.execute("a", () -> upstream(sink));
+
+        Mono<Map<String, String>> all = inFlightRequests.executeAll(List.of("a"),
+            keys -> Mono.error(new AssertionError("Called for " + keys)));
+
+        StepVerifier.create(Mono.zip(single, all))
+            .then(() -> sink.tryEmitValue("value"))
+            .expectNextMatches(t -> t.getT2().equals(Map.of("a", "value")))
+            .verifyComplete();
+    }
+}
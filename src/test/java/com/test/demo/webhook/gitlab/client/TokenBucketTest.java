@@ -0,0 +1,68 @@
+package com.test.demo.webhook.gitlab.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final MutableClock clock = new MutableClock(START);
+
+    @Test
+    void reserve_withinBurst_shouldNotWait() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0.05, Duration.ofMinutes(1), clock);
+
+        assertEquals(Duration.ZERO, bucket.reserve());
+        assertEquals(Duration.ZERO, bucket.reserve());
+        assertEquals(Duration.ZERO, bucket.reserve());
+    }
+
+    @Test
+    void reserve_beyondBurst_shouldQueueCallersAtTheRefillRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0.05, Duration.ofMinutes(1), clock);
+
+        assertEquals(Duration.ZERO, bucket.reserve());
+        assertEquals(Duration.ofMillis(100), bucket.reserve());
+        assertEquals(Duration.ofMillis(200), bucket.reserve());
+
+        // Both queued callers have had their tokens after 200ms; half of the next one has accrued since
+        clock.advance(Duration.ofMillis(250));
+        assertEquals(Duration.ofMillis(50), bucket.reserve());
+    }
+
+    @Test
+    void update_shouldSpreadRemainingQuotaUntilReset() {
+        TokenBucket bucket = new TokenBucket(10, 20, 0.05, Duration.ofMinutes(1), clock);
+
+        // 600 per minute, 330 left, 30 seconds to go: (330 - 30 margin) / 30s = 10 per second
+        bucket.update(600, 330, START.getEpochSecond() + 30);
+
+        assertEquals(10.0, bucket.ratePerSecond(), 0.001);
+    }
+
+    @Test
+    void update_whenQuotaUsedUp_shouldHoldCallersUntilReset() {
+        TokenBucket bucket = new TokenBucket(10, 20, 0.05, Duration.ofMinutes(1), clock);
+
+        bucket.update(600, 20, START.getEpochSecond() + 15); // Only the safety margin is left
+
+        Duration wait = bucket.reserve();
+        assertTrue(wait.compareTo(Duration.ofSeconds(15)) >= 0, "waited " + wait);
+        assertTrue(wait.compareTo(Duration.ofSeconds(16)) < 0, "waited " + wait);
+        assertEquals(570 / 60.0, bucket.ratePerSecond(), 0.001); // The next window's quota, less the margin
+    }
+
+    @Test
+    void pause_shouldDelayNextToken() {
+        TokenBucket bucket = new TokenBucket(10, 20, 0.05, Duration.ofMinutes(1), clock);
+
+        bucket.pause(Duration.ofSeconds(5));
+
+        assertEquals(Duration.ofMillis(5100), bucket.reserve());
+    }
+}
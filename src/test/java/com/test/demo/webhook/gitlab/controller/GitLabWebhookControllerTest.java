@@ -0,0 +1,167 @@
+package com.test.demo.webhook.gitlab.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.BulkEventStatus;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.ingest.MergeRequestEventDispatcher;
+import com.test.demo.webhook.gitlab.processor.MergeRequestEventReader;
+import com.test.demo.webhook.gitlab.processor.PipelineMetrics;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitLabWebhookControllerTest {
+
+    private final List<MergeRequestEvent> dispatched = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final WebhookProperties properties = new WebhookProperties();
+    private MergeRequestEventDispatcher dispatcher;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        properties.setTargetBranches("main");
+        properties.setApiSpecFiles(List.of("spec/api.yaml"));
+        properties.getIngestion().setBulkConcurrency(4);
+        // Takes a little while per event, so concurrent dispatches overlap
+        dispatcher = event -> Mono.defer(() -> {
+                int current = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(current, Math::max);
+                dispatched.add(event);
+                return Mono.delay(Duration.ofMillis(5));
+            })
+            .doOnTerminate(inFlight::decrementAndGet)
+            .then();
+        client = clientFor(event -> dispatcher.dispatch(event));
+    }
+
+    private WebTestClient clientFor(MergeRequestEventDispatcher eventDispatcher) {
+        ProjectRoutes routes = new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory()));
+        GitLabWebhookController controller = new GitLabWebhookController(eventDispatcher,
+            new PipelineMetrics(new SimpleMeterRegistry(), routes),
+            new MergeRequestEventReader(Jackson2ObjectMapperBuilder.json(), routes), properties);
+        return WebTestClient.bindToController(controller).build();
+    }
+
+    private static String event(long iid, String action) {
+        return "{\"object_kind\":\"merge_request\",\"object_attributes\":{\"iid\":" + iid + ",\"action\":\"" + action
+            + "\",\"target_branch\":\"main\",\"target_project_id\":200,\"last_commit\":{\"id\":\"sha" + iid + "\"}}}";
+    }
+
+    @Test
+    void handleMergeRequestEvent_whenIrrelevant_shouldAcknowledgeWithoutDispatching() {
+        client.post().uri("/webhooks/gitlab/mergerequest")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(event(1, "update"))
+            .exchange()
+            .expectStatus().isAccepted();
+
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    void handleMergeRequestEvent_whenRelevant_shouldDispatchBoundEvent() {
+        client.post().uri("/webhooks/gitlab/mergerequest")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(event(1, "merge"))
+            .exchange()
+            .expectStatus().isAccepted();
+
+        assertEquals(1, dispatched.size());
+        assertEquals("sha1", dispatched.get(0).attributes().lastCommit().id());
+    }
+
+    @Test
+    void handleMergeRequestEvents_shouldStreamOneStatusPerNdjsonEventInOrder() {
+        // Generated lazily in small chunks, as a large replay body would arrive
+        int events = 200;
+        Flux<DataBuffer> body = Flux.range(1, events)
+            .map(iid -> DefaultDataBufferFactory.sharedInstance.wrap(
+                (event(iid, "merge") + "\n").getBytes(StandardCharsets.UTF_8)));
+
+        List<BulkEventStatus> statuses = client.post().uri("/webhooks/gitlab/mergerequest/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body, DataBuffer.class)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(BulkEventStatus.class)
+            .getResponseBody()
+            .collectList()
+            .block(Duration.ofSeconds(30));
+
+        assertEquals(events, statuses.size());
+        for (int i = 0; i < events; i++) {
+            assertEquals(i, statuses.get(i).index());
+            assertEquals(i + 1L, statuses.get(i).iid());
+            assertEquals(BulkEventStatus.ACCEPTED, statuses.get(i).status());
+        }
+        assertEquals(events, dispatched.size());
+        assertTrue(maxInFlight.get() <= 4, "At most bulk-concurrency events in flight, was " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "Events are dispatched concurrently");
+    }
+
+    @Test
+    void handleMergeRequestEvents_shouldAcceptJsonArray() {
+        List<BulkEventStatus> statuses = client.post().uri("/webhooks/gitlab/mergerequest/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("[" + event(1, "merge") + "," + event(2, "merge") + "]")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(BulkEventStatus.class)
+            .getResponseBody()
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(List.of(1L, 2L), statuses.stream().map(BulkEventStatus::iid).toList());
+        assertEquals(2, dispatched.size());
+    }
+
+    @Test
+    void handleMergeRequestEvents_shouldReportRejectedEventsAndInvalidBody() {
+        WebTestClient rejecting = clientFor(event -> event.attributes().iid() == 2
+            ? Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Webhook queue is full"))
+            : dispatcher.dispatch(event));
+
+        Flux<DataBuffer> body = Flux.just(event(1, "merge"), event(2, "merge"), "{\"object_kind\": oops}", event(4, "merge"))
+            .map(line -> DefaultDataBufferFactory.sharedInstance.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+
+        List<BulkEventStatus> statuses = rejecting.post().uri("/webhooks/gitlab/mergerequest/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body, DataBuffer.class)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(BulkEventStatus.class)
+            .getResponseBody()
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(3, statuses.size());
+        assertEquals(BulkEventStatus.ACCEPTED, statuses.get(0).status());
+        assertEquals(BulkEventStatus.REJECTED, statuses.get(1).status());
+        assertEquals("Webhook queue is full", statuses.get(1).error());
+        assertEquals(BulkEventStatus.INVALID_BODY, statuses.get(2).status());
+        assertNull(statuses.get(2).index());
+    }
+}
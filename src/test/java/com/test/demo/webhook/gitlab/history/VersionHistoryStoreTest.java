@@ -0,0 +1,199 @@
+package com.test.demo.webhook.gitlab.history;
+
+import com.test.demo.config.WebhookProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionHistoryStoreTest {
+
+    private static final long PROJECT_ID = 200L;
+    private static final String SPEC = "APISPEC/resolved/swagger.yml";
+
+    @TempDir
+    Path tempDir;
+
+    private final WebhookProperties properties = new WebhookProperties();
+    private final List<VersionHistoryStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.getHistory().setDir(tempDir);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(VersionHistoryStore::destroy);
+    }
+
+    // A new store on the same directory, as after a restart
+    private VersionHistoryStore open() {
+        VersionHistoryStore store = new VersionHistoryStore(properties);
+        stores.add(store);
+        return store;
+    }
+
+    private static VersionRecord record(long iid, String pomVersion, String apiSpecVersion) {
+        String sha = "%08d".formatted(iid) + "0123456789abcdef0123456789abcdef";
+        return new VersionRecord(PROJECT_ID, iid, sha, "main", pomVersion + "-" + sha.substring(0, 8), SPEC,
+            apiSpecVersion, Instant.parse("2024-01-01T00:00:00Z").plusSeconds(iid));
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    private static List<Long> iids(List<VersionRecord> records) {
+        return records.stream().map(VersionRecord::mergeRequestIid).toList();
+    }
+
+    @Test
+    void find_shouldReturnMatchingRecordsOldestFirst() {
+        VersionHistoryStore store = open();
+        store.append(record(1, "1.0.0", "2.0.0"));
+        store.append(record(2, "1.1.0", "2.0.0"));
+        store.append(record(3, "1.1.0", "2.1.0"));
+        store.append(new VersionRecord(300L, 1L, "abc", "main", "1.1.0", SPEC, "2.1.0", Instant.now()));
+
+        assertEquals(List.of(1L, 2L, 3L), iids(store.findByProject(PROJECT_ID)));
+        assertEquals(List.of(2L, 3L), iids(store.findByCodeVersion(PROJECT_ID, "1.1.0")));
+        assertEquals(List.of(3L), iids(store.findByCodeVersion(PROJECT_ID, record(3, "1.1.0", "").codeVersion())));
+        assertEquals(List.of(1L, 2L), iids(store.findByApiSpecVersion(PROJECT_ID, "2.0.0")));
+        assertEquals(List.of(), store.findByApiSpecVersion(PROJECT_ID, "9.9.9"));
+        assertEquals(record(1, "1.0.0", "2.0.0"), store.findByProject(PROJECT_ID).get(0), "Every field survives");
+    }
+
+    @Test
+    void append_whenSameMergeRequestCommitAndSpec_shouldSupersedeEarlierRecord() {
+        VersionHistoryStore store = open();
+        store.append(record(1, "1.0.0", "2.0.0"));
+        store.append(record(1, "1.0.0", "2.0.1"));
+
+        assertEquals(1, store.findByProject(PROJECT_ID).size());
+        assertEquals(List.of(), store.findByApiSpecVersion(PROJECT_ID, "2.0.0"));
+        assertEquals(List.of(1L), iids(store.findByApiSpecVersion(PROJECT_ID, "2.0.1")));
+    }
+
+    @Test
+    void append_whenVersionsUnknown_shouldNotSupersedeKnownVersions() {
+        VersionHistoryStore store = open();
+        VersionRecord known = record(1, "1.0.0", "2.0.0");
+        store.append(known);
+        // A backfill run again while GitLab was failing
+        store.append(new VersionRecord(PROJECT_ID, 1L, known.commitSha(), "main", VersionRecord.UNKNOWN_VERSION,
+            SPEC, "2.0.0", Instant.now()));
+        store.append(new VersionRecord(PROJECT_ID, 1L, known.commitSha(), "main", known.codeVersion(),
+            SPEC, VersionRecord.UNKNOWN_VERSION, Instant.now()));
+
+        assertEquals(List.of(known), store.findByProject(PROJECT_ID));
+        assertEquals(List.of(known), open().findByProject(PROJECT_ID), "Not written either");
+
+        // Unknown versions are recorded until known ones replace them
+        store.append(record(2, "1.1.0", VersionRecord.UNKNOWN_VERSION));
+        assertEquals(List.of(2L), iids(store.findByApiSpecVersion(PROJECT_ID, VersionRecord.UNKNOWN_VERSION)));
+        store.append(record(2, "1.1.0", "2.1.0"));
+        assertEquals(List.of(), store.findByApiSpecVersion(PROJECT_ID, VersionRecord.UNKNOWN_VERSION));
+        assertEquals(List.of(2L), iids(store.findByApiSpecVersion(PROJECT_ID, "2.1.0")));
+    }
+
+    @Test
+    void open_shouldRebuildIndexesFromSegments() {
+        VersionHistoryStore store = open();
+        store.append(record(1, "1.0.0", "2.0.0"));
+        store.append(record(2, "1.1.0", "2.1.0"));
+        store.append(record(1, "1.0.0", "2.0.1"));
+        store.destroy();
+
+        VersionHistoryStore reopened = open();
+        assertEquals(List.of(2L, 1L), iids(reopened.findByProject(PROJECT_ID)), "Superseded on restart as well");
+        assertEquals(List.of(1L), iids(reopened.findByApiSpecVersion(PROJECT_ID, "2.0.1")));
+
+        // Appends continue after the existing records
+        reopened.append(record(3, "1.2.0", "2.2.0"));
+        assertEquals(List.of(2L, 1L, 3L), iids(reopened.findByProject(PROJECT_ID)));
+        assertEquals(List.of(2L, 1L, 3L), iids(open().findByProject(PROJECT_ID)));
+    }
+
+    @Test
+    void open_whenLastRecordTorn_shouldStopBeforeItAndOverwriteIt() throws IOException {
+        VersionHistoryStore store = open();
+        store.append(record(1, "1.0.0", "2.0.0"));
+        store.destroy();
+        Path segment = tempDir.resolve("segment-0000000000.log");
+        int end = endOfRecords(segment);
+        // A length whose payload never made it to disk, as after a crash mid-append
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(0, 60).putInt(4, 12345), end);
+        }
+
+        VersionHistoryStore reopened = open();
+        assertEquals(List.of(1L), iids(reopened.findByProject(PROJECT_ID)));
+        reopened.append(record(2, "1.1.0", "2.1.0"));
+        assertEquals(List.of(1L, 2L), iids(open().findByProject(PROJECT_ID)));
+    }
+
+    // Offset just after the last framed record
+    private static int endOfRecords(Path segment) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int offset = 0;
+        while (bytes.getInt(offset) > 0) {
+            offset += 8 + bytes.getInt(offset);
+        }
+        return offset;
+    }
+
+    @Test
+    void compact_shouldRewriteMostlySupersededSegmentsKeepingCurrentRecords() throws IOException {
+        properties.getHistory().setSegmentSize(DataSize.ofBytes(1024));
+        VersionHistoryStore store = open();
+        // Ten merge requests, each recorded five times, across many small segments
+        for (int round = 0; round < 5; round++) {
+            for (long iid = 1; iid <= 10; iid++) {
+                store.append(record(iid, "1.0." + round, "2.0." + round));
+            }
+        }
+        store.compact(); // Waits for a compaction started in the background by a filled segment
+
+        // About seven records fit in a segment: the ten current ones, plus the active segment
+        assertTrue(segmentFiles() <= 3, "Segments after compaction: " + segmentFiles());
+        List<VersionRecord> records = store.findByProject(PROJECT_ID);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), iids(records));
+        assertTrue(records.stream().allMatch(record -> "2.0.4".equals(record.apiSpecVersion())));
+        assertEquals(10, store.findByCodeVersion(PROJECT_ID, "1.0.4").size());
+        assertEquals(List.of(), store.findByCodeVersion(PROJECT_ID, "1.0.3"));
+
+        store.append(record(11, "1.1.0", "2.1.0"));
+        store.destroy();
+        VersionHistoryStore reopened = open();
+        assertEquals(11, reopened.findByProject(PROJECT_ID).size());
+        assertEquals(10, reopened.findByApiSpecVersion(PROJECT_ID, "2.0.4").size());
+    }
+
+    @Test
+    void append_whenDisabled_shouldNotWriteAnything() throws IOException {
+        properties.getHistory().setEnabled(false);
+        VersionHistoryStore store = open();
+
+        store.append(record(1, "1.0.0", "2.0.0"));
+
+        assertEquals(List.of(), store.findByProject(PROJECT_ID));
+        assertEquals(0, segmentFiles());
+    }
+}
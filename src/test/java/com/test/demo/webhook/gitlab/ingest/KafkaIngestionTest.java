@@ -0,0 +1,89 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.MergeRequestProcessor;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "gitlab.webhook.ingestion.mode=kafka",
+        "gitlab.webhook.ingestion.kafka.topic=" + KafkaIngestionTest.TOPIC,
+        "gitlab.webhook.ingestion.kafka.partitions=" + KafkaIngestionTest.PARTITIONS,
+        "gitlab.webhook.ingestion.kafka.consumer-group=" + KafkaIngestionTest.GROUP,
+        "gitlab.webhook.ingestion.kafka.concurrency=2"
+    })
+@AutoConfigureWebTestClient
+@EmbeddedKafka(partitions = 1)
+class KafkaIngestionTest {
+
+    static final String TOPIC = "test-merge-request-events";
+    static final String GROUP = "test-webhook-processor";
+    static final int PARTITIONS = 3;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @MockBean
+    private MergeRequestProcessor mergeRequestProcessor;
+
+    private MergeRequestEvent createEvent(long iid, long projectId) {
+        MergeRequestEvent.Attributes attributes = new MergeRequestEvent.Attributes(
+            "merged", "merge", "main", new MergeRequestEvent.Commit("sha" + iid), iid, 100L, projectId, "url"
+        );
+        return new MergeRequestEvent("merge_request", "merge_request", attributes);
+    }
+
+    private List<Long> committedOffsets() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            OffsetAndMetadata committed = KafkaTestUtils.getCurrentOffset(embeddedKafka.getBrokersAsString(), GROUP, TOPIC, partition);
+            offsets.add(committed != null ? committed.offset() : 0L);
+        }
+        return offsets;
+    }
+
+    @Test
+    void webhook_shouldPublishEventsAndProcessThemFromKafka() {
+        when(mergeRequestProcessor.processEvent(any())).thenReturn(Mono.empty());
+        MergeRequestEvent first = createEvent(1L, 200L);
+        MergeRequestEvent second = createEvent(2L, 200L);
+
+        for (MergeRequestEvent event : List.of(first, second)) {
+            webTestClient.post().uri("/webhooks/gitlab/mergerequest")
+                .bodyValue(event)
+                .exchange()
+                .expectStatus().isAccepted();
+        }
+
+        verify(mergeRequestProcessor, timeout(30_000)).processEvent(first);
+        verify(mergeRequestProcessor, timeout(30_000)).processEvent(second);
+
+        // Both events belong to project 200, so they share a partition and its committed offset reaches 2
+        await().atMost(Duration.ofSeconds(30))
+            .untilAsserted(() -> assertThat(committedOffsets()).containsOnlyOnce(2L).contains(0L));
+    }
+}
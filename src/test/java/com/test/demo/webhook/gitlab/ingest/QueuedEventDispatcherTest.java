@@ -0,0 +1,103 @@
+package com.test.demo.webhook.gitlab.ingest;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.MergeRequestProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueuedEventDispatcherTest {
+
+    @Mock
+    private MergeRequestProcessor mergeRequestProcessor;
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueuedEventDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        WebhookProperties properties = new WebhookProperties();
+        properties.getIngestion().setWorkers(1);
+        properties.getIngestion().setQueueCapacity(1);
+        dispatcher = new QueuedEventDispatcher(mergeRequestProcessor, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.destroy();
+    }
+
+    private MergeRequestEvent createMockEvent(long iid) {
+        MergeRequestEvent.Attributes attributes = new MergeRequestEvent.Attributes(
+            "merged", "merge", "main", new MergeRequestEvent.Commit("sha123"), iid, 100L, 200L, "url"
+        );
+        return new MergeRequestEvent("merge_request", "merge_request", attributes);
+    }
+
+    @Test
+    void dispatch_shouldCompleteBeforeProcessingFinishes() throws InterruptedException {
+        MergeRequestEvent event = createMockEvent(1L);
+        Sinks.Empty<Void> processing = Sinks.empty();
+        CountDownLatch started = new CountDownLatch(1);
+        when(mergeRequestProcessor.processEvent(event)).thenReturn(processing.asMono().doOnSubscribe(s -> started.countDown()));
+
+        StepVerifier.create(dispatcher.dispatch(event))
+            .verifyComplete();
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        processing.tryEmitEmpty();
+        dispatcher.destroy();
+        verify(mergeRequestProcessor).processEvent(event);
+        assertEquals(1, meterRegistry.get("gitlab.webhook.queue.wait").timer().count());
+    }
+
+    @Test
+    void dispatch_whenQueueFull_shouldRejectAndCount() throws InterruptedException {
+        Sinks.Empty<Void> blocking = Sinks.empty();
+        CountDownLatch started = new CountDownLatch(1);
+        when(mergeRequestProcessor.processEvent(any())).thenReturn(blocking.asMono().doOnSubscribe(s -> started.countDown()));
+
+        dispatcher.dispatch(createMockEvent(1L)).block(); // Occupies the only worker
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(createMockEvent(2L)).block(); // Fills the queue
+
+        StepVerifier.create(dispatcher.dispatch(createMockEvent(3L)))
+            .expectError(ResponseStatusException.class)
+            .verify();
+
+        assertEquals(1.0, meterRegistry.get("gitlab.webhook.queue.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("gitlab.webhook.queue.depth").gauge().value());
+        assertEquals(0.0, meterRegistry.get("gitlab.webhook.queue.remaining").gauge().value());
+        blocking.tryEmitEmpty();
+    }
+
+    @Test
+    void dispatch_whenProcessorFails_shouldKeepWorkerAlive() {
+        MergeRequestEvent failing = createMockEvent(1L);
+        MergeRequestEvent next = createMockEvent(2L);
+        when(mergeRequestProcessor.processEvent(failing)).thenThrow(new IllegalStateException("bug"));
+        when(mergeRequestProcessor.processEvent(next)).thenReturn(Mono.empty());
+
+        dispatcher.dispatch(failing).block();
+        dispatcher.dispatch(next).block();
+
+        verify(mergeRequestProcessor, timeout(5000)).processEvent(next);
+    }
+}
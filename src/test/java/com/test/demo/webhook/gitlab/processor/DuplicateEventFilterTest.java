@@ -0,0 +1,184 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateEventFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestClock clock = new TestClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final List<DuplicateEventFilter> filters = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (DuplicateEventFilter filter : filters) {
+            filter.destroy();
+        }
+    }
+
+    private DuplicateEventFilter filter(Path spillFile) {
+        return filter(spillFile, 100_000);
+    }
+
+    private DuplicateEventFilter filter(Path spillFile, long maxKeys) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.getDedup().setWindow(Duration.ofHours(1));
+        properties.getDedup().setSpillFile(spillFile);
+        properties.getDedup().setMaxKeys(maxKeys);
+        DuplicateEventFilter filter = new DuplicateEventFilter(properties, meterRegistry, clock);
+        filters.add(filter);
+        return filter;
+    }
+
+    private static MergeRequestEvent event(long iid, String sha) {
+        MergeRequestEvent.Attributes attributes = new MergeRequestEvent.Attributes(
+            "merged", "merge", "main", new MergeRequestEvent.Commit(sha), iid, 100L, 200L, "url");
+        return new MergeRequestEvent("merge_request", "merge_request", attributes);
+    }
+
+    private double suppressed() {
+        return meterRegistry.get("gitlab.webhook.duplicates.suppressed").counter().count();
+    }
+
+    @Test
+    void firstSeen_shouldSuppressRepeatedEventsOnly() {
+        DuplicateEventFilter filter = filter(null);
+
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+        assertFalse(filter.firstSeen(event(1, "sha1")));
+        assertTrue(filter.firstSeen(event(1, "sha2")), "A new commit on the same MR is a new event");
+        assertTrue(filter.firstSeen(event(2, "sha1")));
+        assertEquals(1, suppressed());
+    }
+
+    @Test
+    void firstSeen_shouldForgetEventsOutsideTheWindow() {
+        DuplicateEventFilter filter = filter(null);
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+
+        clock.advance(Duration.ofMinutes(59));
+        assertFalse(filter.firstSeen(event(1, "sha1")));
+
+        clock.advance(Duration.ofMinutes(2));
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+    }
+
+    @Test
+    void forget_shouldLetTheEventThroughAgain() {
+        DuplicateEventFilter filter = filter(null);
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+
+        filter.forget(event(1, "sha1"));
+
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+        assertEquals(0, suppressed());
+    }
+
+    @Test
+    void firstSeen_whenDisabled_shouldAlwaysReturnTrue() {
+        WebhookProperties properties = new WebhookProperties();
+        properties.getDedup().setEnabled(false);
+        DuplicateEventFilter filter = new DuplicateEventFilter(properties, meterRegistry, clock);
+
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+        assertTrue(filter.firstSeen(event(1, "sha1")));
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void spillFile_shouldRestoreTheWindowAfterRestartAndCompact() throws Exception {
+        Path spillFile = tempDir.resolve("dedup.log");
+        DuplicateEventFilter first = filter(spillFile);
+        first.firstSeen(event(1, "sha1"));
+        clock.advance(Duration.ofMinutes(30));
+        first.firstSeen(event(2, "sha1"));
+        first.firstSeen(event(3, "sha1"));
+        first.forget(event(3, "sha1"));
+        first.destroy();
+        assertEquals(4, Files.readAllLines(spillFile).size());
+
+        clock.advance(Duration.ofMinutes(40)); // Event 1 is now outside the window, event 2 is not
+        Files.writeString(spillFile, "+ torn", java.nio.file.StandardOpenOption.APPEND);
+        DuplicateEventFilter restarted = filter(spillFile);
+
+        assertEquals(1, restarted.size());
+        assertEquals(1, Files.readAllLines(spillFile).size(), "Expired, forgotten and malformed lines are compacted away");
+        assertFalse(restarted.firstSeen(event(2, "sha1")));
+        assertTrue(restarted.firstSeen(event(1, "sha1")));
+        assertTrue(restarted.firstSeen(event(3, "sha1")));
+
+        // Restored keys only live out the rest of their window
+        clock.advance(Duration.ofMinutes(21));
+        assertTrue(restarted.firstSeen(event(2, "sha1")));
+    }
+
+    @Test
+    void spillFile_shouldCompactWhileRunningOnceMaxKeysLinesAreAppended() throws Exception {
+        Path spillFile = tempDir.resolve("dedup.log");
+        DuplicateEventFilter filter = filter(spillFile, 10);
+
+        // The same few events over and over, each processed and then forgotten
+        for (int round = 0; round < 100; round++) {
+            long iid = round % 3;
+            filter.firstSeen(event(iid, "sha1"));
+            if (round < 97) {
+                filter.forget(event(iid, "sha1"));
+            }
+        }
+
+        filter.destroy(); // Once the writer thread has caught up
+        assertTrue(Files.readAllLines(spillFile).size() <= 10 + 3, "Lines: " + Files.readAllLines(spillFile).size());
+        DuplicateEventFilter restarted = filter(spillFile, 10);
+        assertEquals(3, restarted.size(), "Nothing live is lost by compacting");
+    }
+
+    /**
+     * Clock that only moves when the test advances it.
+     */
+    private static class TestClock extends Clock {
+
+        private Instant now;
+
+        TestClock(Instant start) {
+            this.now = start;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.test.demo.webhook.gitlab.processor;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
 import com.test.demo.webhook.gitlab.client.GitLabApiClient;
 import com.test.demo.webhook.gitlab.dto.ApiResponses;
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.Flux;
+import reactor.test.publisher.TestPublisher;
 import reactor.test.StepVerifier;
 
 import java.util.Collections;
@@ -33,7 +38,14 @@ class FileChangeAnalyzerTest {
     void setUp() {
         // InjectMocks doesn't work well with constructor injection of Collections/Sets
         // Initialize manually
-        fileChangeAnalyzer = new FileChangeAnalyzer(apiSpecFiles, gitLabApiClient);
+        fileChangeAnalyzer = new FileChangeAnalyzer(routesWithSpecFiles(apiSpecFiles), gitLabApiClient);
+    }
+
+    private static ProjectRoutes routesWithSpecFiles(Set<String> specFiles) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setTargetBranches("main");
+        properties.setApiSpecFiles(List.copyOf(specFiles));
+        return new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory()));
     }
 
     private MergeRequestEvent createMockEvent() {
@@ -46,7 +58,7 @@ class FileChangeAnalyzerTest {
 
     @Test
     void findChangedApiSpecFiles_whenApiSpecFilesIsEmpty_shouldReturnEmptyMono() {
-        fileChangeAnalyzer = new FileChangeAnalyzer(Collections.emptySet(), gitLabApiClient); // Use empty set
+        fileChangeAnalyzer = new FileChangeAnalyzer(routesWithSpecFiles(Collections.emptySet()), gitLabApiClient); // Use empty set
         MergeRequestEvent event = createMockEvent();
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
@@ -57,38 +69,22 @@ class FileChangeAnalyzerTest {
     @Test
     void findChangedApiSpecFiles_whenNoChanges_shouldReturnEmptyMono() {
         MergeRequestEvent event = createMockEvent();
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(null); // No changes list
 
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.empty());
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
             .expectNext(Collections.emptyList())
             .verifyComplete();
     }
-    
-     @Test
-    void findChangedApiSpecFiles_whenChangesIsNull_shouldReturnEmptyMono() {
-        MergeRequestEvent event = createMockEvent();
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(null); // Null changes list
-
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
-
-        StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
-            .expectNext(Collections.emptyList())
-            .verifyComplete();
-    }
-
 
     @Test
     void findChangedApiSpecFiles_whenChangesExistButNoneMatch_shouldReturnEmptyMono() {
         MergeRequestEvent event = createMockEvent();
-        List<ApiResponses.MergeRequestChanges.Change> changes = List.of(
-            new ApiResponses.MergeRequestChanges.Change("old/path.txt", "new/path.txt", false, false, false),
-            new ApiResponses.MergeRequestChanges.Change("README.md", "README.md", false, false, false)
+        List<ApiResponses.Change> changes = List.of(
+            new ApiResponses.Change("old/path.txt", "new/path.txt", false, false, false),
+            new ApiResponses.Change("README.md", "README.md", false, false, false)
         );
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(changes);
-
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.fromIterable(changes));
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
             .expectNext(Collections.emptyList())
@@ -98,13 +94,11 @@ class FileChangeAnalyzerTest {
     @Test
     void findChangedApiSpecFiles_whenOneChangeMatches_shouldReturnListOfOne() {
         MergeRequestEvent event = createMockEvent();
-        List<ApiResponses.MergeRequestChanges.Change> changes = List.of(
-            new ApiResponses.MergeRequestChanges.Change("old/path.txt", "new/path.txt", false, false, false),
-            new ApiResponses.MergeRequestChanges.Change("spec/api.yaml", "spec/api.yaml", false, false, false) // Match
+        List<ApiResponses.Change> changes = List.of(
+            new ApiResponses.Change("old/path.txt", "new/path.txt", false, false, false),
+            new ApiResponses.Change("spec/api.yaml", "spec/api.yaml", false, false, false) // Match
         );
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(changes);
-
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.fromIterable(changes));
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
             .expectNext(List.of("spec/api.yaml"))
@@ -114,14 +108,12 @@ class FileChangeAnalyzerTest {
     @Test
     void findChangedApiSpecFiles_whenMultipleChangesMatch_shouldReturnListOfAllMatches() {
         MergeRequestEvent event = createMockEvent();
-        List<ApiResponses.MergeRequestChanges.Change> changes = List.of(
-            new ApiResponses.MergeRequestChanges.Change("old/path.txt", "new/path.txt", false, false, false),
-            new ApiResponses.MergeRequestChanges.Change("spec/api.yaml", "spec/api.yaml", false, false, false), // Match 1
-            new ApiResponses.MergeRequestChanges.Change("other/spec.json", "other/spec.json", false, false, false) // Match 2
+        List<ApiResponses.Change> changes = List.of(
+            new ApiResponses.Change("old/path.txt", "new/path.txt", false, false, false),
+            new ApiResponses.Change("spec/api.yaml", "spec/api.yaml", false, false, false), // Match 1
+            new ApiResponses.Change("other/spec.json", "other/spec.json", false, false, false) // Match 2
         );
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(changes);
-
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.fromIterable(changes));
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
             // Order might not be guaranteed by stream, check contents
@@ -132,13 +124,11 @@ class FileChangeAnalyzerTest {
      @Test
     void findChangedApiSpecFiles_whenDuplicateMatches_shouldReturnDistinctList() {
         MergeRequestEvent event = createMockEvent();
-        List<ApiResponses.MergeRequestChanges.Change> changes = List.of(
-            new ApiResponses.MergeRequestChanges.Change("spec/api.yaml", "spec/api.yaml", false, false, false), // Match 1
-            new ApiResponses.MergeRequestChanges.Change("spec/api.yaml", "spec/api.yaml", false, false, false) // Duplicate Match
+        List<ApiResponses.Change> changes = List.of(
+            new ApiResponses.Change("spec/api.yaml", "spec/api.yaml", false, false, false), // Match 1
+            new ApiResponses.Change("spec/api.yaml", "spec/api.yaml", false, false, false) // Duplicate Match
         );
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(changes);
-
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.fromIterable(changes));
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
             .expectNext(List.of("spec/api.yaml")) // Only one distinct entry
@@ -147,29 +137,51 @@ class FileChangeAnalyzerTest {
 
 
     @Test
-    void findChangedApiSpecFiles_whenApiClientReturnsEmpty_shouldReturnEmptyList() {
+    void findChangedApiSpecFiles_whenChangeHasNullPaths_shouldHandleGracefully() {
+        MergeRequestEvent event = createMockEvent();
+         List<ApiResponses.Change> changes = List.of(
+            new ApiResponses.Change(null, null, false, false, false), // Both null
+            new ApiResponses.Change("spec/api.yaml", "spec/api.yaml", false, false, false) // Match
+        );
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.fromIterable(changes));
+
+        StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
+            .expectNext(List.of("spec/api.yaml")) // Should ignore the null path change
+            .verifyComplete();
+    }
+
+    @Test
+    void findChangedApiSpecFiles_whenAllSpecFilesSeen_shouldCancelRemainingListing() {
         MergeRequestEvent event = createMockEvent();
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.empty());
+        TestPublisher<ApiResponses.Change> listing = TestPublisher.create();
+
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(listing.flux());
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
-             // .defaultIfEmpty(Collections.emptyList()) handles the empty Mono case
-            .expectNext(Collections.emptyList())
+            .then(() -> listing.next(
+                new ApiResponses.Change("spec/api.yaml", "spec/api.yaml", false, false, false),
+                new ApiResponses.Change("other/spec.json", "other/spec.json", false, false, false)))
+            .expectNextMatches(list -> list.containsAll(List.of("spec/api.yaml", "other/spec.json")) && list.size() == 2)
             .verifyComplete();
+
+        listing.assertCancelled();
     }
-    
+
     @Test
-    void findChangedApiSpecFiles_whenChangeHasNullPaths_shouldHandleGracefully() {
+    void findChangedApiSpecFiles_whenGlobPatternConfigured_shouldReturnEveryMatchingPath() {
+        fileChangeAnalyzer = new FileChangeAnalyzer(
+            routesWithSpecFiles(Set.of("services/*/APISPEC/**/swagger.yml")), gitLabApiClient);
         MergeRequestEvent event = createMockEvent();
-         List<ApiResponses.MergeRequestChanges.Change> changes = List.of(
-            new ApiResponses.MergeRequestChanges.Change(null, null, false, false, false), // Both null
-            new ApiResponses.MergeRequestChanges.Change("spec/api.yaml", "spec/api.yaml", false, false, false) // Match
+        List<ApiResponses.Change> changes = List.of(
+            new ApiResponses.Change("services/orders/APISPEC/resolved/swagger.yml", "services/orders/APISPEC/resolved/swagger.yml", false, false, false),
+            new ApiResponses.Change("services/orders/src/Main.java", "services/orders/src/Main.java", false, false, false),
+            new ApiResponses.Change("services/billing/APISPEC/swagger.yml", "services/billing/APISPEC/swagger.yml", true, false, false)
         );
-        ApiResponses.MergeRequestChanges apiResponse = new ApiResponses.MergeRequestChanges(changes);
 
-        when(gitLabApiClient.getMergeRequestChanges(anyLong(), anyLong())).thenReturn(Mono.just(apiResponse));
+        when(gitLabApiClient.getMergeRequestDiffs(anyLong(), anyLong())).thenReturn(Flux.fromIterable(changes));
 
         StepVerifier.create(fileChangeAnalyzer.findChangedApiSpecFiles(event))
-            .expectNext(List.of("spec/api.yaml")) // Should ignore the null path change
+            .expectNext(List.of("services/orders/APISPEC/resolved/swagger.yml", "services/billing/APISPEC/swagger.yml"))
             .verifyComplete();
     }
 }
@@ -0,0 +1,104 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobPathMatcherTest {
+
+    @Test
+    void matches_withLiteralPaths_shouldMatchExactPathsOnly() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of("APISPEC/resolved/swagger.yml", "/api/spec.json"));
+
+        assertTrue(matcher.matches("APISPEC/resolved/swagger.yml"));
+        assertTrue(matcher.matches("api/spec.json")); // Leading '/' in the pattern is ignored
+        assertFalse(matcher.matches("APISPEC/resolved"));
+        assertFalse(matcher.matches("APISPEC/resolved/swagger.yml.bak"));
+        assertFalse(matcher.matches("other/APISPEC/resolved/swagger.yml"));
+        assertTrue(matcher.isLiteralOnly());
+    }
+
+    @Test
+    void matches_withSingleStar_shouldMatchExactlyOneSegment() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of("services/*/swagger.yml"));
+
+        assertTrue(matcher.matches("services/orders/swagger.yml"));
+        assertFalse(matcher.matches("services/swagger.yml"));
+        assertFalse(matcher.matches("services/orders/v2/swagger.yml"));
+        assertFalse(matcher.isLiteralOnly());
+    }
+
+    @Test
+    void matches_withDoubleStar_shouldMatchAnyNumberOfSegments() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of("services/*/APISPEC/**/swagger.yml"));
+
+        assertTrue(matcher.matches("services/orders/APISPEC/swagger.yml"));
+        assertTrue(matcher.matches("services/orders/APISPEC/resolved/swagger.yml"));
+        assertTrue(matcher.matches("services/orders/APISPEC/a/b/c/swagger.yml"));
+        assertFalse(matcher.matches("services/orders/APISPEC/a/b/c/openapi.yml"));
+        assertFalse(matcher.matches("services/orders/src/swagger.yml"));
+    }
+
+    @Test
+    void matches_withLeadingAndTrailingDoubleStar_shouldMatchAtAnyDepth() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of("**/openapi.json", "specs/**"));
+
+        assertTrue(matcher.matches("openapi.json"));
+        assertTrue(matcher.matches("a/b/openapi.json"));
+        assertTrue(matcher.matches("specs/v1/orders.yml"));
+        assertFalse(matcher.matches("docs/readme.md"));
+    }
+
+    @Test
+    void matches_withWildcardsWithinSegment_shouldMatchCharacters() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of("api/swagger-*.y?l", "api/v?/*.json"));
+
+        assertTrue(matcher.matches("api/swagger-orders.yml"));
+        assertFalse(matcher.matches("api/swagger-.yaml"));
+        assertTrue(matcher.matches("api/swagger-.yml"));
+        assertTrue(matcher.matches("api/v2/orders.json"));
+        assertFalse(matcher.matches("api/v10/orders.json"));
+        assertFalse(matcher.matches("api/swagger-orders.json"));
+    }
+
+    @Test
+    void matches_withOverlappingPatterns_shouldMatchAnyOfThem() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of(
+            "services/orders/APISPEC/swagger.yml", "services/*/docs/*.md", "services/billing/**"));
+
+        assertTrue(matcher.matches("services/orders/APISPEC/swagger.yml"));
+        assertTrue(matcher.matches("services/orders/docs/index.md"));
+        assertTrue(matcher.matches("services/billing/anything/at/all.txt"));
+        assertFalse(matcher.matches("services/orders/APISPEC/other.yml"));
+    }
+
+    @Test
+    void matches_withManyPatterns_shouldMatchEachOfThem() {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            patterns.add("services/svc-" + i + "/APISPEC/**/swagger.yml");
+        }
+        GlobPathMatcher matcher = GlobPathMatcher.compile(patterns);
+
+        assertTrue(matcher.matches("services/svc-0/APISPEC/swagger.yml"));
+        assertTrue(matcher.matches("services/svc-9999/APISPEC/resolved/swagger.yml"));
+        assertFalse(matcher.matches("services/svc-10000/APISPEC/swagger.yml"));
+    }
+
+    @Test
+    void compile_shouldIgnoreBlankAndDuplicatePatterns() {
+        GlobPathMatcher matcher = GlobPathMatcher.compile(List.of("a/b.yml", " a/b.yml ", "", "   "));
+
+        assertEquals(1, matcher.patterns().size());
+        assertFalse(matcher.matches(""));
+        assertTrue(GlobPathMatcher.compile(List.of()).isEmpty());
+    }
+
+    @Test
+    void matches_withNullPath_shouldReturnFalse() {
+        assertFalse(GlobPathMatcher.compile(List.of("**")).matches(null));
+    }
+}
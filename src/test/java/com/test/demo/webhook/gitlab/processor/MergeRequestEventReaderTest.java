@@ -0,0 +1,113 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergeRequestEventReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MergeRequestEventReader reader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Project 300 only merges into release
+        Path routingFile = Files.writeString(tempDir.resolve("routes.yml"), """
+            projects:
+              - id: 300
+                target-branches: [release]
+            """);
+        WebhookProperties properties = new WebhookProperties();
+        properties.setTargetBranches("main,develop");
+        properties.setApiSpecFiles(List.of("spec/api.yaml"));
+        properties.getRouting().setFile(routingFile);
+        properties.getRouting().setWatch(false);
+        reader = new MergeRequestEventReader(Jackson2ObjectMapperBuilder.json(),
+            new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory())));
+    }
+
+    // Fields in GitLab's order, with the nested sections the pre-filter has to skip
+    private static byte[] body(String objectKind, String action, String targetBranch, long targetProjectId) {
+        return """
+            {"object_kind":"%s","event_type":"merge_request",
+             "user":{"id":1,"name":"Jane","username":"jane"},
+             "project":{"id":%d,"name":"orders","default_branch":"main"},
+             "object_attributes":{"iid":7,"title":"Release","description":"[\\"not\\", {\\"action\\": \\"merge\\"}]",
+              "state":"merged","target_branch":"%s","source_branch":"feature",
+              "last_commit":{"id":"abc123","message":"merge","author":{"name":"Jane"}},
+              "target_project_id":%d,"source_project_id":%d,"labels":[{"id":1,"title":"x"}],
+              "action":"%s","url":"https://gitlab.example.com/mr/7"},
+             "labels":[{"id":1,"title":"x"}],
+             "changes":{"state":{"previous":"opened","current":"merged"}}}
+            """.formatted(objectKind, targetProjectId, targetBranch, targetProjectId, targetProjectId, action)
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void isRelevant_whenMergeIntoTargetBranch_shouldReturnTrue() {
+        assertTrue(reader.isRelevant(body("merge_request", "merge", "main", 200)));
+        assertTrue(reader.isRelevant(body("merge_request", "MERGE", "develop", 200)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"open", "update", "approved", "close"})
+    void isRelevant_whenOtherAction_shouldReturnFalse(String action) {
+        assertFalse(reader.isRelevant(body("merge_request", action, "main", 200)));
+    }
+
+    @Test
+    void isRelevant_whenOtherObjectKind_shouldReturnFalse() {
+        assertFalse(reader.isRelevant(body("push", "merge", "main", 200)));
+    }
+
+    @Test
+    void isRelevant_whenBranchNotRoutedForProject_shouldReturnFalse() {
+        assertFalse(reader.isRelevant(body("merge_request", "merge", "feature", 200)));
+        assertFalse(reader.isRelevant(body("merge_request", "merge", "main", 300)));
+        assertTrue(reader.isRelevant(body("merge_request", "merge", "release", 300)));
+    }
+
+    @Test
+    void isRelevant_whenFieldsMissing_shouldReturnFalse() {
+        assertFalse(reader.isRelevant("{\"object_kind\":\"merge_request\"}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(reader.isRelevant("{\"object_attributes\":{\"action\":\"merge\",\"target_branch\":\"main\"}}"
+            .getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void isRelevant_whenNotScannable_shouldLeaveItToBinding() {
+        assertTrue(reader.isRelevant("{\"object_kind\":\"merge_req".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(reader.isRelevant("[]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class, () -> reader.read("{\"object_kind\":\"merge_req".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void read_shouldBindTheFullEvent() throws IOException {
+        MergeRequestEvent event = reader.read(body("merge_request", "merge", "main", 200));
+
+        assertEquals("merge_request", event.objectKind());
+        assertEquals("merge", event.attributes().action());
+        assertEquals("main", event.attributes().targetBranch());
+        assertEquals(7L, event.attributes().iid());
+        assertEquals(200L, event.attributes().targetProjectId());
+        assertEquals("abc123", event.attributes().lastCommit().id());
+    }
+}
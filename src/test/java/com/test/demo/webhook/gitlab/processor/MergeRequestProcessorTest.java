@@ -1,18 +1,28 @@
 package com.test.demo.webhook.gitlab.processor;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
 import com.test.demo.webhook.gitlab.service.MergeRequestService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -28,9 +38,27 @@ class MergeRequestProcessorTest {
     @Mock
     private MergeRequestService mergeRequestService;
 
+    @Mock
+    private ProjectRoutes projectRoutes;
+
+    @Mock
+    private DuplicateEventFilter duplicateFilter;
+
+    private final ProjectRoute route = new ProjectRoute(Set.of("main"), GlobPathMatcher.compile(List.of("spec/api.yaml")));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry,
+        new ProjectRoutes(new WebhookProperties(), new ObjectMapper(new YAMLFactory())));
+
     @InjectMocks
     private MergeRequestProcessor mergeRequestProcessor;
 
+    private long processed(String outcome) {
+        return meterRegistry.get("gitlab.webhook.processing").tags("project", "other", "outcome", outcome).timer().count();
+    }
+
     private MergeRequestEvent createMockEvent() {
         // Create a basic event structure sufficient for testing the processor flow
          MergeRequestEvent.Commit commit = new MergeRequestEvent.Commit("sha123");
@@ -43,77 +71,176 @@ class MergeRequestProcessorTest {
     @Test
     void processEvent_whenValidationFails_shouldCompleteEmpty() {
         MergeRequestEvent event = createMockEvent();
-        when(validator.validate(event)).thenReturn(false);
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(false);
 
         StepVerifier.create(mergeRequestProcessor.processEvent(event))
             .verifyComplete();
 
-        verify(validator).validate(event);
+        verify(validator).validate(event, route);
         verifyNoInteractions(changeAnalyzer, mergeRequestService);
+        assertEquals(1, processed("skipped"));
     }
 
     @Test
     void processEvent_whenAnalyzerFindsNoChanges_shouldCompleteEmpty() {
         MergeRequestEvent event = createMockEvent();
-        when(validator.validate(event)).thenReturn(true);
-        when(changeAnalyzer.findChangedApiSpecFiles(event)).thenReturn(Mono.just(Collections.emptyList()));
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.just(Collections.emptyList()));
 
         StepVerifier.create(mergeRequestProcessor.processEvent(event))
             .verifyComplete();
 
-        verify(validator).validate(event);
-        verify(changeAnalyzer).findChangedApiSpecFiles(event);
+        verify(validator).validate(event, route);
+        verify(changeAnalyzer).findChangedApiSpecFiles(event, route);
         verifyNoInteractions(mergeRequestService);
+        verify(duplicateFilter, never()).forget(event); // Listed without relevant changes, nothing to retry
     }
     
     @Test
     void processEvent_whenAnalyzerReturnsEmptyMono_shouldCompleteEmpty() {
         MergeRequestEvent event = createMockEvent();
-        when(validator.validate(event)).thenReturn(true);
-        when(changeAnalyzer.findChangedApiSpecFiles(event)).thenReturn(Mono.empty()); // Analyzer itself returns empty
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.empty()); // Analyzer itself returns empty
+
+        StepVerifier.create(mergeRequestProcessor.processEvent(event))
+            .verifyComplete();
+
+        verify(validator).validate(event, route);
+        verify(changeAnalyzer).findChangedApiSpecFiles(event, route);
+        verifyNoInteractions(mergeRequestService);
+        verify(duplicateFilter).forget(event); // No change list, so a redelivery is processed again
+    }
+
+    @Test
+    void processEvent_whenAnalyzerFails_shouldForgetEventForRedelivery() {
+        MergeRequestEvent event = createMockEvent();
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route))
+            .thenReturn(Mono.error(new IllegalStateException("503 from GitLab on diffs page 2")));
 
         StepVerifier.create(mergeRequestProcessor.processEvent(event))
             .verifyComplete();
 
-        verify(validator).validate(event);
-        verify(changeAnalyzer).findChangedApiSpecFiles(event);
         verifyNoInteractions(mergeRequestService);
+        verify(duplicateFilter).forget(event);
+        assertEquals(1, processed("error"));
     }
 
 
     @Test
     void processEvent_whenValidAndChangesFoundAndServiceSucceeds_shouldComplete() {
         MergeRequestEvent event = createMockEvent();
-        String specFile = "spec/api.yaml";
-        when(validator.validate(event)).thenReturn(true);
-        when(changeAnalyzer.findChangedApiSpecFiles(event)).thenReturn(Mono.just(List.of(specFile, "other.yaml"))); // Multiple changes, processor takes first
-        when(mergeRequestService.processMergeRequest(event, specFile)).thenReturn(Mono.empty());
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        List<String> specFiles = List.of("spec/api.yaml", "other.yaml"); // Multiple changes, all processed together
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.just(specFiles));
+        when(mergeRequestService.processMergeRequest(event, specFiles)).thenReturn(Mono.just(ProcessingOutcome.UNKNOWN));
 
         StepVerifier.create(mergeRequestProcessor.processEvent(event))
             .verifyComplete();
 
-        verify(validator).validate(event);
-        verify(changeAnalyzer).findChangedApiSpecFiles(event);
-        verify(mergeRequestService).processMergeRequest(event, specFile);
+        verify(validator).validate(event, route);
+        verify(changeAnalyzer).findChangedApiSpecFiles(event, route);
+        verify(mergeRequestService).processMergeRequest(event, specFiles);
+        assertEquals(1, processed("unknown"));
+        assertEquals(1, meterRegistry.get("gitlab.webhook.stage")
+            .tags("stage", "analyze", "project", "other", "outcome", "processed").timer().count());
     }
 
     @Test
     void processEvent_whenServiceFails_shouldCompleteWithErrorLogged() {
          MergeRequestEvent event = createMockEvent();
+         when(projectRoutes.routeFor(event)).thenReturn(route);
         String specFile = "spec/api.yaml";
         RuntimeException serviceError = new RuntimeException("Service failure");
 
-        when(validator.validate(event)).thenReturn(true);
-        when(changeAnalyzer.findChangedApiSpecFiles(event)).thenReturn(Mono.just(List.of(specFile)));
-        when(mergeRequestService.processMergeRequest(event, specFile)).thenReturn(Mono.error(serviceError));
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.just(List.of(specFile)));
+        when(mergeRequestService.processMergeRequest(event, List.of(specFile))).thenReturn(Mono.error(serviceError));
 
         StepVerifier.create(mergeRequestProcessor.processEvent(event))
              // Expect completion because the error is handled by doOnError and then() swallows it
             .verifyComplete(); 
 
-        verify(validator).validate(event);
-        verify(changeAnalyzer).findChangedApiSpecFiles(event);
-        verify(mergeRequestService).processMergeRequest(event, specFile);
+        verify(validator).validate(event, route);
+        verify(changeAnalyzer).findChangedApiSpecFiles(event, route);
+        verify(mergeRequestService).processMergeRequest(event, List.of(specFile));
+        verify(duplicateFilter).forget(event); // So that a redelivery is processed again
+        assertEquals(1, processed("error"));
         // Verification of logging is complex with static loggers, but the flow confirms error handling path was taken.
     }
+
+    @Test
+    void processEvent_whenVersionsUnknown_shouldForgetEventForRedelivery() {
+        MergeRequestEvent event = createMockEvent();
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.just(List.of("spec/api.yaml")));
+        when(mergeRequestService.processMergeRequest(event, List.of("spec/api.yaml")))
+            .thenReturn(Mono.just(ProcessingOutcome.UNKNOWN)); // e.g. GitLab failed to serve the files
+
+        StepVerifier.create(mergeRequestProcessor.processEvent(event))
+            .verifyComplete();
+
+        verify(duplicateFilter).forget(event);
+    }
+
+    @Test
+    void processEvent_whenCancelled_shouldForgetEventForRedelivery() {
+        MergeRequestEvent event = createMockEvent();
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.just(List.of("spec/api.yaml")));
+        when(mergeRequestService.processMergeRequest(event, List.of("spec/api.yaml"))).thenReturn(Mono.never());
+
+        StepVerifier.create(mergeRequestProcessor.processEvent(event))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(50)) // Still waiting on GitLab
+            .thenCancel()
+            .verify();
+
+        verify(duplicateFilter).forget(event);
+    }
+
+    @Test
+    void processEvent_whenProcessed_shouldKeepEventSeen() {
+        MergeRequestEvent event = createMockEvent();
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(true);
+        when(changeAnalyzer.findChangedApiSpecFiles(event, route)).thenReturn(Mono.just(List.of("spec/api.yaml")));
+        when(mergeRequestService.processMergeRequest(event, List.of("spec/api.yaml")))
+            .thenReturn(Mono.just(ProcessingOutcome.PROCESSED));
+
+        StepVerifier.create(mergeRequestProcessor.processEvent(event))
+            .verifyComplete();
+
+        verify(duplicateFilter, never()).forget(event);
+    }
+
+    @Test
+    void processEvent_whenDuplicate_shouldSkipWithoutFetching() {
+        MergeRequestEvent event = createMockEvent();
+        when(projectRoutes.routeFor(event)).thenReturn(route);
+        when(validator.validate(event, route)).thenReturn(true);
+        when(duplicateFilter.firstSeen(event)).thenReturn(false);
+
+        StepVerifier.create(mergeRequestProcessor.processEvent(event))
+            .verifyComplete();
+
+        verifyNoInteractions(changeAnalyzer, mergeRequestService);
+        verify(duplicateFilter, never()).forget(event);
+        assertEquals(1, processed("skipped"));
+    }
 }
@@ -1,12 +1,18 @@
 package com.test.demo.webhook.gitlab.processor;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.routing.ProjectRoute;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -18,7 +24,14 @@ class MergeRequestValidatorTest {
 
     @BeforeEach
     void setUp() {
-        validator = new MergeRequestValidator(targetBranches);
+        validator = new MergeRequestValidator(routesWithTargetBranches(targetBranches));
+    }
+
+    private static ProjectRoutes routesWithTargetBranches(Set<String> branches) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setTargetBranches(String.join(",", branches));
+        properties.setApiSpecFiles(List.of("spec/api.yaml"));
+        return new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory()));
     }
 
     private MergeRequestEvent createValidEvent(String action, String targetBranch) {
@@ -127,8 +140,17 @@ class MergeRequestValidatorTest {
 
     @Test
     void validate_whenTargetBranchesIsEmpty_shouldReturnFalse() {
-        validator = new MergeRequestValidator(Set.of()); // Empty set
+        validator = new MergeRequestValidator(routesWithTargetBranches(Set.of())); // Empty set
         MergeRequestEvent event = createValidEvent("merge", "main");
         assertFalse(validator.validate(event));
     }
+
+    @Test
+    void validate_whenRouteHasOtherTargetBranches_shouldUseRouteBranches() {
+        MergeRequestEvent event = createValidEvent("merge", "release");
+        ProjectRoute route = new ProjectRoute(Set.of("release"), GlobPathMatcher.compile(List.of("spec/api.yaml")));
+
+        assertFalse(validator.validate(event));
+        assertTrue(validator.validate(event, route));
+    }
 }
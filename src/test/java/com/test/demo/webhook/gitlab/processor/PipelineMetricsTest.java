@@ -0,0 +1,55 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProjectRoutes projectRoutes;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        projectRoutes.destroy();
+    }
+
+    @Test
+    void record_shouldTagOnlyRoutedProjectsAndLumpTheRestTogether() throws IOException {
+        Path routingFile = tempDir.resolve("routes.yml");
+        Files.writeString(routingFile, "projects:\n  - id: 123\n");
+        WebhookProperties properties = new WebhookProperties();
+        properties.setTargetBranches("main");
+        properties.setApiSpecFiles(List.of("spec/api.yaml"));
+        properties.getRouting().setFile(routingFile);
+        properties.getRouting().setWatch(false);
+        projectRoutes = new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory()));
+        PipelineMetrics metrics = new PipelineMetrics(meterRegistry, projectRoutes);
+
+        long start = System.nanoTime();
+        metrics.record(PipelineMetrics.Stage.VALIDATE, 123L, ProcessingOutcome.PROCESSED, start);
+        // Arbitrary ids from webhook bodies must not each add a timer
+        for (long projectId = 1000; projectId < 1100; projectId++) {
+            metrics.record(PipelineMetrics.Stage.VALIDATE, projectId, ProcessingOutcome.PROCESSED, start);
+        }
+
+        assertEquals(1, meterRegistry.get(PipelineMetrics.STAGE_TIMER).tags("project", "123").timer().count());
+        assertEquals(100, meterRegistry.get(PipelineMetrics.STAGE_TIMER).tags("project", "other").timer().count());
+        assertEquals(2, meterRegistry.find(PipelineMetrics.STAGE_TIMER).timers().size());
+    }
+}
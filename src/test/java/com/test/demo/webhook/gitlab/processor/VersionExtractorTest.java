@@ -1,36 +1,17 @@
 package com.test.demo.webhook.gitlab.processor;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.Parent;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
-import org.junit.jupiter.api.BeforeEach;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*; // Ensure doThrow is imported
 
-@ExtendWith(MockitoExtension.class)
 class VersionExtractorTest {
 
-    @Mock
-    private ObjectMapper yamlMapper;
-
-    @Mock
-    private MavenXpp3Reader pomReader;
-
-    @InjectMocks
-    private VersionExtractor versionExtractor;
+    private final VersionExtractor versionExtractor = new VersionExtractor(new ObjectMapper(new YAMLFactory()));
 
     private final String pomContent = "<project><version>1.0.0</version></project>";
     private final String pomWithParentContent = "<project><parent><version>2.0.0</version></parent></project>";
@@ -38,124 +19,171 @@ class VersionExtractorTest {
     private final String yamlContent = "info:\n  version: 1.2.3";
     private final String yamlNoInfoContent = "other: data";
     private final String yamlNoVersionContent = "info:\n  title: API";
-    private final String invalidYamlContent = "info: version: 1.2.3"; // Invalid YAML syntax
+    private final String invalidYamlContent = "info:\n  title: [unclosed\n  version: 1.2.3"; // Invalid YAML syntax before the version
 
     @Test
     void extractPomVersion_whenVersionPresent_shouldReturnVersion() throws Exception {
-        Model model = new Model();
-        model.setVersion("1.0.0");
-        when(pomReader.read(any(Reader.class))).thenReturn(model);
-
         assertEquals("1.0.0", versionExtractor.extractPomVersion(pomContent));
     }
 
     @Test
     void extractPomVersion_whenOnlyParentVersionPresent_shouldReturnParentVersion() throws Exception {
-        Model model = new Model();
-        Parent parent = new Parent();
-        parent.setVersion("2.0.0");
-        model.setParent(parent);
-        when(pomReader.read(any(Reader.class))).thenReturn(model);
-
         assertEquals("2.0.0", versionExtractor.extractPomVersion(pomWithParentContent));
     }
 
     @Test
-    void extractPomVersion_whenNoVersionPresent_shouldReturnUnknown() throws Exception {
-        Model model = new Model(); // No version, no parent
-        when(pomReader.read(any(Reader.class))).thenReturn(model);
+    void extractPomVersion_whenBothPresent_shouldPreferProjectVersion() throws Exception {
+        String pom = "<project><parent><version>2.0.0</version></parent><version>1.0.0</version></project>";
+        assertEquals("1.0.0", versionExtractor.extractPomVersion(pom));
+    }
 
+    @Test
+    void extractPomVersion_whenNoVersionPresent_shouldReturnUnknown() throws Exception {
         assertEquals("unknown", versionExtractor.extractPomVersion(pomNoVersionContent));
     }
 
     @Test
-    void extractPomVersion_whenPomReaderThrowsIOException_shouldThrowVersionExtractionException() throws Exception {
-        when(pomReader.read(any(Reader.class))).thenThrow(new IOException("Read error"));
+    void extractPomVersion_shouldIgnoreNestedVersions() throws Exception {
+        String pom = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!-- comment before the root -->
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+                <modelVersion>4.0.0</modelVersion>
+                <parent>
+                    <groupId>org.example</groupId>
+                    <version>
+                        3.0.0
+                    </version>
+                </parent>
+                <organization><name>Caf&eacute;</name><version>9.9.9</version></organization>
+                <dependencies>
+                    <dependency><version>5.5.5</version></dependency>
+                </dependencies>
+                <version>7.7.7</version>
+            </project>
+            """;
+        // Only the top-level version counts, even when it follows the dependencies
+        assertEquals("7.7.7", versionExtractor.extractPomVersion(pom));
+    }
 
-        assertThrows(VersionExtractionException.class, () -> versionExtractor.extractPomVersion(pomContent));
+    @Test
+    void extractPomVersion_whenVersionAfterEverySection_shouldStillPreferProjectVersion() throws Exception {
+        String pom = """
+            <project>
+                <parent><version>3.0.0</version></parent>
+                <properties><revision>9.9.9</revision></properties>
+                <dependencyManagement><dependencies><dependency><version>5.5.5</version></dependency></dependencies></dependencyManagement>
+                <build><plugins><plugin><version>6.6.6</version></plugin></plugins></build>
+                <profiles><profile><id>release</id></profile></profiles>
+                <version>1.2.0</version>
+            </project>
+            """;
+        assertEquals("1.2.0", versionExtractor.extractPomVersion(pom));
+        assertEquals("3.0.0", versionExtractor.extractPomVersion(pom.replace("<version>1.2.0</version>", "")),
+            "Parent version once the whole project has been read");
     }
 
     @Test
-    void extractPomVersion_whenPomReaderThrowsXmlPullParserException_shouldThrowVersionExtractionException() throws Exception {
-        when(pomReader.read(any(Reader.class))).thenThrow(new XmlPullParserException("Parse error"));
+    void extractPomVersion_fromBytes_shouldDetectEncoding() throws Exception {
+        String pom = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><project><name>Caf\u00e9</name><version>1.0.0</version></project>";
+        assertEquals("1.0.0", versionExtractor.extractPomVersion(pom.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("1.0.0", versionExtractor.extractPomVersion(pomContent.getBytes(StandardCharsets.UTF_8)));
+    }
 
-        assertThrows(VersionExtractionException.class, () -> versionExtractor.extractPomVersion(pomContent));
+    @Test
+    void extractPomVersion_whenXmlMalformed_shouldThrowVersionExtractionException() {
+        assertThrows(VersionExtractionException.class, () -> versionExtractor.extractPomVersion("<project><version>1.0"));
     }
 
     @Test
-    void extractApiSpecVersion_whenVersionPresent_shouldReturnVersion() throws Exception {
-        JsonNode rootNode = mock(JsonNode.class);
-        JsonNode infoNode = mock(JsonNode.class);
-        JsonNode versionNode = mock(JsonNode.class);
-
-        when(yamlMapper.readTree(yamlContent)).thenReturn(rootNode);
-        when(rootNode.path("info")).thenReturn(infoNode);
-        when(infoNode.isMissingNode()).thenReturn(false);
-        when(infoNode.path("version")).thenReturn(versionNode);
-        when(versionNode.isMissingNode()).thenReturn(false);
-        when(versionNode.isTextual()).thenReturn(true);
-        when(versionNode.asText()).thenReturn("1.2.3");
+    void extractPomVersion_whenRootIsNotProject_shouldThrowVersionExtractionException() {
+        VersionExtractionException thrown = assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractPomVersion("<settings><version>1.0.0</version></settings>"));
+        assertTrue(thrown.getMessage().contains("Expected root element 'project'"));
+    }
 
+    @Test
+    void extractApiSpecVersion_whenVersionPresent_shouldReturnVersion() throws Exception {
         assertEquals("1.2.3", versionExtractor.extractApiSpecVersion(yamlContent, "spec.yaml"));
     }
 
     @Test
-    void extractApiSpecVersion_whenInfoMissing_shouldThrowVersionExtractionException() throws Exception {
-        JsonNode rootNode = mock(JsonNode.class);
-        JsonNode missingNode = mock(JsonNode.class);
-
-        when(yamlMapper.readTree(yamlNoInfoContent)).thenReturn(rootNode);
-        when(rootNode.path("info")).thenReturn(missingNode);
-        when(missingNode.isMissingNode()).thenReturn(true);
+    void extractApiSpecVersion_whenInfoFollowsOtherSections_shouldSkipThem() throws Exception {
+        String spec = """
+            openapi: 3.0.0
+            paths:
+              /pets:
+                get:
+                  responses:
+                    '200':
+                      description: version 9.9.9
+            components:
+              schemas:
+                Pet:
+                  properties:
+                    version: {type: string}
+            info:
+              title: Pets
+              contact: {name: API team, version: nested}
+              version: '2.1.0'
+            """;
+        assertEquals("2.1.0", versionExtractor.extractApiSpecVersion(spec, "spec.yaml"));
+    }
 
-        assertThrows(VersionExtractionException.class, () -> versionExtractor.extractApiSpecVersion(yamlNoInfoContent, "spec.yaml"));
+    @Test
+    void extractApiSpecVersion_whenSpecIsJson_shouldReturnVersion() throws Exception {
+        String spec = "{\"openapi\":\"3.0.0\",\"paths\":{\"/a\":{\"get\":{}}},\"info\":{\"title\":\"API\",\"version\":\"3.4.5\"}}";
+        assertEquals("3.4.5", versionExtractor.extractApiSpecVersion(spec, "spec.json"));
+        assertEquals("3.4.5", versionExtractor.extractApiSpecVersion(spec.getBytes(StandardCharsets.UTF_8), "spec.json"));
     }
 
     @Test
-    void extractApiSpecVersion_whenVersionMissing_shouldThrowVersionExtractionException() throws Exception {
-        JsonNode rootNode = mock(JsonNode.class);
-        JsonNode infoNode = mock(JsonNode.class);
-        JsonNode missingNode = mock(JsonNode.class);
+    void extractApiSpecVersion_whenYamlFlowMapping_shouldFallBackToYamlParser() throws Exception {
+        assertEquals("1.0.0", versionExtractor.extractApiSpecVersion("{info: {version: '1.0.0'}}", "spec.yaml"));
+    }
 
-        when(yamlMapper.readTree(yamlNoVersionContent)).thenReturn(rootNode);
-        when(rootNode.path("info")).thenReturn(infoNode);
-        when(infoNode.isMissingNode()).thenReturn(false);
-        when(infoNode.path("version")).thenReturn(missingNode);
-        when(missingNode.isMissingNode()).thenReturn(true);
+    @Test
+    void extractApiSpecVersion_fromBytes_shouldReturnVersion() throws Exception {
+        assertEquals("1.2.3", versionExtractor.extractApiSpecVersion(yamlContent.getBytes(StandardCharsets.UTF_8), "spec.yaml"));
+    }
 
-        assertThrows(VersionExtractionException.class, () -> versionExtractor.extractApiSpecVersion(yamlNoVersionContent, "spec.yaml"));
+    @Test
+    void extractApiSpecVersion_whenInfoMissing_shouldThrowVersionExtractionException() {
+        VersionExtractionException thrown = assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion(yamlNoInfoContent, "spec.yaml"));
+        assertEquals("Missing 'info' field in API spec: spec.yaml", thrown.getMessage());
     }
-    
-     @Test
-    void extractApiSpecVersion_whenVersionNotTextual_shouldThrowVersionExtractionException() throws Exception {
-        JsonNode rootNode = mock(JsonNode.class);
-        JsonNode infoNode = mock(JsonNode.class);
-        JsonNode nonTextualVersionNode = mock(JsonNode.class);
 
-        when(yamlMapper.readTree(yamlNoVersionContent)).thenReturn(rootNode); // Use content that would parse
-        when(rootNode.path("info")).thenReturn(infoNode);
-        when(infoNode.isMissingNode()).thenReturn(false);
-        when(infoNode.path("version")).thenReturn(nonTextualVersionNode);
-        when(nonTextualVersionNode.isMissingNode()).thenReturn(false);
-        when(nonTextualVersionNode.isTextual()).thenReturn(false); // Version is not text
+    @Test
+    void extractApiSpecVersion_whenVersionMissing_shouldThrowVersionExtractionException() {
+        VersionExtractionException thrown = assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion(yamlNoVersionContent, "spec.yaml"));
+        assertEquals("Missing or invalid 'version' field under 'info' in API spec: spec.yaml", thrown.getMessage());
+    }
 
-        assertThrows(VersionExtractionException.class, () -> versionExtractor.extractApiSpecVersion(yamlNoVersionContent, "spec.yaml"));
+    @Test
+    void extractApiSpecVersion_whenVersionNotTextual_shouldThrowVersionExtractionException() {
+        assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion("info:\n  version: 1.2", "spec.yaml"));
+        assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion("info:\n  version:\n    major: 1", "spec.yaml"));
     }
 
+    @Test
+    void extractApiSpecVersion_whenDocumentIsNotAMapping_shouldThrowVersionExtractionException() {
+        assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion("- just\n- a list", "spec.yaml"));
+        assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion("", "spec.yaml"));
+    }
 
     @Test
-    void extractApiSpecVersion_whenYamlMapperThrowsIOException_shouldThrowVersionExtractionException() throws IOException {
-        // Use thenThrow with a RuntimeException wrapping the IOException as a workaround for Mockito
-        when(yamlMapper.readTree(invalidYamlContent)).thenThrow(new RuntimeException(new IOException("Parse error")));
+    void extractApiSpecVersion_whenYamlInvalid_shouldThrowVersionExtractionException() {
+        VersionExtractionException thrown = assertThrows(VersionExtractionException.class,
+            () -> versionExtractor.extractApiSpecVersion(invalidYamlContent, "spec.yaml"));
 
-        // Expect VersionExtractionException because the code catches IOException and wraps it
-        VersionExtractionException thrown = assertThrows(VersionExtractionException.class, () -> {
-            versionExtractor.extractApiSpecVersion(invalidYamlContent, "spec.yaml");
-        });
-        
-        // Optionally assert the cause if needed, though the type assertion is primary
         assertNotNull(thrown.getCause());
         assertTrue(thrown.getCause() instanceof IOException);
-        assertEquals("Parse error", thrown.getCause().getMessage());
+        assertTrue(thrown.getMessage().startsWith("Failed to parse API spec YAML 'spec.yaml'"));
     }
 }
@@ -0,0 +1,66 @@
+package com.test.demo.webhook.gitlab.processor;
+
+import com.test.demo.config.WebhookProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionParsingSchedulerTest {
+
+    private final WebhookProperties properties = new WebhookProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private VersionParsingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        properties.getParsing().setThreads(1);
+        properties.getParsing().setQueueCapacity(1);
+        scheduler = new VersionParsingScheduler(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void parse_shouldRunOnParserThreadAndCompleteEmptyForNull() {
+        StepVerifier.create(scheduler.parse(() -> Thread.currentThread().getName()))
+            .expectNextMatches(name -> name.startsWith("version-parser-"))
+            .verifyComplete();
+        StepVerifier.create(scheduler.parse(() -> null))
+            .verifyComplete();
+    }
+
+    @Test
+    void parse_whenQueueFull_shouldRejectInsteadOfParsingOnCaller() throws InterruptedException {
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Occupy the only parser thread, then fill the queue
+        scheduler.parse(() -> {
+            parsing.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }).subscribe();
+        parsing.await(5, TimeUnit.SECONDS);
+        Mono<String> queued = scheduler.parse(() -> "queued").cache();
+        queued.subscribe();
+
+        StepVerifier.create(scheduler.parse(() -> "rejected"))
+            .expectError(RejectedExecutionException.class)
+            .verify(Duration.ofSeconds(5));
+        assertEquals(1.0, meterRegistry.get("gitlab.webhook.parser.rejected").counter().count());
+
+        release.countDown();
+        StepVerifier.create(queued).expectNext("queued").verifyComplete();
+    }
+}
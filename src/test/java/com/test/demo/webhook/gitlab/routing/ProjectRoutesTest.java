@@ -0,0 +1,126 @@
+package com.test.demo.webhook.gitlab.routing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectRoutesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ProjectRoutes projectRoutes;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (projectRoutes != null) {
+            projectRoutes.destroy();
+        }
+    }
+
+    private ProjectRoutes create(Path routingFile, boolean watch) {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setTargetBranches("main,develop");
+        properties.setApiSpecFiles(List.of("APISPEC/resolved/swagger.yml"));
+        properties.getRouting().setFile(routingFile);
+        properties.getRouting().setWatch(watch);
+        projectRoutes = new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory()));
+        return projectRoutes;
+    }
+
+    private MergeRequestEvent eventFor(Long projectId) {
+        MergeRequestEvent.Attributes attributes = new MergeRequestEvent.Attributes(
+            "merged", "merge", "main", new MergeRequestEvent.Commit("sha"), 1L, 100L, projectId, "url");
+        return new MergeRequestEvent("merge_request", "merge_request", attributes);
+    }
+
+    @Test
+    void routeFor_withoutRoutingFile_shouldUseGlobalSettings() {
+        ProjectRoutes routes = create(null, false);
+
+        ProjectRoute route = routes.routeFor(eventFor(123L));
+
+        assertEquals(Set.of("main", "develop"), route.targetBranches());
+        assertTrue(route.apiSpecFileMatcher().matches("APISPEC/resolved/swagger.yml"));
+        assertSame(route, routes.routeFor(eventFor(null)));
+    }
+
+    @Test
+    void routeFor_withRoutingFile_shouldOverrideListedProjectsOnly() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("routes.yml"), """
+            projects:
+              - id: 123
+                target-branches: [release]
+                api-spec-files: [services/*/APISPEC/**/swagger.yml]
+              - id: 456
+                target-branches: [develop]
+            """);
+        ProjectRoutes routes = create(file, false);
+
+        ProjectRoute project123 = routes.routeFor(eventFor(123L));
+        assertEquals(Set.of("release"), project123.targetBranches());
+        assertTrue(project123.apiSpecFileMatcher().matches("services/orders/APISPEC/swagger.yml"));
+        assertFalse(project123.apiSpecFileMatcher().matches("APISPEC/resolved/swagger.yml"));
+
+        ProjectRoute project456 = routes.routeFor(eventFor(456L));
+        assertEquals(Set.of("develop"), project456.targetBranches());
+        assertTrue(project456.apiSpecFileMatcher().matches("APISPEC/resolved/swagger.yml")); // Global spec files
+
+        assertSame(routes.current().defaultRoute(), routes.routeFor(eventFor(789L)));
+        assertEquals(2, routes.current().size());
+    }
+
+    @Test
+    void constructor_whenRoutingFileInvalid_shouldFailFast() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("routes.yml"), """
+            projects:
+              - id: 123
+              - id: 123
+            """);
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> create(file, false));
+        assertTrue(thrown.getMessage().contains("Duplicate project id 123"));
+    }
+
+    @Test
+    void reload_whenRoutingFileBecomesInvalid_shouldKeepPreviousSnapshot() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("routes.yml"), "projects:\n  - id: 123\n    target-branches: [release]\n");
+        ProjectRoutes routes = create(file, false);
+        ProjectRoutingTable before = routes.current();
+
+        Files.writeString(file, "projects: [ { id: 123, target-branches: [release] ");
+
+        assertFalse(routes.reload());
+        assertSame(before, routes.current());
+    }
+
+    @Test
+    void watch_whenRoutingFileChanges_shouldSwapInNewSnapshot() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("routes.yml"), "projects:\n  - id: 123\n    target-branches: [release]\n");
+        ProjectRoutes routes = create(file, true);
+        ProjectRoutingTable before = routes.current();
+
+        // Replace the file the way config management does: write a new file and move it over the old one
+        Path staged = Files.writeString(tempDir.resolve("routes.yml.tmp"), "projects:\n  - id: 123\n    target-branches: [hotfix]\n");
+        Files.move(staged, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        await().atMost(Duration.ofSeconds(30))
+            .untilAsserted(() -> assertEquals(Set.of("hotfix"), routes.routeFor(eventFor(123L)).targetBranches()));
+        assertEquals(Set.of("release"), before.routeFor(123L).targetBranches()); // Old snapshot left untouched
+    }
+}
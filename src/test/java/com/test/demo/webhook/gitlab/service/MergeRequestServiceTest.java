@@ -1,19 +1,40 @@
 package com.test.demo.webhook.gitlab.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.WebhookProperties;
 import com.test.demo.webhook.gitlab.client.GitLabApiClient;
 import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.PipelineMetrics;
+import com.test.demo.webhook.gitlab.processor.ProcessingOutcome;
 import com.test.demo.webhook.gitlab.processor.VersionExtractionException;
 import com.test.demo.webhook.gitlab.processor.VersionExtractor;
+import com.test.demo.webhook.gitlab.processor.VersionParsingScheduler;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import com.test.demo.webhook.gitlab.sink.VersionResultSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,16 +46,37 @@ class MergeRequestServiceTest {
     @Mock
     private VersionExtractor versionExtractor;
 
-    @InjectMocks
+    @Mock
+    private VersionResultSink resultSink;
+
+    @Mock
+    private VersionResultSink otherResultSink;
+
+    @Spy
+    private WebhookProperties webhookProperties = new WebhookProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry,
+        new ProjectRoutes(new WebhookProperties(), new ObjectMapper(new YAMLFactory())));
+
     private MergeRequestService mergeRequestService;
 
-    private final String POM_CONTENT = "<project><version>1.0.0</version></project>";
-    private final String SPEC_CONTENT = "info:\n  version: '1.2.3'";
+    private final byte[] POM_CONTENT = "<project><version>1.0.0</version></project>".getBytes(StandardCharsets.UTF_8);
+    private final byte[] SPEC_CONTENT = "info:\n  version: '1.2.3'".getBytes(StandardCharsets.UTF_8);
     private final String SPEC_FILE_PATH = "spec/api.yaml";
     private final String COMMIT_SHA = "abcdef1234567890";
     private final Long PROJECT_ID = 123L;
     private final Long MR_IID = 456L;
 
+    @BeforeEach
+    void setUp() {
+        mergeRequestService = new MergeRequestService(gitLabApiClient, versionExtractor,
+            new VersionParsingScheduler(webhookProperties, meterRegistry), webhookProperties, pipelineMetrics,
+            List.of(resultSink, otherResultSink));
+    }
+
     private MergeRequestEvent createMockEvent() {
         MergeRequestEvent.Commit commit = new MergeRequestEvent.Commit(COMMIT_SHA);
         MergeRequestEvent.Attributes attributes = new MergeRequestEvent.Attributes(
@@ -43,42 +85,100 @@ class MergeRequestServiceTest {
         return new MergeRequestEvent(null, null, attributes);
     }
 
+    // The pom.xml is always requested first, together with the spec files
+    private void stubFiles(Map<String, byte[]> found, String... specFilePaths) {
+        when(gitLabApiClient.getRawFiles(eq(PROJECT_ID), eq(filePaths(specFilePaths)), eq(COMMIT_SHA), anyInt()))
+            .thenReturn(Mono.just(found));
+    }
+
+    private void verifyFetchedOnce(String... specFilePaths) {
+        verify(gitLabApiClient, times(1)).getRawFiles(eq(PROJECT_ID), eq(filePaths(specFilePaths)), eq(COMMIT_SHA), anyInt());
+        verifyNoMoreInteractions(gitLabApiClient);
+    }
+
+    private static List<String> filePaths(String... specFilePaths) {
+        List<String> paths = new ArrayList<>(List.of("pom.xml"));
+        paths.addAll(List.of(specFilePaths));
+        return paths;
+    }
+
     @Test
     void processMergeRequest_whenAllSuccessful_shouldComplete() throws VersionExtractionException {
         MergeRequestEvent event = createMockEvent();
 
-        when(gitLabApiClient.getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA)).thenReturn(Mono.just(POM_CONTENT));
-        when(gitLabApiClient.getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA)).thenReturn(Mono.just(SPEC_CONTENT));
+        stubFiles(Map.of("pom.xml", POM_CONTENT, SPEC_FILE_PATH, SPEC_CONTENT), SPEC_FILE_PATH);
         when(versionExtractor.extractPomVersion(POM_CONTENT)).thenReturn("1.0.0");
         when(versionExtractor.extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH)).thenReturn("1.2.3");
 
-        StepVerifier.create(mergeRequestService.processMergeRequest(event, SPEC_FILE_PATH))
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectNext(ProcessingOutcome.PROCESSED)
             .verifyComplete();
 
         // Verify interactions (optional but good practice)
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA);
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA);
+        verifyFetchedOnce(SPEC_FILE_PATH);
         verify(versionExtractor).extractPomVersion(POM_CONTENT);
         verify(versionExtractor).extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH);
+        verify(resultSink).publish(argThat(record -> record.projectId().equals(PROJECT_ID)
+            && record.mergeRequestIid().equals(MR_IID)
+            && record.commitSha().equals(COMMIT_SHA)
+            && record.codeVersion().equals("1.0.0-abcdef12")
+            && record.apiSpecFile().equals(SPEC_FILE_PATH)
+            && record.apiSpecVersion().equals("1.2.3")));
+    }
+
+    @Test
+    void processMergeRequest_whenResultSinkFails_shouldStillPublishToOtherSinks() throws VersionExtractionException {
+        MergeRequestEvent event = createMockEvent();
+
+        stubFiles(Map.of("pom.xml", POM_CONTENT, SPEC_FILE_PATH, SPEC_CONTENT), SPEC_FILE_PATH);
+        when(versionExtractor.extractPomVersion(POM_CONTENT)).thenReturn("1.0.0");
+        when(versionExtractor.extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH)).thenReturn("1.2.3");
+        doThrow(new IllegalStateException("buffer closed")).when(resultSink).publish(any());
+
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectNext(ProcessingOutcome.PROCESSED)
+            .verifyComplete();
+
+        verify(otherResultSink).publish(argThat(record -> record.apiSpecVersion().equals("1.2.3")));
+    }
+
+    @Test
+    void processMergeRequest_whenParserRejectsFile_shouldFailWithoutPublishing() {
+        MergeRequestEvent event = createMockEvent();
+        stubFiles(Map.of("pom.xml", POM_CONTENT, SPEC_FILE_PATH, SPEC_CONTENT), SPEC_FILE_PATH);
+        // A disposed scheduler rejects every task, as a full parser queue does
+        VersionParsingScheduler rejecting = new VersionParsingScheduler(webhookProperties, meterRegistry);
+        rejecting.destroy();
+        MergeRequestService service = new MergeRequestService(gitLabApiClient, versionExtractor, rejecting,
+            webhookProperties, pipelineMetrics, List.of(resultSink));
+
+        StepVerifier.create(service.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectError(RejectedExecutionException.class)
+            .verify();
+
+        verifyNoInteractions(versionExtractor, resultSink);
     }
 
     @Test
     void processMergeRequest_whenPomFetchFails_shouldCompleteWithUnknownPomVersion() throws VersionExtractionException {
          MergeRequestEvent event = createMockEvent();
 
-        // Simulate API client error for pom.xml
-        when(gitLabApiClient.getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA)).thenReturn(Mono.empty()); 
-        when(gitLabApiClient.getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA)).thenReturn(Mono.just(SPEC_CONTENT));
+        // pom.xml not found or failed
+        stubFiles(Map.of(SPEC_FILE_PATH, SPEC_CONTENT), SPEC_FILE_PATH);
         // No need to mock extractPomVersion as it won't be called if content is empty
         when(versionExtractor.extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH)).thenReturn("1.2.3");
 
-        StepVerifier.create(mergeRequestService.processMergeRequest(event, SPEC_FILE_PATH))
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectNext(ProcessingOutcome.UNKNOWN)
             .verifyComplete(); // Should still complete, logging "unknown" for pom version internally
             
          // Verify interactions
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA);
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA);
+        verifyFetchedOnce(SPEC_FILE_PATH);
         // verify(versionExtractor, never()).extractPomVersion(anyString()); // Content was empty
+        assertEquals(1, meterRegistry.get("gitlab.webhook.stage")
+            .tags("stage", "fetch_pom", "project", "other", "outcome", "unknown").timer().count());
+        assertEquals(1, meterRegistry.get("gitlab.webhook.stage")
+            .tags("stage", "parse_spec", "project", "other", "outcome", "processed").timer().count());
         verify(versionExtractor).extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH);
     }
     
@@ -86,18 +186,17 @@ class MergeRequestServiceTest {
     void processMergeRequest_whenSpecFetchFails_shouldCompleteWithUnknownSpecVersion() throws VersionExtractionException {
          MergeRequestEvent event = createMockEvent();
 
-        when(gitLabApiClient.getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA)).thenReturn(Mono.just(POM_CONTENT));
-        // Simulate API client error for spec file
-        when(gitLabApiClient.getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA)).thenReturn(Mono.empty()); 
+        // Spec file not found or failed
+        stubFiles(Map.of("pom.xml", POM_CONTENT), SPEC_FILE_PATH);
         when(versionExtractor.extractPomVersion(POM_CONTENT)).thenReturn("1.0.0");
          // No need to mock extractApiSpecVersion as it won't be called if content is empty
 
-        StepVerifier.create(mergeRequestService.processMergeRequest(event, SPEC_FILE_PATH))
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectNext(ProcessingOutcome.UNKNOWN)
             .verifyComplete(); // Should still complete, logging "unknown" for spec version internally
             
          // Verify interactions
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA);
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA);
+        verifyFetchedOnce(SPEC_FILE_PATH);
         verify(versionExtractor).extractPomVersion(POM_CONTENT);
         // verify(versionExtractor, never()).extractApiSpecVersion(anyString(), anyString()); // Content was empty
     }
@@ -107,17 +206,16 @@ class MergeRequestServiceTest {
     void processMergeRequest_whenPomExtractionFails_shouldCompleteWithUnknownPomVersion() throws VersionExtractionException {
         MergeRequestEvent event = createMockEvent();
 
-        when(gitLabApiClient.getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA)).thenReturn(Mono.just(POM_CONTENT));
-        when(gitLabApiClient.getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA)).thenReturn(Mono.just(SPEC_CONTENT));
+        stubFiles(Map.of("pom.xml", POM_CONTENT, SPEC_FILE_PATH, SPEC_CONTENT), SPEC_FILE_PATH);
         // Simulate extraction error
         when(versionExtractor.extractPomVersion(POM_CONTENT)).thenThrow(new VersionExtractionException("POM parse error")); 
         when(versionExtractor.extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH)).thenReturn("1.2.3");
 
-        StepVerifier.create(mergeRequestService.processMergeRequest(event, SPEC_FILE_PATH))
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectNext(ProcessingOutcome.UNKNOWN)
             .verifyComplete(); // Should complete due to onErrorResume
 
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA);
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA);
+        verifyFetchedOnce(SPEC_FILE_PATH);
         verify(versionExtractor).extractPomVersion(POM_CONTENT);
         verify(versionExtractor).extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH);
     }
@@ -126,18 +224,39 @@ class MergeRequestServiceTest {
     void processMergeRequest_whenSpecExtractionFails_shouldCompleteWithUnknownSpecVersion() throws VersionExtractionException {
         MergeRequestEvent event = createMockEvent();
 
-        when(gitLabApiClient.getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA)).thenReturn(Mono.just(POM_CONTENT));
-        when(gitLabApiClient.getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA)).thenReturn(Mono.just(SPEC_CONTENT));
+        stubFiles(Map.of("pom.xml", POM_CONTENT, SPEC_FILE_PATH, SPEC_CONTENT), SPEC_FILE_PATH);
         when(versionExtractor.extractPomVersion(POM_CONTENT)).thenReturn("1.0.0");
          // Simulate extraction error
         when(versionExtractor.extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH)).thenThrow(new VersionExtractionException("Spec parse error"));
 
-        StepVerifier.create(mergeRequestService.processMergeRequest(event, SPEC_FILE_PATH))
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH)))
+            .expectNext(ProcessingOutcome.UNKNOWN)
             .verifyComplete(); // Should complete due to onErrorResume
 
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, "pom.xml", COMMIT_SHA);
-        verify(gitLabApiClient).getFileContent(PROJECT_ID, SPEC_FILE_PATH, COMMIT_SHA);
+        verifyFetchedOnce(SPEC_FILE_PATH);
         verify(versionExtractor).extractPomVersion(POM_CONTENT);
         verify(versionExtractor).extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH);
     }
+
+    @Test
+    void processMergeRequest_whenMultipleSpecsChanged_shouldFetchPomAndEverySpecInOneBatch() throws VersionExtractionException {
+        MergeRequestEvent event = createMockEvent();
+        String otherSpecPath = "spec/other.yaml";
+        byte[] otherSpecContent = "info:\n  version: '2.0.0'".getBytes(StandardCharsets.UTF_8);
+
+        stubFiles(Map.of("pom.xml", POM_CONTENT, SPEC_FILE_PATH, SPEC_CONTENT, otherSpecPath, otherSpecContent),
+            SPEC_FILE_PATH, otherSpecPath);
+        when(versionExtractor.extractPomVersion(POM_CONTENT)).thenReturn("1.0.0");
+        when(versionExtractor.extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH)).thenReturn("1.2.3");
+        when(versionExtractor.extractApiSpecVersion(otherSpecContent, otherSpecPath)).thenReturn("2.0.0");
+
+        StepVerifier.create(mergeRequestService.processMergeRequest(event, List.of(SPEC_FILE_PATH, otherSpecPath)))
+            .expectNext(ProcessingOutcome.PROCESSED)
+            .verifyComplete();
+
+        verifyFetchedOnce(SPEC_FILE_PATH, otherSpecPath);
+        verify(versionExtractor, times(1)).extractPomVersion(POM_CONTENT);
+        verify(versionExtractor).extractApiSpecVersion(SPEC_CONTENT, SPEC_FILE_PATH);
+        verify(versionExtractor).extractApiSpecVersion(otherSpecContent, otherSpecPath);
+    }
 }
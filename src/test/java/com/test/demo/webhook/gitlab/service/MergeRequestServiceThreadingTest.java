@@ -0,0 +1,120 @@
+package com.test.demo.webhook.gitlab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.test.demo.config.GitLabApiProperties;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.client.FileContentCache;
+import com.test.demo.webhook.gitlab.client.GitLabApiClientImpl;
+import com.test.demo.webhook.gitlab.dto.MergeRequestEvent;
+import com.test.demo.webhook.gitlab.processor.PipelineMetrics;
+import com.test.demo.webhook.gitlab.processor.ProcessingOutcome;
+import com.test.demo.webhook.gitlab.processor.VersionExtractionException;
+import com.test.demo.webhook.gitlab.processor.VersionExtractor;
+import com.test.demo.webhook.gitlab.processor.VersionParsingScheduler;
+import com.test.demo.webhook.gitlab.routing.ProjectRoutes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the service against a real WebClient, whose responses are delivered on Reactor Netty event loops.
+ */
+class MergeRequestServiceThreadingTest {
+
+    private static final long PROJECT_ID = 200L;
+    private static final String SPEC_FILE_PATH = "spec/api.yaml";
+
+    // A thread the extractor ran on, and whether Reactor considers it non-blocking, as it does event loops
+    private record ParserThread(String name, boolean nonBlocking) {}
+
+    private final Queue<ParserThread> parserThreads = new ConcurrentLinkedQueue<>();
+    private final WebhookProperties properties = new WebhookProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DisposableServer server;
+    private VersionParsingScheduler parsingScheduler;
+    private MergeRequestService service;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                .get("/api/v4/projects/{id}/repository/files/{path}/raw", (request, response) -> response
+                    .sendString(Mono.just(request.param("path").endsWith("pom.xml")
+                        ? "<project><version>1.0.0</version></project>"
+                        : "openapi: 3.0.0\ninfo:\n  version: 2.0.0\n"))
+                    .then()))
+            .bindNow();
+
+        GitLabApiProperties apiProperties = new GitLabApiProperties();
+        apiProperties.setBaseUrl("http://localhost:" + server.port() + "/api/v4");
+        GitLabApiClientImpl client = new GitLabApiClientImpl(
+            WebClient.builder().baseUrl(apiProperties.getBaseUrl()).build(), new FileContentCache(apiProperties));
+        VersionExtractor recordingExtractor = new VersionExtractor(new ObjectMapper(new YAMLFactory())) {
+            @Override
+            public String extractPomVersion(byte[] pomContent) throws VersionExtractionException {
+                recordThread();
+                return super.extractPomVersion(pomContent);
+            }
+
+            @Override
+            public String extractApiSpecVersion(byte[] specContent, String filePath) throws VersionExtractionException {
+                recordThread();
+                return super.extractApiSpecVersion(specContent, filePath);
+            }
+        };
+        parsingScheduler = new VersionParsingScheduler(properties, meterRegistry);
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry,
+            new ProjectRoutes(properties, new ObjectMapper(new YAMLFactory())));
+        service = new MergeRequestService(client, recordingExtractor, parsingScheduler, properties, pipelineMetrics,
+            List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        parsingScheduler.destroy();
+        server.disposeNow();
+    }
+
+    private void recordThread() {
+        parserThreads.add(new ParserThread(Thread.currentThread().getName(), Schedulers.isInNonBlockingThread()));
+    }
+
+    // A distinct commit per event, so every file is fetched from the server rather than the cache
+    private static MergeRequestEvent event(long iid) {
+        MergeRequestEvent.Attributes attributes = new MergeRequestEvent.Attributes("merged", "merge", "main",
+            new MergeRequestEvent.Commit("%040d".formatted(iid)), iid, PROJECT_ID, PROJECT_ID, "url");
+        return new MergeRequestEvent("merge_request", "merge_request", attributes);
+    }
+
+    @Test
+    void processMergeRequest_shouldNeverRunVersionExtractorOnEventLoopThreads() {
+        List<ProcessingOutcome> outcomes = Flux.range(1, 20)
+            .flatMap(iid -> service.processMergeRequest(event(iid), List.of(SPEC_FILE_PATH)))
+            .collectList()
+            .block(Duration.ofSeconds(30));
+
+        assertEquals(20, outcomes.size());
+        assertTrue(outcomes.stream().allMatch(ProcessingOutcome.PROCESSED::equals), "Outcomes: " + outcomes);
+        assertEquals(40, parserThreads.size(), "One pom.xml and one spec file per event");
+        for (ParserThread thread : parserThreads) {
+            assertTrue(thread.name().startsWith("version-parser-"), "Parsed on " + thread.name());
+            assertFalse(thread.nonBlocking(), "Parsed on non-blocking thread " + thread.name());
+        }
+    }
+}
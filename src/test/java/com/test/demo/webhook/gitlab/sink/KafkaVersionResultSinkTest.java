@@ -0,0 +1,152 @@
+package com.test.demo.webhook.gitlab.sink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.demo.config.KafkaResultSinkConfig;
+import com.test.demo.config.WebhookProperties;
+import com.test.demo.webhook.gitlab.history.VersionRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@EmbeddedKafka(partitions = 1, topics = KafkaVersionResultSinkTest.TOPIC)
+class KafkaVersionResultSinkTest {
+
+    static final String TOPIC = "test-version-results";
+
+    private final WebhookProperties properties = new WebhookProperties();
+    private final KafkaProperties kafkaProperties = new KafkaProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<KafkaVersionResultSink> sinks = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (KafkaVersionResultSink sink : sinks) {
+            sink.destroy();
+        }
+    }
+
+    private KafkaTemplate<String, VersionRecord> template(String bootstrapServers) {
+        properties.getResults().getKafka().setTopic(TOPIC);
+        kafkaProperties.setBootstrapServers(List.of(bootstrapServers));
+        return new KafkaResultSinkConfig(kafkaProperties, properties, Jackson2ObjectMapperBuilder.json(), meterRegistry)
+            .versionResultKafkaTemplate();
+    }
+
+    private KafkaVersionResultSink sink(KafkaTemplate<String, VersionRecord> template) {
+        KafkaVersionResultSink sink = new KafkaVersionResultSink(template, properties, meterRegistry);
+        sinks.add(sink);
+        return sink;
+    }
+
+    // A broker that refuses connections: the producer waits max.block.ms for metadata on every send
+    private KafkaTemplate<String, VersionRecord> unreachableTemplate() {
+        properties.getResults().getKafka().setBufferCapacity(2);
+        properties.getResults().getKafka().setShutdownTimeout(Duration.ofMillis(100));
+        kafkaProperties.getProducer().getProperties().put(ProducerConfig.MAX_BLOCK_MS_CONFIG, "5000");
+        return template("127.0.0.1:1");
+    }
+
+    private static VersionRecord record(long projectId, long iid) {
+        return new VersionRecord(projectId, iid, "sha" + iid, "main", "1.0.0-sha" + iid,
+            "APISPEC/resolved/swagger.yml", "2.0." + iid, Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    private double counter(String name, String... tags) {
+        return meterRegistry.get(name).tags(tags).counter().count();
+    }
+
+    @Test
+    void publish_shouldSendRecordsKeyedByProjectAsJsonThroughAnIdempotentCompressingProducer() throws Exception {
+        EmbeddedKafkaBroker broker = EmbeddedKafkaCondition.getBroker();
+        KafkaTemplate<String, VersionRecord> template = template(broker.getBrokersAsString());
+        KafkaVersionResultSink sink = sink(template);
+
+        sink.publish(record(200L, 1L));
+        sink.publish(record(200L, 2L));
+        sink.publish(record(300L, 3L));
+
+        await().atMost(Duration.ofSeconds(30)).until(() -> counter("gitlab.webhook.results.published") == 3);
+        Map<String, Object> consumerProperties = KafkaTestUtils.consumerProps("results-reader", "false", broker);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(consumerProperties,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+            List<ConsumerRecord<String, String>> records = StreamSupport.stream(
+                KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(10), 3).spliterator(), false).toList();
+
+            assertThat(records).extracting(ConsumerRecord::key).containsExactly("200", "200", "300");
+            JsonNode first = new ObjectMapper().readTree(records.get(0).value());
+            assertThat(first.get("mergeRequestIid").asLong()).isEqualTo(1L);
+            assertThat(first.get("codeVersion").asText()).isEqualTo("1.0.0-sha1");
+            assertThat(first.get("apiSpecVersion").asText()).isEqualTo("2.0.1");
+            assertThat(first.get("timestamp").asText()).isEqualTo("2024-01-01T00:00:00Z");
+        }
+
+        assertThat(template.getProducerFactory().getConfigurationProperties())
+            .containsEntry(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true)
+            .containsEntry(ProducerConfig.ACKS_CONFIG, "all")
+            .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd")
+            .containsEntry(ProducerConfig.LINGER_MS_CONFIG, 50);
+        assertThat(counter("gitlab.webhook.results.dropped", "reason", "buffer_full")).isZero();
+        assertThat(counter("gitlab.webhook.results.failed")).isZero();
+    }
+
+    @Test
+    void publish_whenBrokerUnreachableAndBufferFull_shouldDropWithoutBlocking() {
+        KafkaVersionResultSink sink = sink(unreachableTemplate());
+
+        long start = System.nanoTime();
+        for (long iid = 1; iid <= 20; iid++) {
+            sink.publish(record(200L, iid));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // One record is stuck in the producer waiting for metadata, at most two wait in the buffer
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(1));
+        assertThat(counter("gitlab.webhook.results.dropped", "reason", "buffer_full")).isGreaterThanOrEqualTo(17);
+        // Whether the sender has taken a record off the buffer yet is a race, so one slot may be free
+        assertThat(meterRegistry.get("gitlab.webhook.results.buffer.remaining").gauge().value()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void publish_whenBlockPolicyAndBufferFull_shouldWaitAtMostBlockTimeout() {
+        properties.getResults().getKafka().setOverflow(WebhookProperties.OverflowPolicy.BLOCK);
+        properties.getResults().getKafka().setBlockTimeout(Duration.ofMillis(100));
+        KafkaVersionResultSink sink = sink(unreachableTemplate());
+        sink.publish(record(200L, 1L));
+        // Taken by the sender, which then waits for metadata
+        await().atMost(Duration.ofSeconds(5))
+            .until(() -> meterRegistry.get("gitlab.webhook.results.buffer.depth").gauge().value() == 0);
+        sink.publish(record(200L, 2L));
+        sink.publish(record(200L, 3L));
+
+        long start = System.nanoTime();
+        sink.publish(record(200L, 4L));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed).isBetween(Duration.ofMillis(90), Duration.ofSeconds(1));
+        assertThat(counter("gitlab.webhook.results.dropped", "reason", "buffer_full")).isEqualTo(1);
+    }
+}